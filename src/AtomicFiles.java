@@ -0,0 +1,108 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Helper for replacing files without ever leaving a half-written file in place.
+ * The new content is written to a temporary file next to the target, forced to disk,
+ * and then renamed over the target in one atomic step. A crash at any point leaves
+ * either the complete old file or the complete new file.
+ */
+public final class AtomicFiles {
+
+    /**
+     * Writes the content of a file through a {@link Writer}.
+     */
+    public interface WriterAction {
+        /**
+         * Writes the full content of the file. The writer may be closed by the action.
+         *
+         * @param writer Writer on the temporary file.
+         * @throws IOException If writing fails.
+         */
+        void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * This class only holds static helpers and should never be created.
+     */
+    private AtomicFiles() {
+    }
+
+    /**
+     * Replaces {@code target} with the content produced by {@code action}.
+     *
+     * @param target The file to replace or create.
+     * @param action Writes the new content.
+     * @throws IOException If the content cannot be written or moved into place. The target is left untouched
+     *                     and the temporary file is removed.
+     */
+    public static void write(Path target, WriterAction action) throws IOException {
+        // A uniquely named temporary file, so writers replacing the same target at once never share one
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName() + ".", ".tmp");
+        boolean moved = false;
+        try {
+            try (Writer writer = new FileWriter(temp.toString(), false)) {
+                action.write(writer);
+            }
+            sync(temp);
+            replace(temp, target);
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Renames {@code source} over {@code target} atomically and makes the rename durable.
+     *
+     * @param source The fully written file.
+     * @param target The file to replace.
+     * @throws IOException If the rename fails.
+     */
+    public static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Forces the content of a file to the storage device.
+     *
+     * @param file The file to sync.
+     * @throws IOException If the file cannot be opened or synced.
+     */
+    public static void sync(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Forces a directory entry change (such as a rename) to the storage device.
+     * Not every platform allows opening a directory, in which case this does nothing.
+     *
+     * @param directory The directory that contains a renamed file.
+     */
+    public static void syncDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directories cannot be opened on some platforms such as Windows; the rename is still atomic there
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link AtomicFiles} class, checking that a replaced file is only ever seen
+ * whole, as the old content or the new one. Every test works on its own temporary files.
+ */
+public class AtomicFilesTest {
+
+    /**
+     * Builds file content of one repeated character, large enough that writing it takes several writes.
+     *
+     * @param c The character.
+     * @return The content.
+     */
+    private static String content(char c) {
+        return String.valueOf(c).repeat(256 * 1024);
+    }
+
+    /**
+     * Verifies that a write replaces the whole file and leaves no temporary file behind.
+     *
+     * @throws IOException if the temporary file cannot be written.
+     */
+    @Test
+    public void testWriteReplacesFile() throws IOException {
+        Path target = Files.createTempDirectory("atomic").resolve("users.csv");
+        Files.writeString(target, "old");
+        AtomicFiles.write(target, writer -> writer.write("new"));
+        assertEquals("new", Files.readString(target));
+        try (Stream<Path> files = Files.list(target.getParent())) {
+            assertEquals(List.of(target), files.collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Verifies that a write failing halfway leaves the old file untouched and removes its temporary file.
+     *
+     * @throws IOException if the temporary file cannot be written.
+     */
+    @Test
+    public void testFailedWriteKeepsOldFile() throws IOException {
+        Path target = Files.createTempDirectory("atomic").resolve("users.csv");
+        String old = content('a');
+        Files.writeString(target, old);
+        assertThrows(IOException.class, () -> AtomicFiles.write(target, writer -> {
+            writer.write(content('b'));
+            throw new IOException("disk full");
+        }));
+        assertEquals(old, Files.readString(target));
+        try (Stream<Path> files = Files.list(target.getParent())) {
+            assertEquals(List.of(target), files.collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Verifies that a reader running alongside repeated replacements always reads the complete old
+     * or the complete new content, never a mix or a partial file.
+     *
+     * @throws Exception if a file cannot be written or the reader thread fails.
+     */
+    @Test
+    public void testReadersNeverSeePartialFile() throws Exception {
+        Path target = Files.createTempFile("atomic", ".csv");
+        String first = content('a');
+        String second = content('b');
+        Files.writeString(target, first);
+        AtomicBoolean done = new AtomicBoolean();
+        List<String> torn = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                try {
+                    String read = Files.readString(target);
+                    if (!read.equals(first) && !read.equals(second)) {
+                        torn.add(read.length() + " chars");
+                    }
+                } catch (IOException e) {
+                    torn.add(e.toString());
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 50; i++) {
+            String next = i % 2 == 0 ? second : first;
+            AtomicFiles.write(target, writer -> writer.write(next));
+        }
+        done.set(true);
+        reader.join();
+        assertEquals(List.of(), torn);
+    }
+
+    /**
+     * Verifies that writers replacing the same file at once do not get in each other's way,
+     * and that the file ends up holding one writer's complete content.
+     *
+     * @throws Exception if a file cannot be written or a writer thread fails.
+     */
+    @Test
+    public void testConcurrentWritersDoNotClash() throws Exception {
+        Path target = Files.createTempDirectory("atomic").resolve("users.csv");
+        String first = content('a');
+        String second = content('b');
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        List<Thread> writers = new ArrayList<>();
+        for (String text : List.of(first, second)) {
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 20; i++) {
+                    try {
+                        AtomicFiles.write(target, out -> out.write(text));
+                    } catch (IOException e) {
+                        failures.add(e);
+                    }
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(List.of(), failures);
+        String result = Files.readString(target);
+        assertTrue(result.equals(first) || result.equals(second));
+        try (Stream<Path> files = Files.list(target.getParent())) {
+            assertEquals(List.of(target), files.collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,665 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Binary user store made of fixed-size records in a memory-mapped file.
+ * Usernames and passwords are limited to 16 characters by {@link CsvHandler#credentialChecker(String, String)}
+ * and every other column is a number or a flag, so each user fits in one {@value #RECORD_SIZE} byte record
+ * that is read and updated in place by offset, with no parsing and no rewrite of other users.
+ * The only variable-length column, the {@code listOfCountry} save blob, lives in an overflow file next to the store.
+ *
+ * <p>Columns are addressed with the same indices as the CSV file (0 is the username, see {@link CsvHandler}).
+ * Enable it with {@code -Dgeocraft.storage=binary}; the first start converts {@code database.csv} once.
+ *
+ * <p>Usernames are found through a {@link UserHashIndex} kept in {@code database.bin.idx}, so a lookup
+ * costs one or two reads however many users there are. Adding or deleting a user bumps a stamp in both
+ * files; if the index is missing or its stamp does not match it is rebuilt by one scan when the store opens.
+ * Deleted slots form a free list threaded through the records, so opening never needs to scan either.
+ *
+ * <p>Record layout: flags (1), username length (1), username (16), password length (1), password (48),
+ * games played (int), saved game flag (1), accuracy (float), high score (int),
+ * overflow offset (long), overflow length (int), overflow capacity (int).
+ */
+public class BinaryUserStore implements UserRowStore, Closeable {
+
+    /** Magic number at the start of the store ("GCB1"). */
+    static final int MAGIC = 0x47434231;
+
+    /** Size in bytes of the file header. */
+    static final int HEADER_SIZE = 64;
+
+    /** Size in bytes of one user record. */
+    static final int RECORD_SIZE = 96;
+
+    /** Maximum length in bytes of a username, which only holds letters and digits. */
+    static final int MAX_NAME_BYTES = 16;
+
+    /** Maximum length in characters of a password, as {@link CsvHandler#credentialChecker(String, String)} allows. */
+    static final int MAX_PASSWORD_CHARS = 16;
+
+    /** Maximum length in bytes of a password: any 16 characters take at most 3 bytes each in UTF-8. */
+    static final int MAX_PASSWORD_BYTES = 3 * MAX_PASSWORD_CHARS;
+
+    /** Current version of the file layout. */
+    private static final int VERSION = 1;
+
+    /** Header offsets: layout version, number of record slots in use (deleted ones included), index stamp, first free slot. */
+    private static final int HEADER_VERSION = 4, HEADER_SLOT_COUNT = 12, HEADER_STAMP = 16, HEADER_FREE_HEAD = 24;
+
+    /** Free list terminator. */
+    private static final int NO_SLOT = -1;
+
+    /** Record offsets of each field. */
+    private static final int OFF_FLAGS = 0, OFF_NAME = 1, OFF_PASSWORD = 18, OFF_GAMES = 67, OFF_SAVED = 71,
+            OFF_ACCURACY = 72, OFF_SCORE = 76, OFF_BLOB_OFFSET = 80, OFF_BLOB_LENGTH = 88, OFF_BLOB_CAPACITY = 92;
+
+    /** Record offset, in a deleted record, of the next free slot. Reuses the games played field. */
+    private static final int OFF_NEXT_FREE = OFF_GAMES;
+
+    /** Flag value of a slot that holds a live user. */
+    private static final byte LIVE = 1;
+
+    /** Overflow length used for the "None" save blob, so an empty save takes no overflow space. */
+    private static final int NO_BLOB = -1;
+
+    /** Names of the CSV columns, taken from {@link CsvSchema#USERS}, used when the store is viewed as a map. */
+    private static final String[] COLUMNS = CsvSchema.USERS.header();
+
+    /** Number of record slots mapped when a store is created. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The store shared by the whole process when binary storage is configured. */
+    private static BinaryUserStore instance;
+
+    /** Location of the record file. */
+    private final Path path;
+
+    /** Channel of the record file. */
+    private final FileChannel channel;
+
+    /** Channel of the overflow file holding save blobs. */
+    private final FileChannel overflow;
+
+    /** Mapping of the header and every record slot. */
+    private MappedByteBuffer map;
+
+    /** Number of record slots covered by {@link #map}. */
+    private int capacity;
+
+    /** Number of record slots in use, deleted ones included. */
+    private int slotCount;
+
+    /** Persistent username to slot index. */
+    private final UserHashIndex index;
+
+    /** Groups the forces requested by writes, or null for stores opened without a background thread. */
+    private GroupCommitter committer;
+
+    /**
+     * Returns the store shared by the whole process, opening {@code database.bin} next to the CSV file.
+     * If the binary file does not exist yet it is converted from the CSV file first.
+     *
+     * @return The shared binary store.
+     */
+    public static synchronized BinaryUserStore get() {
+        if (instance == null) {
+            Path binPath = Paths.get(StorageConfig.BINARY_FILE_PATH);
+            try {
+                if (!Files.exists(binPath) && Files.exists(CsvHandler.filePath)) {
+                    convertFromCsv(CsvHandler.filePath, binPath);
+                }
+                instance = new BinaryUserStore(binPath);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open binary user store " + binPath, e);
+            }
+            instance.startCommitter(StorageConfig.COMMIT_WINDOW_MS);
+        }
+        return instance;
+    }
+
+    /**
+     * Opens or creates a binary store and indexes its live records.
+     *
+     * @param path Location of the record file. The overflow and index files are the same path
+     *             with {@code .overflow} and {@code .idx} appended.
+     * @throws IOException If the files cannot be opened or the header is not a store header.
+     */
+    public BinaryUserStore(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.overflow = FileChannel.open(Paths.get(path + ".overflow"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean fresh = channel.size() < HEADER_SIZE;
+        int existingSlots = fresh ? 0 : (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+        remap(Math.max(INITIAL_CAPACITY, existingSlots));
+        if (fresh) {
+            map.putInt(0, MAGIC).putInt(HEADER_VERSION, VERSION).putInt(8, RECORD_SIZE).putInt(HEADER_SLOT_COUNT, 0)
+                    .putLong(HEADER_STAMP, System.nanoTime()).putInt(HEADER_FREE_HEAD, NO_SLOT);
+        } else if (map.getInt(0) != MAGIC || map.getInt(8) != RECORD_SIZE || map.getInt(HEADER_VERSION) != VERSION) {
+            channel.close();
+            overflow.close();
+            throw new IOException("Not a binary user store of this version: " + path);
+        }
+        slotCount = map.getInt(HEADER_SLOT_COUNT);
+        index = new UserHashIndex(Paths.get(path + ".idx"), map.getLong(HEADER_STAMP));
+        if (!index.isValid()) {
+            rebuildIndex();
+        }
+    }
+
+    /**
+     * Rebuilds the username index from the records, for when the index file is missing or stale.
+     *
+     * @throws IOException If the index file cannot be written.
+     */
+    public synchronized void rebuildIndex() throws IOException {
+        int live = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (map.get(offset(slot) + OFF_FLAGS) == LIVE) {
+                live++;
+            }
+        }
+        index.clear(live);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (map.get(offset(slot) + OFF_FLAGS) == LIVE) {
+                index.put(readName(offset(slot) + OFF_NAME), slot);
+            }
+        }
+        index.setStamp(map.getLong(HEADER_STAMP));
+        index.force();
+    }
+
+    /**
+     * Finds the slot of a live user through the index, checking the record really belongs to that user.
+     *
+     * @param userName The username to look for.
+     * @return The slot, or -1 if the user does not exist.
+     */
+    private int slotOf(String userName) {
+        int slot = index.get(userName);
+        if (slot < 0 || slot >= slotCount) {
+            return -1;
+        }
+        int base = offset(slot);
+        if (map.get(base + OFF_FLAGS) != LIVE || !readName(base + OFF_NAME).equals(userName)) {
+            return -1;
+        }
+        return slot;
+    }
+
+    /**
+     * Changes the stamp after users were added or deleted, in the store and in the index,
+     * so an index that missed the change is detected as stale.
+     */
+    private void bumpStamp() {
+        long stamp = map.getLong(HEADER_STAMP) + 1;
+        map.putLong(HEADER_STAMP, stamp);
+        index.setStamp(stamp);
+    }
+
+    /**
+     * Starts a daemon thread that forces written records to disk, grouping writes made within
+     * {@code windowMillis} of each other, and registers a shutdown hook that forces the rest once the
+     * {@link PersistenceQueue} has handed over the changes still waiting in it.
+     *
+     * @param windowMillis How long a force waits for other writes to join it.
+     */
+    void startCommitter(long windowMillis) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "geocraft-binary-store-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer = new GroupCommitter(this::flush, executor, windowMillis);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            PersistenceQueue.drainIfOpen();
+            flush();
+        }, "geocraft-binary-store-flush-on-exit"));
+    }
+
+    /**
+     * Maps the header and {@code newCapacity} record slots, growing the file if needed.
+     *
+     * @param newCapacity Number of record slots to map.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void remap(int newCapacity) throws IOException {
+        capacity = newCapacity;
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+    }
+
+    /**
+     * Returns the byte offset of a record slot inside the mapping.
+     *
+     * @param slot The record slot.
+     * @return The offset of its first byte.
+     */
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    /**
+     * Checks whether a live record exists for the given username.
+     *
+     * @param userName The username to look for.
+     * @return true if the user exists, otherwise false.
+     */
+    public synchronized boolean contains(String userName) {
+        return slotOf(userName) >= 0;
+    }
+
+    /**
+     * Retrieves a list of all usernames in slot order.
+     *
+     * @return An ArrayList containing all usernames.
+     */
+    public synchronized ArrayList<String> getUserNames() {
+        ArrayList<String> users = new ArrayList<>(index.size());
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (map.get(offset(slot) + OFF_FLAGS) == LIVE) {
+                users.add(readName(offset(slot) + OFF_NAME));
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Reads one column of a user's record.
+     *
+     * @param userName The username whose record is read.
+     * @param index The CSV column index, where 0 is the username.
+     * @return The value of the column as the CSV file would hold it, or null if the user or column does not exist.
+     */
+    public synchronized String getField(String userName, int index) {
+        int slot = slotOf(userName);
+        if (slot < 0) {
+            return null;
+        }
+        int base = offset(slot);
+        switch (index) {
+            case 0: return userName;
+            case 1: return readName(base + OFF_PASSWORD);
+            case 2: return Integer.toString(map.getInt(base + OFF_GAMES));
+            case 3: return Character.toString((char) map.get(base + OFF_SAVED));
+            case 4: return formatAccuracy(map.getFloat(base + OFF_ACCURACY));
+            case 5: return readBlob(base);
+            case 6: return Integer.toString(map.getInt(base + OFF_SCORE));
+            default: return null;
+        }
+    }
+
+    /**
+     * Formats an accuracy rate the way the CSV file holds it: whole numbers without a fraction, as new
+     * accounts start at {@code "100"}, and anything else as {@link Player#setAccuracy(float)} writes it.
+     *
+     * @param accuracy The stored accuracy rate.
+     * @return The accuracy rate as text.
+     */
+    private static String formatAccuracy(float accuracy) {
+        if (accuracy == (int) accuracy) {
+            return Integer.toString((int) accuracy);
+        }
+        return Float.toString(accuracy);
+    }
+
+    /**
+     * Builds the record straight from the stored numbers, without formatting or parsing them.
+     *
+     * @param userName The username whose record is read.
+     * @return The record, or null if the user does not exist.
+     */
+    @Override
+    public synchronized PlayerRecord getRecord(String userName) {
+        int slot = slotOf(userName);
+        if (slot < 0) {
+            return null;
+        }
+        int base = offset(slot);
+        return new PlayerRecord(userName, readName(base + OFF_PASSWORD), map.getInt(base + OFF_GAMES),
+                Character.toString((char) map.get(base + OFF_SAVED)), map.getFloat(base + OFF_ACCURACY),
+                readBlob(base), map.getInt(base + OFF_SCORE));
+    }
+
+    /**
+     * Builds a map of usernames to their other columns keyed by CSV header name.
+     *
+     * @return A map containing user data.
+     */
+    public synchronized Map<String, Map<String, String>> toMap() {
+        Map<String, Map<String, String>> userValuesMap = new HashMap<>();
+        for (String userName : getUserNames()) {
+            Map<String, String> userValues = new HashMap<>();
+            for (int i = 1; i < COLUMNS.length; i++) {
+                userValues.put(COLUMNS[i], getField(userName, i));
+            }
+            userValuesMap.put(userName, userValues);
+        }
+        return userValuesMap;
+    }
+
+    /**
+     * Updates one column of a user's record in place.
+     *
+     * @param userName The username whose record is changed.
+     * @param index The CSV column index, where 0 is the username.
+     * @param value The new value, in the same text form the CSV file uses.
+     * @return true if the record was changed, false if the user does not exist or the value does not fit the column.
+     */
+    public synchronized boolean setField(String userName, int index, String value) {
+        int slot = slotOf(userName);
+        if (slot < 0) {
+            return false;
+        }
+        try {
+            writeField(offset(slot), index, value);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Cannot store " + value + " in column " + index + " of " + userName + ": " + e.getMessage());
+            return false;
+        }
+        commit();
+        return true;
+    }
+
+    /**
+     * Adds a new user in a free slot, growing the file if every slot is taken.
+     *
+     * @param row The full row in CSV column order, where index 0 is the username.
+     * @return true if the user was added, false if the username already exists or a value does not fit.
+     */
+    public synchronized boolean addRow(String[] row) {
+        if (slotOf(row[0]) >= 0) {
+            return false;
+        }
+        int slot = NO_SLOT;
+        int nextFree = NO_SLOT;
+        try {
+            // Every value is checked before the slot is touched, since a free slot holds the free list in its record
+            checkRow(row);
+            int freeHead = map.getInt(HEADER_FREE_HEAD);
+            slot = freeHead == NO_SLOT ? slotCount : freeHead;
+            if (slot >= capacity) {
+                remap(capacity * 2);
+            }
+            nextFree = slot == freeHead ? map.getInt(offset(slot) + OFF_NEXT_FREE) : NO_SLOT;
+            int base = offset(slot);
+            writeName(base + OFF_NAME, row[0]);
+            // A reused slot keeps the overflow space its last user owned, so only the saved game itself is cleared
+            map.putInt(base + OFF_BLOB_LENGTH, NO_BLOB);
+            for (int i = 1; i < row.length; i++) {
+                if (row[i] != null) {
+                    writeField(base, i, row[i]);
+                }
+            }
+            map.put(base + OFF_FLAGS, LIVE);
+            if (slot == slotCount) {
+                slotCount++;
+                map.putInt(HEADER_SLOT_COUNT, slotCount);
+            } else {
+                map.putInt(HEADER_FREE_HEAD, nextFree);
+            }
+            index.put(row[0], slot);
+            bumpStamp();
+        } catch (IllegalArgumentException | IOException e) {
+            if (slot != NO_SLOT && slot < slotCount && map.get(offset(slot) + OFF_FLAGS) != LIVE) {
+                // The save blob could not be written after the record was partly filled; restore the free list link
+                map.putInt(offset(slot) + OFF_NEXT_FREE, nextFree);
+            }
+            System.err.println("Cannot add " + row[0] + " to the binary store: " + e.getMessage());
+            return false;
+        }
+        commit();
+        return true;
+    }
+
+    /**
+     * Checks that every value of a new row fits its column, without writing anything.
+     *
+     * @param row The full row in CSV column order.
+     * @throws IllegalArgumentException If a value does not fit, naming the first one that does not.
+     */
+    private static void checkRow(String[] row) {
+        checkName(row[0]);
+        for (int i = 1; i < row.length; i++) {
+            if (row[i] == null) {
+                continue;
+            }
+            switch (i) {
+                case 1 -> checkPassword(row[i]);
+                case 2, 6 -> Integer.parseInt(row[i].trim());
+                case 4 -> Float.parseFloat(row[i].trim());
+                case 3, 5 -> { }
+                default -> throw new IllegalArgumentException("no such column");
+            }
+        }
+    }
+
+    /**
+     * Deletes a user by marking its slot free and pushing it on the free list. The slot is reused by the next new user.
+     *
+     * @param userName The username to delete.
+     * @return true if the user existed, otherwise false.
+     */
+    public synchronized boolean removeRow(String userName) {
+        int slot = slotOf(userName);
+        if (slot < 0) {
+            return false;
+        }
+        map.put(offset(slot) + OFF_FLAGS, (byte) 0);
+        map.putInt(offset(slot) + OFF_NEXT_FREE, map.getInt(HEADER_FREE_HEAD));
+        map.putInt(HEADER_FREE_HEAD, slot);
+        index.remove(userName);
+        bumpStamp();
+        commit();
+        return true;
+    }
+
+    /**
+     * Writes one column into the record starting at {@code base}.
+     *
+     * @param base Offset of the record.
+     * @param index The CSV column index.
+     * @param value The value in CSV text form.
+     * @throws IOException If the overflow file cannot be written.
+     */
+    private void writeField(int base, int index, String value) throws IOException {
+        switch (index) {
+            case 1 -> writeName(base + OFF_PASSWORD, checkPassword(value));
+            case 2 -> map.putInt(base + OFF_GAMES, Integer.parseInt(value.trim()));
+            case 3 -> map.put(base + OFF_SAVED, (byte) (value.isEmpty() ? 'N' : value.charAt(0)));
+            case 4 -> map.putFloat(base + OFF_ACCURACY, Float.parseFloat(value.trim()));
+            case 5 -> writeBlob(base, value);
+            case 6 -> map.putInt(base + OFF_SCORE, Integer.parseInt(value.trim()));
+            default -> throw new IllegalArgumentException("no such column");
+        }
+    }
+
+    /**
+     * Reads a length-prefixed name (username or password) from the mapping.
+     *
+     * @param at Offset of the length byte.
+     * @return The decoded name.
+     */
+    private String readName(int at) {
+        int length = map.get(at);
+        byte[] bytes = new byte[length];
+        map.get(at + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a length-prefixed name (username or password) into the mapping.
+     *
+     * @param at Offset of the length byte.
+     * @param value The name to write.
+     */
+    private void writeName(int at, String value) {
+        writeName(at, checkName(value));
+    }
+
+    /**
+     * Writes an encoded, already checked name (username or password) into the mapping.
+     *
+     * @param at Offset of the length byte.
+     * @param bytes The encoded name.
+     */
+    private void writeName(int at, byte[] bytes) {
+        map.put(at, (byte) bytes.length);
+        map.put(at + 1, bytes);
+    }
+
+    /**
+     * Encodes a name (username or password) and checks that it fits its field.
+     *
+     * @param value The name.
+     * @return The encoded name.
+     * @throws IllegalArgumentException If the name is too long.
+     */
+    private static byte[] checkName(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("longer than " + MAX_NAME_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes a password and checks that it fits its field.
+     *
+     * @param value The password.
+     * @return The encoded password, at most {@value #MAX_PASSWORD_BYTES} bytes.
+     * @throws IllegalArgumentException If the password is longer than {@value #MAX_PASSWORD_CHARS} characters.
+     */
+    private static byte[] checkPassword(String value) {
+        if (value.length() > MAX_PASSWORD_CHARS) {
+            throw new IllegalArgumentException("longer than " + MAX_PASSWORD_CHARS + " characters");
+        }
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a record's save blob from the overflow file.
+     *
+     * @param base Offset of the record.
+     * @return The save blob, or "None" if the user has no saved game.
+     */
+    private String readBlob(int base) {
+        int length = map.getInt(base + OFF_BLOB_LENGTH);
+        if (length == NO_BLOB) {
+            return "None";
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        try {
+            overflow.read(bytes, map.getLong(base + OFF_BLOB_OFFSET));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return "None";
+        }
+        return new String(bytes.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a record's save blob to the overflow file, in place if it fits the space the record
+     * already owns, otherwise at the end of the file.
+     *
+     * @param base Offset of the record.
+     * @param value The save blob, or "None" for no saved game.
+     * @throws IOException If the overflow file cannot be written.
+     */
+    private void writeBlob(int base, String value) throws IOException {
+        if (value == null || value.equals("None")) {
+            map.putInt(base + OFF_BLOB_LENGTH, NO_BLOB);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long at = map.getLong(base + OFF_BLOB_OFFSET);
+        if (bytes.length > map.getInt(base + OFF_BLOB_CAPACITY)) {
+            int newCapacity = Math.max(256, Integer.highestOneBit(bytes.length) << 1);
+            at = overflow.size();
+            overflow.write(ByteBuffer.allocate(newCapacity), at);
+            map.putLong(base + OFF_BLOB_OFFSET, at).putInt(base + OFF_BLOB_CAPACITY, newCapacity);
+        }
+        overflow.write(ByteBuffer.wrap(bytes), at);
+        map.putInt(base + OFF_BLOB_LENGTH, bytes.length);
+    }
+
+    /**
+     * Asks for the records written so far to be forced to disk by the next group commit.
+     *
+     * @return A future completed once the records are durable.
+     */
+    public CompletableFuture<Void> commit() {
+        if (committer == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return committer.request();
+    }
+
+    /**
+     * Forces every record and save blob to disk right away.
+     */
+    public synchronized void flush() {
+        try {
+            index.force();
+            map.force();
+            overflow.force(false);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forces pending writes and closes the store. It must not be used afterwards.
+     *
+     * @throws IOException If a file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        index.close();
+        channel.close();
+        overflow.close();
+    }
+
+    /**
+     * Converts a CSV user file (with its journal, if any) into a new binary store.
+     * Only the user columns are converted; columns the game does not know are dropped.
+     * Rows whose values do not fit the fixed-width layout are reported and skipped.
+     *
+     * @param csvPath The CSV file to read.
+     * @param binPath The binary store to create. Any existing store at this path is replaced.
+     * @return The number of users converted.
+     * @throws IOException If either file cannot be accessed.
+     */
+    public static int convertFromCsv(Path csvPath, Path binPath) throws IOException {
+        Files.deleteIfExists(binPath);
+        Files.deleteIfExists(Paths.get(binPath + ".overflow"));
+        UserTable table = new UserTable(csvPath, Files.exists(Paths.get(csvPath + ".journal")));
+        int converted = 0;
+        try (BinaryUserStore store = new BinaryUserStore(binPath)) {
+            for (String userName : table.getUserNames()) {
+                // Columns the game does not know have no place in the fixed-width record
+                String[] row = new String[CsvSchema.USERS.width()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = table.getField(userName, i);
+                }
+                if (store.addRow(row)) {
+                    converted++;
+                }
+            }
+        } finally {
+            table.close();
+        }
+        return converted;
+    }
+}
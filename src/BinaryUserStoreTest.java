@@ -0,0 +1,222 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link BinaryUserStore} class, covering in-place record updates,
+ * save blobs in the overflow area, slot reuse and conversion from the CSV format.
+ * Every test works on its own temporary files.
+ */
+public class BinaryUserStoreTest {
+
+    /**
+     * Creates a path for a store that does not exist yet.
+     *
+     * @return A fresh temporary path.
+     * @throws IOException if the temporary file cannot be created.
+     */
+    private static Path freshStore() throws IOException {
+        Path path = Files.createTempFile("users", ".bin");
+        Files.delete(path);
+        return path;
+    }
+
+    /**
+     * Verifies that every column written to a record reads back the same after the store is reopened.
+     *
+     * @throws IOException if the temporary store cannot be written.
+     */
+    @Test
+    public void testRecordsSurviveReopen() throws IOException {
+        Path path = freshStore();
+        try (BinaryUserStore store = new BinaryUserStore(path)) {
+            assertTrue(store.addRow(new String[]{"alice", "secret", "0", "N", "100", "None", "0"}));
+            assertTrue(store.setField("alice", 6, "350"));
+            assertTrue(store.setField("alice", 5, "visitedIndices:1-2;type:Timed"));
+        }
+        try (BinaryUserStore store = new BinaryUserStore(path)) {
+            assertEquals("secret", store.getField("alice", 1));
+            assertEquals("350", store.getField("alice", 6));
+            assertEquals("visitedIndices:1-2;type:Timed", store.getField("alice", 5));
+            assertEquals(100.0f, Float.parseFloat(store.getField("alice", 4)));
+        }
+    }
+
+    /**
+     * Verifies that values which do not fit the fixed-width layout are rejected instead of truncated.
+     *
+     * @throws IOException if the temporary store cannot be written.
+     */
+    @Test
+    public void testRejectsValuesThatDoNotFit() throws IOException {
+        try (BinaryUserStore store = new BinaryUserStore(freshStore())) {
+            store.addRow(new String[]{"bob", "secret", "0", "N", "100", "None", "0"});
+            assertFalse(store.setField("bob", 1, "aPasswordLongerThanSixteen"));
+            assertFalse(store.setField("bob", 6, "not a number"));
+            assertEquals("secret", store.getField("bob", 1));
+            // Any password the game accepts fits, whatever its characters take in UTF-8
+            assertTrue(store.addRow(new String[]{"bobby", "\u00e9\u00e8\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac", "0", "N", "100", "None", "0"}));
+            assertEquals("\u00e9\u00e8\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac\u20ac", store.getField("bobby", 1));
+        }
+    }
+
+    /**
+     * Verifies that a deleted user's slot is reused and the deleted user is gone.
+     *
+     * @throws IOException if the temporary store cannot be written.
+     */
+    @Test
+    public void testDeletedSlotIsReused() throws IOException {
+        Path path = freshStore();
+        try (BinaryUserStore store = new BinaryUserStore(path)) {
+            store.addRow(new String[]{"carol", "secret", "0", "N", "100", "None", "0"});
+            store.addRow(new String[]{"dave", "secret", "0", "N", "100", "None", "0"});
+            assertTrue(store.removeRow("carol"));
+            store.addRow(new String[]{"erin", "secret", "0", "N", "100", "None", "0"});
+        }
+        assertEquals(BinaryUserStore.HEADER_SIZE + 1024L * BinaryUserStore.RECORD_SIZE, Files.size(path));
+        try (BinaryUserStore store = new BinaryUserStore(path)) {
+            assertFalse(store.contains("carol"));
+            assertEquals(2, store.getUserNames().size());
+        }
+    }
+
+    /**
+     * Verifies that a user taking over a deleted slot reuses the overflow space of the deleted user's saved game,
+     * instead of growing the overflow file.
+     *
+     * @throws IOException if the temporary store cannot be written.
+     */
+    @Test
+    public void testReusedSlotKeepsOverflowSpace() throws IOException {
+        Path path = freshStore();
+        Path overflow = Paths.get(path + ".overflow");
+        try (BinaryUserStore store = new BinaryUserStore(path)) {
+            store.addRow(new String[]{"mona", "secret", "0", "N", "100", "1-2-3-4", "0"});
+            long used = Files.size(overflow);
+            assertTrue(used > 0);
+            store.removeRow("mona");
+            store.addRow(new String[]{"nick", "secret", "0", "N", "100", "None", "0"});
+            assertEquals("None", store.getField("nick", 5));
+            store.setField("nick", 5, "5-6-7");
+            assertEquals("5-6-7", store.getField("nick", 5));
+            assertEquals(used, Files.size(overflow));
+        }
+    }
+
+    /**
+     * Verifies that an add rejected for a bad value leaves the free list intact, so the freed slot is
+     * still reused by the next user and no live record is overwritten.
+     *
+     * @throws IOException if the temporary store cannot be written.
+     */
+    @Test
+    public void testFailedAddKeepsFreeList() throws IOException {
+        Path path = freshStore();
+        try (BinaryUserStore store = new BinaryUserStore(path)) {
+            store.addRow(new String[]{"gina", "secret", "1", "N", "100", "None", "10"});
+            store.addRow(new String[]{"hank", "secret", "2", "N", "100", "None", "20"});
+            store.addRow(new String[]{"ivan", "secret", "3", "N", "100", "None", "30"});
+            store.removeRow("gina");
+            assertFalse(store.addRow(new String[]{"jill", "secret", "7", "N", "100", "None", "not a number"}));
+            assertFalse(store.contains("jill"));
+            assertTrue(store.addRow(new String[]{"kate", "secret", "4", "N", "100", "None", "40"}));
+            assertTrue(store.addRow(new String[]{"liam", "secret", "5", "N", "100", "None", "50"}));
+        }
+        try (BinaryUserStore store = new BinaryUserStore(path)) {
+            assertEquals("20", store.getField("hank", 6));
+            assertEquals("30", store.getField("ivan", 6));
+            assertEquals("40", store.getField("kate", 6));
+            assertEquals("50", store.getField("liam", 6));
+            assertEquals(4, store.getUserNames().size());
+            assertEquals("kate", store.getUserNames().get(0));
+        }
+    }
+
+    /**
+     * Verifies that a missing username index is rebuilt from the records when the store opens.
+     *
+     * @throws IOException if the temporary store cannot be written.
+     */
+    @Test
+    public void testMissingIndexIsRebuilt() throws IOException {
+        Path path = freshStore();
+        try (BinaryUserStore store = new BinaryUserStore(path)) {
+            for (int i = 0; i < 200; i++) {
+                store.addRow(new String[]{"user" + i, "secret", "0", "N", "100", "None", String.valueOf(i)});
+            }
+            store.removeRow("user7");
+        }
+        Files.delete(Paths.get(path + ".idx"));
+        try (BinaryUserStore store = new BinaryUserStore(path)) {
+            assertEquals("150", store.getField("user150", 6));
+            assertFalse(store.contains("user7"));
+            assertEquals(199, store.getUserNames().size());
+        }
+    }
+
+    /**
+     * Verifies that the converter carries every user of a CSV file into a binary store.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testConvertFromCsv() throws IOException {
+        Path csv = Files.createTempFile("users", ".csv");
+        Files.write(csv, java.util.List.of(
+                "\"user_name\",\"password\",\"num_games_played\",\"saved_game?\",\"accuracy_rate\",\"listOfCountry\",\"highScore\"",
+                "\"frank\",\"pass\",\"4\",\"N\",\"62.5\",\"None\",\"40\""));
+        Path bin = freshStore();
+        assertEquals(1, BinaryUserStore.convertFromCsv(csv, bin));
+        try (BinaryUserStore store = new BinaryUserStore(bin)) {
+            assertEquals("40", store.getField("frank", 6));
+            assertEquals("4", store.getField("frank", 2));
+            assertEquals("62.5", store.getField("frank", 4));
+        }
+        Files.deleteIfExists(Paths.get(bin + ".overflow"));
+    }
+
+    /**
+     * Verifies that a CSV file with a column the game does not know still converts every user.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testConvertFromCsvWithExtraColumn() throws IOException {
+        Path csv = Files.createTempFile("users", ".csv");
+        Files.write(csv, java.util.List.of(
+                "\"user_name\",\"password\",\"num_games_played\",\"saved_game?\",\"accuracy_rate\",\"listOfCountry\",\"highScore\",\"nickname\"",
+                "\"frank\",\"pass\",\"4\",\"N\",\"62.5\",\"None\",\"40\",\"franky\"",
+                "\"grace\",\"pass\",\"1\",\"N\",\"100\",\"None\",\"15\",\"gg\""));
+        Path bin = freshStore();
+        assertEquals(2, BinaryUserStore.convertFromCsv(csv, bin));
+        try (BinaryUserStore store = new BinaryUserStore(bin)) {
+            assertEquals("40", store.getField("frank", 6));
+            assertEquals("15", store.getField("grace", 6));
+        }
+        Files.deleteIfExists(Paths.get(bin + ".overflow"));
+    }
+
+    /**
+     * Verifies that a whole accuracy rate reads back as the CSV file holds it, without a fraction.
+     *
+     * @throws IOException if the temporary store cannot be written.
+     */
+    @Test
+    public void testWholeAccuracyReadsBackUnchanged() throws IOException {
+        Path path = freshStore();
+        try (BinaryUserStore store = new BinaryUserStore(path)) {
+            assertTrue(store.addRow(new String[]{"alice", "secret", "0", "N", "100", "None", "0"}));
+            assertEquals("100", store.getField("alice", 4));
+            assertEquals("100", store.toMap().get("alice").get("accuracy_rate"));
+            assertTrue(store.setField("alice", 4, "87.25"));
+            assertEquals("87.25", store.getField("alice", 4));
+        }
+        Files.deleteIfExists(Paths.get(path + ".overflow"));
+    }
+}
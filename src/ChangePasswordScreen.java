@@ -76,7 +76,7 @@ public class ChangePasswordScreen extends Screen {
      * Handles the action when the save button is clicked.
      */
     public void loginButton() {
-        String oldDatabasePassword = CsvHandler.getPassword(user.getUsername());
+        String oldDatabasePassword = UserRepository.get().getPassword(user.getUsername());
         if (oldDatabasePassword.equals(oldPassword.getText()) && newPassword.getText().equals(confirmPassword.getText())) {
             user.setPassword(newPassword.getText());
             displayErrorMessage("Password Changed");
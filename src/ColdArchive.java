@@ -0,0 +1,286 @@
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.opencsv.CSVWriter;
+
+/**
+ * Gzip-compressed CSV file ({@code database.csv.cold.gz}) holding the accounts that have not been active
+ * for {@link StorageConfig#COLD_AFTER_DAYS} days, so the hot user store, its journal, compactions and the
+ * leaderboard only deal with players who still play. Accounts are moved here by
+ * {@link CsvHandler#archiveDormantUsers(long)} and moved back by {@link CsvHandler#markActive(String)}
+ * when they log in again. Archived accounts still count as taken usernames and can still log in.
+ *
+ * <p>The archive is read once into memory on first use. It is only rewritten, to a temporary file renamed
+ * into place, by {@link #save()}; a restored account is dropped from memory at once and from the file at the
+ * next save. If the hot store and the archive both hold a user, the hot row wins and the archived one is
+ * dropped at the next save.
+ *
+ * <p>With {@link StorageConfig#SHARED_STORE} other processes may restore or delete archived users too, so a save
+ * takes the {@link SharedFileLock} of the archive, reads the file again and applies only this process's own
+ * changes to it before writing, instead of writing back a stale copy.
+ */
+public class ColdArchive {
+
+    /** The archive shared by the whole process, created on first use. */
+    private static ColdArchive instance;
+
+    /** Location of the archive file. */
+    private final Path path;
+
+    /** Every archived row keyed by username. */
+    private final Map<String, String[]> rows = new LinkedHashMap<>();
+
+    /** Rows added since the last save, to apply again to a file another process changed. */
+    private final Map<String, String[]> added = new LinkedHashMap<>();
+
+    /** Users removed since the last save, to apply again to a file another process changed. */
+    private final Set<String> removed = new HashSet<>();
+
+    /** Set when {@link #rows} differs from the file. */
+    private boolean dirty;
+
+    /** Set when the file exists but could not be read, so it is never overwritten with what was loaded. */
+    private final boolean unreadable;
+
+    /**
+     * Returns the archive next to {@link CsvHandler#filePath}, loading it the first time.
+     *
+     * @return The shared archive.
+     */
+    public static synchronized ColdArchive get() {
+        if (instance == null) {
+            instance = new ColdArchive(Paths.get(CsvHandler.filePath + ".cold.gz"));
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::save, "geocraft-cold-archive-save"));
+        }
+        return instance;
+    }
+
+    /**
+     * Saves the shared archive, if it is open, and drops it so the next {@link #get()} loads the archive
+     * next to {@link CsvHandler#filePath} again. Used by {@link CsvHandler#useFile(Path)}.
+     */
+    static synchronized void reset() {
+        if (instance != null) {
+            instance.save();
+            instance = null;
+        }
+    }
+
+    /**
+     * Saves the shared archive if it has been opened and changed.
+     *
+     * @return true if the archive file matches the archive in memory, or the archive was never opened.
+     */
+    static boolean saveIfOpen() {
+        ColdArchive archive;
+        synchronized (ColdArchive.class) {
+            archive = instance;
+        }
+        return archive == null || archive.save();
+    }
+
+    /**
+     * Starts a daemon thread that archives dormant accounts a minute after startup and then once a day,
+     * unless {@link StorageConfig#COLD_AFTER_DAYS} is 0 or less.
+     */
+    public static void scheduleTiering() {
+        if (StorageConfig.COLD_AFTER_DAYS <= 0) {
+            return;
+        }
+        ScheduledExecutorService tiering = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "geocraft-tiering");
+            thread.setDaemon(true);
+            return thread;
+        });
+        tiering.scheduleWithFixedDelay(() -> {
+            long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(StorageConfig.COLD_AFTER_DAYS);
+            CsvHandler.archiveDormantUsers(cutoff);
+        }, 1, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+    }
+
+    /**
+     * Opens the archive at a path and loads it, if it exists.
+     *
+     * @param path Location of the archive file.
+     */
+    ColdArchive(Path path) {
+        this.path = path;
+        this.unreadable = !read(rows);
+    }
+
+    /**
+     * Loads the archive file, if it exists.
+     *
+     * @param into The map the rows are put in, keyed by username.
+     * @return true if the file was read in full or does not exist, false if it could not be read.
+     */
+    private boolean read(Map<String, String[]> into) {
+        if (!Files.exists(path)) {
+            return true;
+        }
+        try (CsvScanner scanner = new CsvScanner(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(path.toFile())), StandardCharsets.UTF_8))) {
+            scanner.nextRow();
+            String[] row;
+            while ((row = scanner.nextRow()) != null) {
+                into.put(row[0], row);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether a user is archived.
+     *
+     * @param userName The username.
+     * @return true if the archive holds the user.
+     */
+    public synchronized boolean contains(String userName) {
+        return rows.containsKey(userName);
+    }
+
+    /**
+     * Returns an archived user's row.
+     *
+     * @param userName The username.
+     * @return A copy of the row, or null if the user is not archived.
+     */
+    public synchronized String[] getRow(String userName) {
+        String[] row = rows.get(userName);
+        return row == null ? null : row.clone();
+    }
+
+    /**
+     * Returns the number of archived users.
+     *
+     * @return The user count.
+     */
+    public synchronized int size() {
+        return rows.size();
+    }
+
+    /**
+     * Adds rows to the archive and writes it, before the caller removes them from the hot store.
+     *
+     * @param archived The full rows, where index 0 is the username.
+     * @return true if the archive file now holds the rows, false if it could not be written.
+     */
+    public synchronized boolean addAll(Collection<String[]> archived) {
+        for (String[] row : archived) {
+            rows.put(row[0], row.clone());
+            added.put(row[0], row.clone());
+            removed.remove(row[0]);
+        }
+        dirty = true;
+        return save();
+    }
+
+    /**
+     * Drops a user from the archive, after it was restored to the hot store or deleted.
+     *
+     * @param userName The username.
+     */
+    public synchronized void remove(String userName) {
+        if (rows.remove(userName) != null) {
+            added.remove(userName);
+            removed.add(userName);
+            dirty = true;
+        }
+    }
+
+    /**
+     * Drops every archived user that matches a condition, such as being in the hot store as well.
+     *
+     * @param drop Tells whether a username is dropped.
+     */
+    public synchronized void removeIf(Predicate<String> drop) {
+        for (Iterator<String> it = rows.keySet().iterator(); it.hasNext(); ) {
+            String userName = it.next();
+            if (drop.test(userName)) {
+                it.remove();
+                added.remove(userName);
+                removed.add(userName);
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Writes the archive to disk if it changed since it was loaded or last saved.
+     *
+     * @return true if the file matches the archive in memory, false if it could not be written
+     *         or was unreadable when opened, in which case it is left as it is.
+     */
+    public synchronized boolean save() {
+        if (!dirty) {
+            return true;
+        }
+        if (unreadable) {
+            return false;
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        SharedFileLock lock = null;
+        try {
+            if (StorageConfig.SHARED_STORE) {
+                lock = new SharedFileLock(path);
+                lock.lock();
+                // Start from what other processes left in the file, then redo this process's changes
+                Map<String, String[]> current = new LinkedHashMap<>();
+                if (!read(current)) {
+                    return false;
+                }
+                rows.clear();
+                rows.putAll(current);
+                rows.keySet().removeAll(removed);
+                for (String[] row : added.values()) {
+                    rows.put(row[0], row.clone());
+                }
+            }
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(temp.toFile())), StandardCharsets.UTF_8);
+                 CSVWriter csvWriter = new CSVWriter(writer)) {
+                csvWriter.writeNext(CsvHandler.HEADER.clone());
+                csvWriter.writeAll(rows.values());
+            }
+            AtomicFiles.sync(temp);
+            AtomicFiles.replace(temp, path);
+            added.clear();
+            removed.clear();
+            dirty = false;
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (lock != null) {
+                try {
+                    lock.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+}
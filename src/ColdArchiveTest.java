@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ColdArchive} and {@link UserActivity} classes: what they keep survives
+ * reopening them. Each test works in its own temporary folder so it never touches the real database.
+ */
+public class ColdArchiveTest {
+
+    /**
+     * Verifies that archived rows, quoting included, survive a save and reload, and that removed ones do not.
+     *
+     * @throws IOException if the temporary folder cannot be created.
+     */
+    @Test
+    public void testArchiveSurvivesReopening() throws IOException {
+        Path path = Files.createTempDirectory("cold").resolve("database.csv.cold.gz");
+        ColdArchive archive = new ColdArchive(path);
+        assertTrue(archive.addAll(List.of(
+                new String[]{"alice", "secret", "3", "N", "80.0", "None", "12"},
+                new String[]{"bob", "pass,word", "1", "N", "100", "None", "0"})));
+        archive.remove("alice");
+        assertTrue(archive.save());
+
+        ColdArchive reopened = new ColdArchive(path);
+        assertFalse(reopened.contains("alice"));
+        assertArrayEquals(new String[]{"bob", "pass,word", "1", "N", "100", "None", "0"}, reopened.getRow("bob"));
+        reopened.removeIf(userName -> userName.equals("bob"));
+        reopened.save();
+        assertEquals(0, new ColdArchive(path).size());
+    }
+
+    /**
+     * Verifies that an archive file that cannot be read is never overwritten, and that saving reports it.
+     *
+     * @throws IOException if the temporary folder cannot be created.
+     */
+    @Test
+    public void testUnreadableArchiveIsKept() throws IOException {
+        Path path = Files.createTempDirectory("cold").resolve("database.csv.cold.gz");
+        Files.write(path, new byte[]{1, 2, 3});
+        ColdArchive archive = new ColdArchive(path);
+        assertFalse(archive.addAll(List.<String[]>of(new String[]{"carol", "secret", "0", "N", "100", "None", "0"})));
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(path));
+    }
+
+    /**
+     * Verifies that the latest activity of each user is read back, and that forgotten users stay forgotten.
+     *
+     * @throws IOException if the temporary folder cannot be created.
+     */
+    @Test
+    public void testActivityLog() throws IOException {
+        Path path = Files.createTempDirectory("activity").resolve("database.csv.activity");
+        UserActivity activity = new UserActivity(path);
+        activity.touchAll(List.of("carol", "dave"), 1000);
+        activity.touchAll(List.of("carol"), 2000);
+        activity.forget("dave");
+
+        UserActivity reopened = new UserActivity(path);
+        assertEquals(2000, reopened.lastActive("carol"));
+        assertEquals(-1, reopened.lastActive("dave"));
+    }
+}
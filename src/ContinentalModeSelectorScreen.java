@@ -145,6 +145,7 @@ public class ContinentalModeSelectorScreen extends Screen {
      * Handles the action when the logout button is clicked.
      */
     public void logOutButton() {
+        UserRepository.get().flush();
         frame.dispose();
     }
 
@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Every country of {@code geocraftv2country.csv}, read once and never changed afterwards. Lookups by name are a
+ * hash map read, and the countries of each mode and of each continent are listed in arrays built when the
+ * catalog is, so {@link CountryList} and {@link CountryDatabase} no longer parse the file on every call.
+ *
+ * <p>Columns are found through {@link CsvSchema#COUNTRIES}, so a reordered file still reads correctly.
+ * {@link #getNames()} keeps the order of the file; if a name appears twice, lookups see the last row, as
+ * {@link CountryDatabase#readCsvFile()} always did.
+ *
+ * <p>The countries of a mode or continent are listed in the order {@link CountryList} has always dealt them:
+ * the iteration order of a {@link HashMap} of the matching countries, filled from a {@link HashMap} of every
+ * country. {@code GameTesting} saves the countries already asked as positions in that order, so changing it
+ * would make a saved game resume on the wrong countries.
+ */
+public final class CountryCatalog {
+
+    /** Value of a mode column for the countries that are in the mode. */
+    private static final String YES = "Yes";
+
+    /**
+     * Reads the catalog the first time {@link #get()} is called.
+     */
+    private static final class Holder {
+
+        /** The catalog of the bundled country file. */
+        static final CountryCatalog INSTANCE = loadBundled();
+    }
+
+    /** Every country name in file order. */
+    private final String[] names;
+
+    /** The columns of each country other than its name, keyed by header name; each map is unmodifiable. */
+    private final Map<String, Map<String, String>> values;
+
+    /** For every column, the countries whose value is "Yes" in any case, in dealing order. */
+    private final Map<String, String[]> yesByColumn;
+
+    /** For every continent, lower case, the countries in continent mode on it, in dealing order. */
+    private final Map<String, String[]> byContinent;
+
+    /**
+     * Returns the catalog of the bundled country file, reading it the first time.
+     *
+     * @return The shared catalog.
+     */
+    public static CountryCatalog get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Reads the bundled country file from the class path.
+     *
+     * @return The catalog, empty if the file is missing or cannot be read.
+     */
+    private static CountryCatalog loadBundled() {
+        InputStream inputStream = CountryCatalog.class.getClassLoader().getResourceAsStream(CountryDatabase.CSV_FILE_PATH);
+        if (inputStream == null) {
+            System.err.println("Country file " + CountryDatabase.CSV_FILE_PATH + " is missing from the class path");
+            return new CountryCatalog(new String[0][], new String[0]);
+        }
+        return load(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a catalog from CSV text with a header row, and closes the reader.
+     *
+     * @param reader The CSV text.
+     * @return The catalog, holding the rows read so far if the text cannot be read to the end.
+     */
+    static CountryCatalog load(Reader reader) {
+        List<String[]> rows = new ArrayList<>();
+        String[] header = new String[0];
+        try (CsvScanner scanner = new CsvScanner(reader)) {
+            String[] fileHeader = scanner.nextRow();
+            if (fileHeader != null) {
+                CsvSchema.Layout layout = CsvSchema.COUNTRIES.layout(fileHeader);
+                header = layout.header();
+                String[] row;
+                while ((row = scanner.nextRow()) != null) {
+                    rows.add(layout.toSchema(row));
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new CountryCatalog(rows.toArray(new String[0][]), header);
+    }
+
+    /**
+     * Builds the catalog and its indexes from rows in schema order.
+     *
+     * @param rows Every row, with the country name first.
+     * @param header The column names of the rows.
+     */
+    private CountryCatalog(String[][] rows, String[] header) {
+        int nameColumn = CsvSchema.COUNTRIES.indexOf("Country Name");
+        names = new String[rows.length];
+        // Filled in file order, like the map CountryDatabase used to read, so its iteration order is the same
+        Map<String, Map<String, String>> values = new HashMap<>();
+        for (int r = 0; r < rows.length; r++) {
+            String[] row = rows[r];
+            names[r] = row[nameColumn];
+            Map<String, String> countryValues = new LinkedHashMap<>();
+            for (int i = 0; i < Math.min(row.length, header.length); i++) {
+                if (i != nameColumn) {
+                    countryValues.put(header[i], row[i]);
+                }
+            }
+            values.put(row[nameColumn], Collections.unmodifiableMap(countryValues));
+        }
+        Map<String, List<String>> yes = new HashMap<>();
+        Map<String, List<String>> continents = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> country : values.entrySet()) {
+            String name = country.getKey();
+            Map<String, String> countryValues = country.getValue();
+            for (Map.Entry<String, String> column : countryValues.entrySet()) {
+                if (YES.equalsIgnoreCase(column.getValue())) {
+                    yes.computeIfAbsent(column.getKey(), key -> new ArrayList<>()).add(name);
+                }
+            }
+            String continent = countryValues.get("Continent Name");
+            if (YES.equalsIgnoreCase(countryValues.get("Continent Mode")) && continent != null) {
+                continents.computeIfAbsent(continent.toLowerCase(Locale.ROOT), key -> new ArrayList<>()).add(name);
+            }
+        }
+        this.values = Collections.unmodifiableMap(values);
+        this.yesByColumn = toArrays(yes);
+        this.byContinent = toArrays(continents);
+    }
+
+    /**
+     * Freezes lists of names into arrays in dealing order: each list, taken in the iteration order of every
+     * country, is put into a new {@link HashMap} and read back, as the old per-call filters did.
+     *
+     * @param lists The names by key, each in the iteration order of the map of every country.
+     * @return An unmodifiable map of the same names as arrays.
+     */
+    private static Map<String, String[]> toArrays(Map<String, List<String>> lists) {
+        Map<String, String[]> arrays = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : lists.entrySet()) {
+            Map<String, Boolean> filtered = new HashMap<>();
+            for (String name : entry.getValue()) {
+                filtered.put(name, Boolean.TRUE);
+            }
+            arrays.put(entry.getKey(), filtered.keySet().toArray(new String[0]));
+        }
+        return Collections.unmodifiableMap(arrays);
+    }
+
+    /**
+     * Returns the number of countries in the file.
+     *
+     * @return The row count.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns every country name in file order.
+     *
+     * @return A new list of the names.
+     */
+    public ArrayList<String> getNames() {
+        return new ArrayList<>(Arrays.asList(names));
+    }
+
+    /**
+     * Returns the columns of a country other than its name.
+     *
+     * @param name The name of the country.
+     * @return An unmodifiable map from column name to value, or null if there is no such country.
+     */
+    public Map<String, String> getValues(String name) {
+        return values.get(name);
+    }
+
+    /**
+     * Returns one column of a country.
+     *
+     * @param name The name of the country.
+     * @param column The column name.
+     * @return The value, or null if there is no such country or column. The name column itself is not a value.
+     */
+    public String getField(String name, String column) {
+        Map<String, String> countryValues = values.get(name);
+        return countryValues == null ? null : countryValues.get(column);
+    }
+
+    /**
+     * Returns the countries whose column holds "Yes", such as the countries of a game mode.
+     *
+     * @param column The column name, e.g. "Global Mode".
+     * @return A new array of the names in dealing order, empty if none match.
+     */
+    public String[] getNamesWithYes(String column) {
+        String[] matches = yesByColumn.get(column);
+        return matches == null ? new String[0] : matches.clone();
+    }
+
+    /**
+     * Returns the countries in continent mode on a continent.
+     *
+     * @param continent The continent, in any case.
+     * @return A new array of the names in dealing order, empty if none match.
+     */
+    public String[] getContinentNames(String continent) {
+        String[] matches = continent == null ? null : byContinent.get(continent.toLowerCase(Locale.ROOT));
+        return matches == null ? new String[0] : matches.clone();
+    }
+
+    /**
+     * Copies the catalog into the nested map {@link CountryDatabase#readCsvFile()} returns:
+     * country names mapped to their other columns keyed by header name.
+     *
+     * @return A new map holding the catalog's unmodifiable per-country maps.
+     */
+    public Map<String, Map<String, String>> toMap() {
+        return new HashMap<>(values);
+    }
+
+    /**
+     * Copies the countries named in an array into the nested map form.
+     *
+     * @param countryNames The names of the countries.
+     * @return A new map of those countries to their other columns.
+     */
+    Map<String, Map<String, String>> toMap(String[] countryNames) {
+        Map<String, Map<String, String>> map = new HashMap<>();
+        for (String name : countryNames) {
+            map.put(name, values.get(name));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link CountryCatalog} class: lookups by name and the prebuilt lists of each mode and
+ * continent. The catalog is read from text here, so the tests do not depend on the bundled country file.
+ */
+public class CountryCatalogTest {
+
+    /** A small country file with its columns in a different order than the bundled one. */
+    private static final String COUNTRIES = String.join("\n",
+            "\"ID\",\"Country Name\",\"Continent Name\",\"Continent Mode\",\"Global Mode\",\"Micro Nation Mode\",\"Hints\"",
+            "\"1\",\"France\",\"Europe\",\"Yes\",\"Yes\",\"No\",\"Baguettes\"",
+            "\"2\",\"Monaco\",\"Europe\",\"No\",\"No\",\"yes\",\"Casino\"",
+            "\"3\",\"India\",\"Asia\",\"YES\",\"Yes\",\"No\",\"Taj Mahal\"",
+            "\"4\",\"Spain\",\"europe\",\"Yes\",\"Yes\",\"No\",\"Paella\"",
+            "\"5\",\"Brazil\",\"South America\",\"Yes\",\"Yes\",\"No\",\"Samba\"");
+
+    /**
+     * Verifies that columns are found by name and that the name column is not one of a country's values.
+     */
+    @Test
+    public void testLookup() {
+        CountryCatalog catalog = CountryCatalog.load(new StringReader(COUNTRIES));
+        assertEquals(5, catalog.size());
+        assertEquals(List.of("France", "Monaco", "India", "Spain", "Brazil"), catalog.getNames());
+        assertEquals("Asia", catalog.getField("India", "Continent Name"));
+        assertEquals("Taj Mahal", catalog.getField("India", "Hints"));
+        assertNull(catalog.getField("India", "Country Name"));
+        assertNull(catalog.getField("Atlantis", "Hints"));
+        assertThrows(UnsupportedOperationException.class, () -> catalog.getValues("France").put("Hints", "none"));
+    }
+
+    /**
+     * Verifies that each mode and continent lists its countries, ignoring the case of "Yes" and of the
+     * continent name, in the order saved games rely on, and that the returned arrays are copies.
+     */
+    @Test
+    public void testModesAndContinents() {
+        CountryCatalog catalog = CountryCatalog.load(new StringReader(COUNTRIES));
+        // Brazil is last in the file but comes first here
+        assertArrayEquals(dealingOrder("France", "India", "Spain", "Brazil"), catalog.getNamesWithYes("Global Mode"));
+        assertEquals("Brazil", catalog.getNamesWithYes("Global Mode")[0]);
+        assertArrayEquals(new String[]{"Monaco"}, catalog.getNamesWithYes("Micro Nation Mode"));
+        assertArrayEquals(dealingOrder("France", "Spain"), catalog.getContinentNames("EUROPE"));
+        assertEquals(0, catalog.getContinentNames("Oceania").length);
+        assertEquals(0, catalog.getNamesWithYes("Hints").length);
+        catalog.getContinentNames("Europe")[0] = "Atlantis";
+        assertEquals("France", catalog.getContinentNames("Europe")[0]);
+    }
+
+    /**
+     * Orders countries of {@link #COUNTRIES} the way the country lists always have: through a hash map of
+     * every country in file order, then a hash map of the matching ones.
+     *
+     * @param matching The countries that match, in any order.
+     * @return The countries in dealing order.
+     */
+    private static String[] dealingOrder(String... matching) {
+        Map<String, Boolean> all = new HashMap<>();
+        for (String name : List.of("France", "Monaco", "India", "Spain", "Brazil")) {
+            all.put(name, Boolean.TRUE);
+        }
+        Map<String, Boolean> filtered = new HashMap<>();
+        for (String name : all.keySet()) {
+            if (List.of(matching).contains(name)) {
+                filtered.put(name, Boolean.TRUE);
+            }
+        }
+        return filtered.keySet().toArray(new String[0]);
+    }
+}
@@ -20,39 +20,14 @@ public class CountryDatabase {
     /**
      * path of country data csv file
      */
-    private static final String CSV_FILE_PATH = "geocraftv2country.csv";
+    static final String CSV_FILE_PATH = "geocraftv2country.csv";
     static Path filePath = Paths.get(CSV_FILE_PATH);
     /**
-     * Reads the CSV file and returns a map containing country data.
-     * @return An {@link ArrayList} containing the "Country Name" from each row of the CSV file.
+     * Returns every country's data, read from the {@link CountryCatalog} instead of parsing the file again.
+     * @return A new map from each "Country Name" to its other columns, keyed by header name.
      */
     public static Map<String, Map<String, String>> readCsvFile() {
-        Map<String, Map<String, String>> countryDataMap = new HashMap<>();
-
-        try {
-            InputStream inputStream = CountryDatabase.class.getClassLoader().getResourceAsStream("geocraftv2country.csv");
-            BufferedReader reader1 = new BufferedReader(new InputStreamReader(inputStream));
-
-            CSVReaderHeaderAware reader = new CSVReaderHeaderAware(reader1);
-            Map<String, String> row;
-            while ((row = reader.readMap()) != null) {
-                String countryName = row.get("Country Name");
-
-                Map<String, String> countryValues = new HashMap<>();
-                for (Map.Entry<String, String> entry : row.entrySet()) {
-                    if (!entry.getKey().equals("Country Name")) {
-                        countryValues.put(entry.getKey(), entry.getValue());
-                    }
-                }
-
-                countryDataMap.put(countryName, countryValues);
-            }
-            reader.close();
-        } catch (IOException | CsvValidationException e) {
-            e.printStackTrace();
-        }
-
-        return countryDataMap;
+        return CountryCatalog.get().toMap();
     }
 
     /**
@@ -61,21 +36,7 @@ public class CountryDatabase {
      * @return An ArrayList containing the IDs of all countries.
      */
     public static ArrayList<String> getAllCountryIDs() {
-        ArrayList<String> countryIDs = new ArrayList<>();
-        try {
-
-            InputStream inputStream = CountryDatabase.class.getClassLoader().getResourceAsStream("geocraftv2country.csv");
-            BufferedReader reader1 = new BufferedReader(new InputStreamReader(inputStream));
-
-            CSVReaderHeaderAware reader = new CSVReaderHeaderAware(reader1);
-            Map<String, String> row;
-            while ((row = reader.readMap()) != null) {
-                countryIDs.add(row.get("Country Name"));
-            }
-        } catch (CsvValidationException | IOException e) {
-            e.printStackTrace();
-        }
-        return countryIDs;
+        return CountryCatalog.get().getNames();
     }
 
     /**
@@ -86,11 +47,7 @@ public class CountryDatabase {
      * @return The value of the specified field for the given country.
      */
     public static String getField(String name, String fieldName) {
-        Map<String, String> countryValues = readCsvFile().get(name);
-        if (countryValues == null) {
-            return null;
-        }
-        return countryValues.get(fieldName);
+        return CountryCatalog.get().getField(name, fieldName);
     }
 
     /**
@@ -159,7 +116,7 @@ public class CountryDatabase {
      * @param name The name of the country.
      */
     public static void printCountryInfo(String name) {
-        Map<String, String> countryValues = readCsvFile().get(name);
+        Map<String, String> countryValues = CountryCatalog.get().getValues(name);
         if (countryValues == null) {
             System.out.println("Country not found");
             return;
@@ -198,20 +155,8 @@ public class CountryDatabase {
      * @return A map containing countries with the specified column value set to "Yes".
      */
     public static Map<String, Map<String, String>> getCountriesWithColumnYes(String columnName) {
-        Map<String, Map<String, String>> allCountries = readCsvFile();
-        Map<String, Map<String, String>> filteredCountries = new HashMap<>();
-
-        for (Map.Entry<String, Map<String, String>> entry : allCountries.entrySet()) {
-            String countryName = entry.getKey();
-            Map<String, String> countryData = entry.getValue();
-
-            String columnValue = countryData.get(columnName);
-            if (columnValue != null && ("Yes".equalsIgnoreCase(columnValue))) {
-                filteredCountries.put(countryName, countryData);
-            }
-        }
-
-        return filteredCountries;
+        CountryCatalog catalog = CountryCatalog.get();
+        return catalog.toMap(catalog.getNamesWithYes(columnName));
     }
 
     /**
@@ -221,22 +166,8 @@ public class CountryDatabase {
      * @return A map containing countries with the specified continent mode and continent name.
      */
     public static Map<String, Map<String, String>> getCountriesWithContinentModeAndContinent(String continent) {
-        Map<String, Map<String, String>> allCountries = readCsvFile();
-        Map<String, Map<String, String>> filteredCountries = new HashMap<>();
-
-        for (Map.Entry<String, Map<String, String>> entry : allCountries.entrySet()) {
-            String countryName = entry.getKey();
-            Map<String, String> countryData = entry.getValue();
-
-            String continentMode = countryData.get("Continent Mode");
-            String countryContinent = countryData.get("Continent Name");
-
-            if ("Yes".equalsIgnoreCase(continentMode) && continent.equalsIgnoreCase(countryContinent)) {
-                filteredCountries.put(countryName, countryData);
-            }
-        }
-
-        return filteredCountries;
+        CountryCatalog catalog = CountryCatalog.get();
+        return catalog.toMap(catalog.getContinentNames(continent));
     }
     /**
      * Reads a CSV file specified by the {@code CSV_FILE_PATH} constant and extracts the "Country Name" from each row.
@@ -249,29 +180,15 @@ public class CountryDatabase {
      *                                with the CSV structure that prevent it from being read correctly.
      */
     public static ArrayList<String> getAllUsers() throws CsvValidationException{
-        ArrayList<String> Users = new ArrayList<>();
-        try {
-            InputStream inputStream = CountryDatabase.class.getClassLoader().getResourceAsStream("geocraftv2country.csv");
-            BufferedReader reader1 = new BufferedReader(new InputStreamReader(inputStream));
-
-            CSVReaderHeaderAware reader = new CSVReaderHeaderAware(reader1);
-            Map<String, String> row;
-            while ((row = reader.readMap()) != null) {
-                Users.add(row.get("Country Name"));
-
-            }
-        } catch (CsvValidationException | IOException e) {
-            e.printStackTrace();
-        }
-        return Users;
+        return CountryCatalog.get().getNames();
     }
     /**
      * Retrieves the index of a specified field name from a predefined list of headers. This method is useful for
      * identifying the position of a field within a CSV file or similar structured data, given that the headers
      * represent the fields in the data structure.
      *
-     * The headers are as follows: "Country Name", "ID", "Continent Mode", "Continent Name", "Global Mode",
-     * "Micro Nation Mode", and "Hints".
+     * The headers are those of {@link CsvSchema#COUNTRIES}: "Country Name", "ID", "Continent Mode", "Continent Name",
+     * "Global Mode", "Micro Nation Mode", and "Hints".
      *
      * @param fieldName The name of the field for which the index is to be retrieved. This is case-sensitive.
      * @return The 1-based index of the field within the predefined headers. If the field is found, its index
@@ -279,12 +196,7 @@ public class CountryDatabase {
      *         of the field within the headers.
      */
     public static int getIndex(String fieldName) {
-        String[] headers = {"Country Name", "ID", "Continent Mode", "Continent Name", "Global Mode", "Micro Nation Mode", "Hints"};
-        for (int i = 0; i < headers.length; i++) {
-            if (headers[i].equals(fieldName)) {
-                return i + 1; // Add 1 to account for the "user_name" field
-            }
-        }
-        return -1; // Field not found
+        int index = CsvSchema.COUNTRIES.indexOf(fieldName);
+        return index < 0 ? -1 : index + 1;
     }
 }
@@ -1,5 +1,3 @@
-import java.util.Arrays;
-import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -47,8 +45,7 @@ public class CountryList {
      * @return An array of Country objects.
      */
     private static Country[] getGlobalOrMicroCountries(String mode) {
-        Map<String, Map<String, String>> countriesWithGlobalModeYes = CountryDatabase.getCountriesWithColumnYes(mode);
-        return getCountriesFromArray(countriesWithGlobalModeYes);
+        return getCountriesFromArray(CountryCatalog.get().getNamesWithYes(mode));
     }
 
     /**
@@ -58,24 +55,19 @@ public class CountryList {
      * @return An array of Country objects.
      */
     private static Country[] getContinentCountries(String continent) {
-        Map<String, Map<String, String>> countriesW = CountryDatabase.getCountriesWithContinentModeAndContinent(continent);
-        return getCountriesFromArray(countriesW);
+        return getCountriesFromArray(CountryCatalog.get().getContinentNames(continent));
     }
 
     /**
-     * Converts a map of countries to an array of Country objects.
+     * Converts an array of country names, as listed by the {@link CountryCatalog}, to an array of Country objects.
      *
-     * @param countriesWithGlobalModeYes The map containing countries.
+     * @param countryNames The country names.
      * @return An array of Country objects.
      */
-    private static Country[] getCountriesFromArray(Map<String, Map<String, String>> countriesWithGlobalModeYes) {
-        int size = countriesWithGlobalModeYes.size();
-        int index = 0;
-        Country[] array = new Country[size];
-        for (Map.Entry<String, Map<String, String>> entry : countriesWithGlobalModeYes.entrySet()) {
-            String countryName = entry.getKey();
-            Country country = new Country(countryName); // Assuming Country constructor takes country name as argument
-            array[index++] = country;
+    private static Country[] getCountriesFromArray(String[] countryNames) {
+        Country[] array = new Country[countryNames.length];
+        for (int i = 0; i < countryNames.length; i++) {
+            array[i] = new Country(countryNames[i]); // Assuming Country constructor takes country name as argument
         }
         return array;
     }
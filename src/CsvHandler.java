@@ -1,17 +1,21 @@
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
 
 import com.opencsv.*;
-import com.opencsv.exceptions.CsvException;
-import com.opencsv.exceptions.CsvValidationException;
 
 /**
  * This class handles interactions with a CSV file containing user data for a game.
  * It provides methods for reading, updating, and managing user information.
+ * The file is loaded once into the shared {@link UserTable}; reads are answered from memory
+ * and changes are written back to disk in the background. With {@code -Dgeocraft.storage=binary}
+ * the same methods are served by the memory-mapped {@link BinaryUserStore} instead.
+ * Changes to one user are serialized through {@link UserLocks}; deleting a user locks the whole file.
+ * Column changes are handed to the {@link PersistenceQueue} so the caller, usually the Swing event
+ * dispatch thread, never waits for the store; reads see queued values right away.
  */
 public class CsvHandler {
 
@@ -21,41 +25,72 @@ public class CsvHandler {
      * getting the file path
      */
     static Path filePath = Paths.get(CSV_FILE_PATH);
+
+    /** Whether {@link ShardedUserStore} serves the users, or null until {@link #isSharded()} first decides. */
+    private static Boolean sharded;
+
+    /** The header row of the user file, one name per column in file order. */
+    static final String[] HEADER = CsvSchema.USERS.header();
+
+    /**
+     * Returns the row store the static methods of this class read and write,
+     * chosen by {@link StorageConfig#STORAGE} and {@link StorageConfig#USER_SHARDS}.
+     * @return The binary store if binary storage is configured, the sharded store if users are split
+     * into several files, otherwise the in-memory CSV table.
+     */
+    static UserRowStore store() {
+        if (StorageConfig.STORAGE.equals("binary")) {
+            return BinaryUserStore.get();
+        }
+        if (isSharded()) {
+            return ShardedUserStore.get();
+        }
+        return UserTable.get();
+    }
+
+    /**
+     * Points this class at another user file, mainly so tests can work on temporary files.
+     * Every pending change is written and every store and index built from the old file is closed,
+     * so each is built again from the new file the next time it is used. Saved games are not affected,
+     * see {@link SaveSlotStore#useDirectory(Path)}.
+     * @param file The user file to use from now on.
+     */
+    static void useFile(Path file) {
+        UserLocks.exclusive(() -> {
+            PersistenceQueue.reset();
+            UserBloomFilter.reset();
+            ColdArchive.reset();
+            UserActivity.reset();
+            Leaderboard.reset();
+            StatsColumns.reset();
+            ShardedUserStore.reset();
+            UserTable.reset();
+            synchronized (CsvHandler.class) {
+                sharded = null;
+                filePath = file;
+            }
+        });
+    }
+
+    /**
+     * Decides once whether users are split into several files: because more than one shard is configured,
+     * or because they still are from an earlier run and must be moved back into one file.
+     * @return true if {@link ShardedUserStore} serves the users.
+     */
+    private static synchronized boolean isSharded() {
+        if (sharded == null) {
+            sharded = StorageConfig.USER_SHARDS > 1 || ShardedUserStore.isSharded(filePath);
+        }
+        return sharded;
+    }
     /**
      * Reads the CSV file and returns a map containing user data.
      * The map's keys are usernames, and the values are maps of user attributes.
      * @return A map containing user data.
      */
     public static Map<String, Map<String, String>> readCsvFile() {
-        // Initialize the map to store user data
-        Map<String, Map<String, String>> userValuesMap = new HashMap<>();
-
-        try {
-            // Read the CSV file using OpenCSV library
-            CSVReaderHeaderAware reader = new CSVReaderHeaderAware(new FileReader(filePath.toString()));
-            Map<String, String> row;
-            // Iterate over each row in the CSV file
-            while ((row = reader.readMap()) != null) {
-                String userName = row.get("user_name");
-
-                // Create a map to store user attributes
-                Map<String, String> userValues = new HashMap<>();
-                // Iterate over each entry in the row and add it to the user attributes map
-                for (Map.Entry<String, String> entry : row.entrySet()) {
-                    if (!entry.getKey().equals("user_name")) {
-                        userValues.put(entry.getKey(), entry.getValue());
-                    }
-                }
-
-                // Add the user's attributes map to the main user data map
-                userValuesMap.put(userName, userValues);
-            }
-            reader.close();
-        } catch (IOException | CsvValidationException e) {
-            e.printStackTrace();
-        }
-
-        return userValuesMap;
+        awaitQueuedWrites();
+        return store().toMap();
     }
 
     /**
@@ -63,44 +98,34 @@ public class CsvHandler {
      * @return An ArrayList containing all usernames.
      */
     public static ArrayList<String> getAllUsers(){
-        ArrayList<String> Users = new ArrayList<>();
-        try {
-            // Read the CSV file using OpenCSV library
-            CSVReaderHeaderAware reader = new CSVReaderHeaderAware(new FileReader(filePath.toString()));
-            Map<String, String> row;
-            // Iterate over each row in the CSV file
-            while ((row = reader.readMap()) != null) {
-                // Add the username to the list
-                Users.add(row.get("user_name"));
-            }
-        } catch (CsvValidationException | IOException e) {
-            e.printStackTrace();
-        }
-        return Users;
+        return store().getUserNames();
     }
 
     /**
      * Retrieves a list of usernames sorted by their high scores in descending order.
+     * Users with the same score are ordered by username. The order is read from the
+     * {@link Leaderboard}, which is kept sorted as scores change.
      * @return An ArrayList containing usernames sorted by high score.
      */
     public static ArrayList<String> getHighScoreOrder(){
-        ArrayList<String> users = getAllUsers();
-        users.sort((user1, user2) -> {
-            int score1 = Integer.parseInt(getHighScore(user1));
-            int score2 = Integer.parseInt(getHighScore(user2));
-            // For descending order, swap user1 and user2 comparison
-            return Integer.compare(score2, score1);
-        });
-        return users;
+        return Leaderboard.get().userNames();
     }
 
     /**
      * Retrieves the password associated with the specified username.
+     * Accounts moved to the {@link ColdArchive} are answered from there, so they can still log in.
      * @param userName The username to retrieve the password for.
      * @return The password associated with the username.
      */
     public static String getPassword(String userName) {
-        return getField(userName, "password");
+        String password = getField(userName, "password");
+        if (password == null) {
+            String[] archived = ColdArchive.get().getRow(userName);
+            if (archived != null && archived.length > 1) {
+                password = archived[1];
+            }
+        }
+        return password;
     }
 
     /**
@@ -155,11 +180,37 @@ public class CsvHandler {
      * @return The value of the specified field for the user.
      */
     private static String getField(String userName, String fieldName) {
-        Map<String, String> userValues = readCsvFile().get(userName);
-        if (userValues == null) {
-            return null;
+        return getField(userName, getIndex(fieldName));
+    }
+
+    /**
+     * Retrieves one column of the specified user, including a change still waiting in the persistence queue.
+     * @param userName The username to retrieve the column for.
+     * @param index The column index, where 0 is the username.
+     * @return The value of the column, or null if the user does not exist.
+     */
+    private static String getField(String userName, int index) {
+        if (StorageConfig.ASYNC_WRITES) {
+            String queued = PersistenceQueue.get().pendingValue(userName, index);
+            if (queued != null) {
+                return queued;
+            }
+        }
+        return store().getField(userName, index);
+    }
+
+    /**
+     * Retrieves a user's whole row with its numbers already parsed, including changes still waiting
+     * in the persistence queue. Use it instead of several string getters when more than one column is needed.
+     * @param userName The username to retrieve.
+     * @return A copy of the user's record, or null if the user does not exist.
+     */
+    public static PlayerRecord getRecord(String userName) {
+        PlayerRecord record = store().getRecord(userName);
+        if (record != null && StorageConfig.ASYNC_WRITES) {
+            PersistenceQueue.get().applyPending(record);
         }
-        return userValues.get(fieldName);
+        return record;
     }
 
     /**
@@ -213,7 +264,60 @@ public class CsvHandler {
      * @param newHighScore The new high score.
      */
     public static void changeHighScore(String userName, String newHighScore) {
-        changeFieldValue(userName, "highScore", newHighScore);
+        UserLocks.withUser(userName, () -> {
+            if (writeField(userName, getIndex("highScore"), newHighScore)) {
+                Leaderboard.get().update(userName, newHighScore);
+            }
+        });
+    }
+
+    /**
+     * Reads a user's row, lets the mutator change it, and saves every changed column, all under the user's lock.
+     * No other change to the user can land between the read and the write, and with asynchronous writes
+     * the changed columns are queued together so readers never see only some of them.
+     * With synchronous writes the columns are only saved if the row is still at the version that was read;
+     * if another process sharing the file changed it in between, the row is read again and the mutator
+     * runs again on the new values, so it may be called more than once.
+     * @param userName The username of the user to update.
+     * @param mutator Changes the record; if it throws, nothing is saved.
+     * @return true if the user exists and was updated, otherwise false.
+     */
+    public static boolean updateUser(String userName, Consumer<PlayerRecord> mutator) {
+        return UserLocks.withUser(userName, () -> {
+            while (true) {
+                PlayerRecord record = getRecord(userName);
+                if (record == null) {
+                    return false;
+                }
+                String[] before = record.toRow();
+                mutator.accept(record);
+                String[] after = record.toRow();
+                int changed = 0;
+                int[] indices = new int[after.length];
+                String[] values = new String[after.length];
+                for (int i = 1; i < after.length; i++) {
+                    if (!Objects.equals(before[i], after[i])) {
+                        indices[changed] = i;
+                        values[changed++] = after[i];
+                    }
+                }
+                if (changed == 0) {
+                    return true;
+                }
+                if (StorageConfig.ASYNC_WRITES) {
+                    PersistenceQueue.get().submitAll(userName, Arrays.copyOf(indices, changed), Arrays.copyOf(values, changed));
+                } else if (!store().setFieldsIfVersion(userName, record.getVersion(),
+                        Arrays.copyOf(indices, changed), Arrays.copyOf(values, changed))) {
+                    // The row changed since it was read, or was removed; start over from what is stored now
+                    continue;
+                }
+                StatsColumns.changed(record);
+                if (!Objects.equals(before[PlayerRecord.HIGH_SCORE], after[PlayerRecord.HIGH_SCORE])) {
+                    Leaderboard.get().update(userName, after[PlayerRecord.HIGH_SCORE]);
+                }
+                return true;
+            }
+        });
     }
 
     /**
@@ -223,49 +327,48 @@ public class CsvHandler {
      * @param newValue The new value for the field.
      */
     private static void changeFieldValue(String userName, String fieldName, String newValue) {
-        try {
-            // Read all lines from the CSV file
-            CSVReader reader = new CSVReader(new FileReader(filePath.toString()));
-            List<String[]> lines = reader.readAll();
-            reader.close();
-
+        UserLocks.withUser(userName, () -> writeField(userName, getIndex(fieldName), newValue));
+    }
 
-            if(!Files.exists(filePath)) {
-                newFile(filePath);
+    /**
+     * Writes one column of an existing user, through the persistence queue unless asynchronous writes are off.
+     * @param userName The username whose row is changed.
+     * @param index The column index, where 0 is the username.
+     * @param newValue The new value of the column.
+     * @return true if the user exists and the change was accepted, otherwise false.
+     */
+    private static boolean writeField(String userName, int index, String newValue) {
+        if (!StorageConfig.ASYNC_WRITES) {
+            if (!store().setField(userName, index, newValue)) {
+                return false;
             }
-
-            // Open the CSV file in write mode
-            FileWriter writer = new FileWriter(filePath.toString(), false);
-            CSVWriter csvWriter = new CSVWriter(writer);
-
-            // Iterate over each line in the CSV file
-            for (String[] line : lines) {
-                // If the username matches, update the specified field
-                if (line[0].equals(userName)) {
-                    line[getIndex(fieldName)] = newValue;
-                }
-                // Write the updated line to the CSV file
-                csvWriter.writeNext(line);
+        } else {
+            if (!store().contains(userName)) {
+                return false;
             }
-            csvWriter.close();
-        } catch (IOException | CsvException e) {
-            e.printStackTrace();
+            PersistenceQueue.get().submit(userName, index, newValue);
+        }
+        StatsColumns.changed(userName, index, newValue);
+        return true;
+    }
+
+    /**
+     * Waits until every queued column change is in the store, for reads that bypass the queue.
+     */
+    private static void awaitQueuedWrites() {
+        if (StorageConfig.ASYNC_WRITES) {
+            PersistenceQueue.get().awaitDrained();
         }
     }
 
     /**
      * Retrieves the index of a field in the CSV file's header row.
      * @param fieldName The name of the field.
-     * @return The index of the field in the header row.
+     * @return The index of the field in the header row, or -1 if the field is not found or is the username.
      */
     private static int getIndex(String fieldName) {
-        String[] headers = {"password", "num_games_played", "saved_game?", "accuracy_rate", "listOfCountry", "highScore"};
-        for (int i = 0; i < headers.length; i++) {
-            if (headers[i].equals(fieldName)) {
-                return i + 1; // Add 1 to account for the "user_name" field
-            }
-        }
-        return -1; // Field not found
+        int index = CsvSchema.USERS.indexOf(fieldName);
+        return index == PlayerRecord.USER_NAME ? -1 : index;
     }
 
     /**
@@ -273,7 +376,8 @@ public class CsvHandler {
      * @param userName The username to print the values for.
      */
     public static void printUserValues(String userName) {
-        Map<String, String> userValues = readCsvFile().get(userName);
+        awaitQueuedWrites();
+        Map<String, String> userValues = store().toMap().get(userName);
         if (userValues == null) {
             System.out.println("User not found.");
             return;
@@ -304,67 +408,106 @@ public class CsvHandler {
     }
 
     /**
-     * Deletes the user with the specified username from the CSV file.
+     * Deletes the user with the specified username from the CSV file, or from the {@link ColdArchive}
+     * if the account was archived, together with the user's saved game, so a new account taking the
+     * name does not resume it.
      * @param userName The username of the user to delete.
      */
     public static void deleteUser(String userName) {
-        try {
-            // Read all lines from the CSV file
-            CSVReader reader = new CSVReader(new FileReader(filePath.toString()));
-            List<String[]> lines = reader.readAll();
-            reader.close();
+        UserLocks.exclusive(() -> {
+            // No one can queue a change while the exclusive lock is held, so none can land after the removal
+            awaitQueuedWrites();
+            if (store().removeRow(userName)) {
+                Leaderboard.get().remove(userName);
+                StatsColumns.removed(userName);
+            }
+            ColdArchive.get().remove(userName);
+            UserActivity.get().forget(userName);
+            SaveSlotStore.get().clear(userName);
+        });
+    }
 
+    /**
+     * Records that a user just logged in, first moving the account back from the {@link ColdArchive}
+     * into the store if it was archived, with its leaderboard entry and stats.
+     * @param userName The username that logged in.
+     */
+    public static void markActive(String userName) {
+        ColdArchive archive = ColdArchive.get();
+        String[] archived = archive.getRow(userName);
+        if (archived != null) {
+            UserLocks.withUser(userName, () -> {
+                if (StorageConfig.USER_BLOOM_FILTER) {
+                    UserBloomFilter.get().add(userName);
+                }
+                if (store().addRow(archived)) {
+                    PlayerRecord record = PlayerRecord.parse(archived);
+                    Leaderboard.get().update(userName, record.getColumn(PlayerRecord.HIGH_SCORE));
+                    StatsColumns.changed(record);
+                }
+                archive.remove(userName);
+            });
+        }
+        UserActivity.get().touch(userName);
+    }
 
-            if(!Files.exists(filePath)) {
-                newFile(filePath);
+    /**
+     * Moves every account not active since a time from the store into the {@link ColdArchive}.
+     * The archive is written before any account leaves the store, so a crash can leave an account in both
+     * places but never in neither; the copy in the store wins and the archived one is dropped next time.
+     * Runs under the exclusive {@link UserLocks} lock, so no change to a moved account is lost.
+     * Does nothing for a {@link StorageConfig#SHARED_STORE}.
+     * @param cutoffMillis Accounts last active before this time, in milliseconds since the epoch, are moved.
+     * @return The number of accounts moved.
+     */
+    public static int archiveDormantUsers(long cutoffMillis) {
+        if (StorageConfig.SHARED_STORE) {
+            // Other processes keep their own activity, so a user active there could look dormant here
+            return 0;
+        }
+        ColdArchive archive = ColdArchive.get();
+        UserActivity activity = UserActivity.get();
+        return UserLocks.exclusive(() -> {
+            awaitQueuedWrites();
+            archive.removeIf(userName -> store().contains(userName));
+            List<String[]> dormant = new ArrayList<>();
+            for (String userName : store().getUserNames()) {
+                long lastActive = activity.lastActive(userName);
+                if (lastActive >= 0 && lastActive < cutoffMillis) {
+                    PlayerRecord record = getRecord(userName);
+                    if (record != null) {
+                        dormant.add(record.toRow());
+                    }
+                }
             }
-            // Open the CSV file in write mode
-            FileWriter writer = new FileWriter(filePath.toString(), false);
-            CSVWriter csvWriter = new CSVWriter(writer);
-
-            // Iterate over each line in the CSV file
-            for (String[] line : lines) {
-                // If the username does not match, write the line to the new CSV file
-                if (!line[0].equals(userName)) {
-                    csvWriter.writeNext(line);
+            if (!archive.addAll(dormant)) {
+                return 0;
+            }
+            for (String[] row : dormant) {
+                if (store().removeRow(row[0])) {
+                    Leaderboard.get().remove(row[0]);
+                    StatsColumns.removed(row[0]);
                 }
             }
-            csvWriter.close();
-        } catch (IOException | CsvException e) {
-            e.printStackTrace();
-        }
+            return dormant.size();
+        });
     }
 
     /**
      * Checks if a user with the specified username already exists.
+     * Accounts in the {@link ColdArchive} count as existing. Other names the {@link UserBloomFilter}
+     * has never seen are answered without looking at the store, unless {@link StorageConfig#USER_BLOOM_FILTER} is off.
      * @param userName The username to check.
      * @return true if the user exists, otherwise false.
      */
     public static boolean isDuplicateUser(String userName) {
-        try {
-
-            // Read all lines from the CSV file
-            if(!Files.exists(filePath)) {
-                newFile(filePath);
-            }
-            BufferedReader reader1 = new BufferedReader(new FileReader(filePath.toString()));
-//            InputStreamReader isr = new InputStreamReader(
-//                    filePath, StandardCharsets.UTF_8);
-            CSVReader reader = new CSVReader(reader1);
-            List<String[]> lines = reader.readAll();
-            reader.close();
-
-            // Iterate over each line in the CSV file
-            for (String[] line : lines) {
-                // If the username matches, return true
-                if (line[0].equals(userName)) {
-                    return true; // User already exists
-                }
-            }
-        } catch (IOException | CsvException e) {
-            e.printStackTrace();
+        if (ColdArchive.get().contains(userName)) {
+            return true;
+        }
+        if (StorageConfig.USER_BLOOM_FILTER && !UserBloomFilter.get().mightContain(userName)) {
+            return false;
         }
-        return false; // User does not exist
+        return store().contains(userName);
     }
 
     /**
@@ -377,13 +520,7 @@ public class CsvHandler {
         if (isDuplicateUser(userName)) {
             return "User already exists.";
         }
-        if ((userName.length() > 16 || userName.length() < 4) || (password.length() > 16 || password.length() < 4)) {
-            System.out.println(userName.isEmpty());
-            return "password and username must be between 4-16 characters";
-        } else if (!userName.matches("^[a-zA-Z0-9]+$")) {
-            return "password and username must only contain alphanumeric characters";
-        }
-        return "ok";
+        return UserRepository.checkFormat(userName, password);
     }
 
     /**
@@ -393,48 +530,53 @@ public class CsvHandler {
      * @return A string indicating whether the user addition was successful or the reason for failure.
      */
     public static String addUser(String userName, String password) {
-        if (isDuplicateUser(userName)) {
-            return "User already exists.";
-        }
-        if((userName.length() > 16 || userName.length() < 4) || (password.length() > 16 || password.length() < 4)){
-            System.out.println(userName.isEmpty());
-            return "password and username must be between 4-16 characters";
-        }
-        else if(!userName.matches("^[a-zA-Z0-9]+$")){
-            return "password and username must only contain alphanumeric characters";
+        String check = credentialChecker(userName, password);
+        if (!check.equals("ok")) {
+            return check;
         }
         else {
-            try {
-                // Open the CSV file in append mode to add a new entry
-
-
-
-                if(!Files.exists(filePath)) {
-                    newFile(filePath);
+            // Start from the default value of every column, then set the username and password
+            String[] newUser = CsvSchema.USERS.newRow();
+            newUser[PlayerRecord.USER_NAME] = userName;
+            newUser[PlayerRecord.PASSWORD] = password;
+            // Add the new user's data to the store, it is committed to disk in the background
+            String result = UserLocks.withUser(userName, () -> {
+                if (StorageConfig.USER_BLOOM_FILTER) {
+                    // Added before the row so the filter never answers "not registered" for a stored user
+                    UserBloomFilter.get().add(userName);
+                }
+                if (!store().addRow(newUser)) {
+                    // A store can also refuse a row whose values do not fit it, which is not a duplicate
+                    return store().contains(userName) ? "User already exists." : "The account could not be saved, please try again.";
                 }
-                FileWriter writer = new FileWriter(filePath.toString(), true);
-
-                CSVWriter csvWriter = new CSVWriter(writer);
-
-                // Create an array for the new user's data
-                String[] newUser = new String[]{"user_name", "password", "num_games_played", "saved_game?", "accuracy_rate", "listOfCountry", "highScore"};
-                // Set the username, password, and default values for other attributes
-                newUser[0] = userName;
-                newUser[1] = password;
-                newUser[2] = "0";
-                newUser[3] = "N";
-                newUser[4] = "100";
-                newUser[5] = "None";
-                newUser[6] = "0";
-                // Write the new user's data to the CSV file
-                csvWriter.writeNext(newUser);
-                csvWriter.close();
+                Leaderboard.get().update(userName, 0);
+                StatsColumns.changed(PlayerRecord.parse(newUser));
                 return "APPROVED";
-            } catch (IOException e) {
-                e.printStackTrace();
-                return "Unknown error occurred";
+            });
+            if (StorageConfig.USER_BLOOM_FILTER && UserBloomFilter.get().isFull()) {
+                UserBloomFilter.rebuildIfOpen();
+            }
+            if (result.equals("APPROVED")) {
+                UserActivity.get().touch(userName);
             }
+            return result;
+        }
+    }
+
+    /**
+     * Makes every pending change durable right away, instead of waiting for the background writer and commit.
+     * Blocks until the queued changes, saved games included, are written.
+     *
+     * @return true if every change was written, false if a saved game, archived user or queued change was lost.
+     */
+    public static boolean flush() {
+        boolean written = SaveSlotStore.get().flush();
+        written &= ColdArchive.saveIfOpen();
+        if (StorageConfig.ASYNC_WRITES) {
+            return PersistenceQueue.get().flush() && written;
         }
+        store().flush();
+        return written;
     }
 
     /**
@@ -451,8 +593,7 @@ public class CsvHandler {
         FileWriter writer = new FileWriter(filePath.toString(), true);
 
         CSVWriter csvWriter = new CSVWriter(writer);
-        String[] firstLine = {"user_name","password","num_games_played","saved_game?","accuracy_rate","listOfCountry","highScore"};
-        csvWriter.writeNext(firstLine);
+        csvWriter.writeNext(CsvSchema.USERS.header());
         writer.close();
 
     }
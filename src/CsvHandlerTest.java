@@ -1,4 +1,13 @@
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -9,6 +18,46 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 public class CsvHandlerTest {
 
+    /** Temporary folder holding the user file and saves of the current test, or null if it uses the real ones. */
+    private Path tempDir;
+
+    /** The user file {@link CsvHandler} used before the current test switched to {@link #tempDir}. */
+    private Path realFile;
+
+    /**
+     * Points {@link CsvHandler} and the {@link SaveSlotStore} at a new temporary folder for the current test,
+     * so it starts from an empty user file and never touches {@code database.csv} or the saves folder.
+     *
+     * @throws IOException if the temporary folder cannot be created.
+     */
+    private void useTempFiles() throws IOException {
+        tempDir = Files.createTempDirectory("csvhandler");
+        realFile = CsvHandler.filePath;
+        CsvHandler.useFile(tempDir.resolve("database.csv"));
+        SaveSlotStore.useDirectory(tempDir.resolve("saves"));
+    }
+
+    /**
+     * Points {@link CsvHandler} and the {@link SaveSlotStore} back at the real files after a test that used
+     * temporary ones, and deletes the temporary folder.
+     *
+     * @throws IOException if the temporary folder cannot be deleted.
+     */
+    @AfterEach
+    public void restoreFiles() throws IOException {
+        if (tempDir == null) {
+            return;
+        }
+        CsvHandler.useFile(realFile);
+        SaveSlotStore.useDirectory(Paths.get(StorageConfig.SAVE_DIR));
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+        tempDir = null;
+    }
+
     /**
      * Tests the addition of a new user. It verifies that the user is correctly added by
      * checking if the newly added user is marked as a duplicate, indicating successful insertion.
@@ -72,4 +121,47 @@ public class CsvHandlerTest {
     }
 
 
+
+    /**
+     * Tests that an update reads the row, changes several columns in one step and leaves
+     * untouched columns alone, and that updating a missing user does nothing. Works on a temporary user file.
+     *
+     * @throws IOException if the temporary files cannot be created or deleted.
+     */
+    @Test
+    public void testUpdateUser() throws IOException {
+        useTempFiles();
+        CsvHandler.addUser("updateUser1", "testPassword");
+        CsvHandler.changeNumGamesPlayed("updateUser1", "2");
+        boolean updated = CsvHandler.updateUser("updateUser1", record -> {
+            record.setNumGamesPlayed(record.getNumGamesPlayed() + 1);
+            record.setAccuracyRate(50f);
+            record.setHighScore(record.getHighScore() + 30);
+        });
+        assertTrue(updated);
+        assertEquals("3", CsvHandler.getNumGamesPlayed("updateUser1"));
+        assertEquals("50.0", CsvHandler.getAccuracyRate("updateUser1"));
+        assertEquals("30", CsvHandler.getHighScore("updateUser1"));
+        assertEquals("testPassword", CsvHandler.getPassword("updateUser1"));
+        assertEquals(Integer.valueOf(30), Leaderboard.get().getScore("updateUser1"));
+        assertFalse(CsvHandler.updateUser("noSuchUser1", record -> record.setHighScore(1)));
+    }
+
+    /**
+     * Tests that deleting a user also removes the user's saved game, so an account created
+     * later under the same name starts without it. Works on temporary files.
+     *
+     * @throws IOException if the temporary files cannot be created or deleted.
+     */
+    @Test
+    public void testDeleteUserClearsSave() throws IOException {
+        useTempFiles();
+        CsvHandler.addUser("deleteUser1", "testPassword");
+        SaveSlotStore.get().save("deleteUser1", "session");
+        CsvHandler.deleteUser("deleteUser1");
+        assertFalse(CsvHandler.isDuplicateUser("deleteUser1"));
+        SaveSlotStore.get().flush();
+        assertEquals(SaveSlotStore.NO_SAVE, SaveSlotStore.get().load("deleteUser1"));
+        assertFalse(Files.exists(SaveSlotStore.get().pathFor("deleteUser1")));
+    }
 }
@@ -0,0 +1,233 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Streaming CSV reader for the game's own files that does not build a map, or any other object, per row.
+ * Characters are read into one reusable buffer and each field is handed to a {@link FieldVisitor} as a
+ * slice of a reusable {@code char[]}; callers that need strings can fill a reusable column array instead.
+ *
+ * <p>It reads what opencsv's {@code CSVWriter} writes with its defaults: fields separated by commas,
+ * optionally wrapped in double quotes, quotes inside a quoted field doubled, and line breaks allowed
+ * inside quotes. Rows may end in {@code \n} or {@code \r\n}. Unlike opencsv's reader a backslash is an
+ * ordinary character, which is how {@code CSVWriter} writes it. Blank lines and a leading byte order mark are skipped.
+ */
+public final class CsvScanner implements Closeable {
+
+    /**
+     * Receives the fields of one row.
+     */
+    public interface FieldVisitor {
+        /**
+         * Called once per field, in column order. The characters are only valid during the call.
+         *
+         * @param column The column index, starting at 0.
+         * @param chars Buffer holding the field.
+         * @param offset Index of the field's first character in {@code chars}.
+         * @param length Number of characters in the field.
+         */
+        void field(int column, char[] chars, int offset, int length);
+    }
+
+    /** End of input. */
+    private static final int EOF = -1;
+
+    /** Where characters come from. */
+    private final Reader in;
+
+    /** Characters read from {@link #in} and not consumed yet, between {@link #position} and {@link #limit}. */
+    private final char[] buffer;
+
+    /** Index of the next unread character in {@link #buffer}. */
+    private int position;
+
+    /** Number of valid characters in {@link #buffer}. */
+    private int limit;
+
+    /** Unescaped characters of the field being read, reused for every field. */
+    private char[] field = new char[128];
+
+    /** Number of characters in {@link #field}. */
+    private int fieldLength;
+
+    /** Whether any row has been read, so a byte order mark is only skipped at the start. */
+    private boolean started;
+
+    /** Reusable array for {@link #nextRow()}. */
+    private String[] scratch = new String[8];
+
+    /**
+     * Creates a scanner with a 64 KiB buffer.
+     *
+     * @param in Where the CSV text is read from.
+     */
+    public CsvScanner(Reader in) {
+        this(in, 64 * 1024);
+    }
+
+    /**
+     * Creates a scanner.
+     *
+     * @param in Where the CSV text is read from.
+     * @param bufferSize Number of characters read at a time.
+     */
+    CsvScanner(Reader in, int bufferSize) {
+        this.in = in;
+        this.buffer = new char[Math.max(16, bufferSize)];
+    }
+
+    /**
+     * Reads the next row and passes its fields to a visitor.
+     *
+     * @param visitor Receives the fields.
+     * @return The number of fields in the row, or -1 at the end of the input.
+     * @throws IOException If the input cannot be read.
+     */
+    public int nextRow(FieldVisitor visitor) throws IOException {
+        int c = read();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                c = read();
+            }
+        }
+        while (c == '\n' || c == '\r') {
+            c = read();
+        }
+        if (c == EOF) {
+            return -1;
+        }
+        int column = 0;
+        while (true) {
+            fieldLength = 0;
+            if (c == '"') {
+                while (true) {
+                    c = read();
+                    if (c == EOF) {
+                        break;
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c != '"') {
+                            break;
+                        }
+                    }
+                    append((char) c);
+                }
+            }
+            // Unquoted field, or anything between a closing quote and the next separator
+            while (c != ',' && c != '\n' && c != '\r' && c != EOF) {
+                append((char) c);
+                c = read();
+            }
+            visitor.field(column++, field, 0, fieldLength);
+            if (c != ',') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                return column;
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * Reads the next row into a column array, which can be reused from row to row.
+     * Fields beyond the end of the array are skipped; columns the row does not have are left untouched.
+     *
+     * @param columns Receives the fields.
+     * @return The number of fields in the row, which may be more than the array holds, or -1 at the end of the input.
+     * @throws IOException If the input cannot be read.
+     */
+    public int nextRow(String[] columns) throws IOException {
+        return nextRow((column, chars, offset, length) -> {
+            if (column < columns.length) {
+                columns[column] = new String(chars, offset, length);
+            }
+        });
+    }
+
+    /**
+     * Reads the next row into a new array sized to the row, for callers that keep the rows.
+     *
+     * @return The fields of the row, or null at the end of the input.
+     * @throws IOException If the input cannot be read.
+     */
+    public String[] nextRow() throws IOException {
+        int count = nextRow((column, chars, offset, length) -> {
+            if (column == scratch.length) {
+                scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            }
+            scratch[column] = new String(chars, offset, length);
+        });
+        return count < 0 ? null : Arrays.copyOf(scratch, count);
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws IOException If the reader cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Consumes the next character.
+     *
+     * @return The character, or {@link #EOF}.
+     * @throws IOException If the input cannot be read.
+     */
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position++];
+    }
+
+    /**
+     * Returns the next character without consuming it.
+     *
+     * @return The character, or {@link #EOF}.
+     * @throws IOException If the input cannot be read.
+     */
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return EOF;
+        }
+        return buffer[position];
+    }
+
+    /**
+     * Refills the buffer once it has been consumed.
+     *
+     * @return false at the end of the input.
+     * @throws IOException If the input cannot be read.
+     */
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    /**
+     * Adds one character to the field being read, growing the field buffer when needed.
+     *
+     * @param c The character.
+     */
+    private void append(char c) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = c;
+    }
+}
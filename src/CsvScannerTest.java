@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.opencsv.CSVWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link CsvScanner} class: reading back what {@code CSVWriter} writes, including quotes,
+ * separators and line breaks inside fields, and the plain unquoted form of the country file.
+ */
+public class CsvScannerTest {
+
+    /**
+     * Reads every row of some CSV text with a deliberately small buffer so fields straddle refills.
+     *
+     * @param text The CSV text.
+     * @return The rows.
+     * @throws IOException never, the text is in memory.
+     */
+    private static List<String[]> readAll(String text) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (CsvScanner scanner = new CsvScanner(new StringReader(text), 16)) {
+            String[] row;
+            while ((row = scanner.nextRow()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Verifies that rows written by {@code CSVWriter} come back unchanged.
+     *
+     * @throws IOException never, the text is in memory.
+     */
+    @Test
+    public void testReadsCsvWriterOutput() throws IOException {
+        String[][] written = {
+                CsvHandler.HEADER,
+                {"alice", "pass1", "3", "N", "85.5", "None", "120"},
+                {"bob", "say \"hi\", ok", "", "Y", "line one\nline two", "C:\\saves\\bob", "0"},
+                {"", "", ""},
+        };
+        StringWriter out = new StringWriter();
+        try (CSVWriter writer = new CSVWriter(out)) {
+            for (String[] row : written) {
+                writer.writeNext(row);
+            }
+        }
+
+        List<String[]> read = readAll(out.toString());
+
+        assertEquals(written.length, read.size());
+        for (int i = 0; i < written.length; i++) {
+            assertArrayEquals(written[i], read.get(i));
+        }
+    }
+
+    /**
+     * Verifies unquoted fields, CRLF line endings, blank lines and a leading byte order mark.
+     *
+     * @throws IOException never, the text is in memory.
+     */
+    @Test
+    public void testReadsPlainCsv() throws IOException {
+        List<String[]> read = readAll("\uFEFFCountry Name,ID\r\nCanada,CA\r\n\r\nFrance,\n");
+
+        assertEquals(3, read.size());
+        assertArrayEquals(new String[]{"Country Name", "ID"}, read.get(0));
+        assertArrayEquals(new String[]{"Canada", "CA"}, read.get(1));
+        assertArrayEquals(new String[]{"France", ""}, read.get(2));
+    }
+
+    /**
+     * Verifies that a reused column array is filled per row and that extra fields are counted but not stored.
+     *
+     * @throws IOException never, the text is in memory.
+     */
+    @Test
+    public void testFillsReusedColumnArray() throws IOException {
+        try (CsvScanner scanner = new CsvScanner(new StringReader("a,b\nc,d,e\n"))) {
+            String[] columns = new String[2];
+
+            assertEquals(2, scanner.nextRow(columns));
+            assertArrayEquals(new String[]{"a", "b"}, columns);
+            assertEquals(3, scanner.nextRow(columns));
+            assertArrayEquals(new String[]{"c", "d"}, columns);
+            assertEquals(-1, scanner.nextRow(columns));
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The columns of a CSV file and the value each one takes when a row does not have it. Column positions are
+ * looked up by name in a map built once, instead of searching a header array on every read or write.
+ *
+ * <p>A file written under an older list of columns keeps being readable: {@link #layout(String[])} resolves
+ * where each column sits in the file's own header, once when the file is opened, and rows are read through it.
+ * Columns added at the end of the schema are not written into old rows straight away; a row that lacks them is
+ * widened with the defaults by {@link #upgrade(String[])} the next time it is changed, so adding a column never
+ * rewrites every user at once. Columns a file has that the schema does not know are kept after the known ones.
+ */
+public final class CsvSchema {
+
+    /** The columns of the user file, see {@link PlayerRecord} for their indices. */
+    public static final CsvSchema USERS = new CsvSchema(
+            new String[]{"user_name", "password", "num_games_played", "saved_game?", "accuracy_rate", "listOfCountry", "highScore"},
+            new String[]{"", "", "0", "N", "100", "None", "0"});
+
+    /** The columns of the country file read by {@link CountryDatabase}. */
+    public static final CsvSchema COUNTRIES = new CsvSchema(
+            new String[]{"Country Name", "ID", "Continent Mode", "Continent Name", "Global Mode", "Micro Nation Mode", "Hints"},
+            new String[]{"", "", "", "", "", "", ""});
+
+    /**
+     * Where the columns of a schema sit in one file, resolved once from the file's header.
+     */
+    public static final class Layout {
+
+        /** For each column written, its index in the file's rows; null when the file already uses the schema order. */
+        private final int[] source;
+
+        /** Defaults for the columns written, used where the file has no such column. */
+        private final String[] defaults;
+
+        /** The header to write the rows back under. */
+        private final String[] header;
+
+        /**
+         * Creates a layout.
+         *
+         * @param source For each column written, its index in the file, or -1; null when no reordering is needed.
+         * @param defaults The value of each column written where the file does not have it.
+         * @param header The header to write the rows back under.
+         */
+        private Layout(int[] source, String[] defaults, String[] header) {
+            this.source = source;
+            this.defaults = defaults;
+            this.header = header;
+        }
+
+        /**
+         * Returns the header rows read through this layout are written back under:
+         * the schema's columns followed by any columns of the file the schema does not know.
+         *
+         * @return A copy of the header.
+         */
+        public String[] header() {
+            return header.clone();
+        }
+
+        /**
+         * Checks whether rows are read as they are, without moving columns.
+         *
+         * @return true if the file's columns are the schema's, or a prefix of them, in order.
+         */
+        public boolean isInOrder() {
+            return source == null;
+        }
+
+        /**
+         * Puts a row of the file into schema order. A file that is in order hands back the same array, still
+         * lacking any columns it was written without; these are added when the row is next changed.
+         *
+         * @param row A row as read from the file.
+         * @return The row in schema order.
+         */
+        public String[] toSchema(String[] row) {
+            if (source == null) {
+                return row;
+            }
+            String[] ordered = new String[source.length];
+            for (int i = 0; i < source.length; i++) {
+                int from = source[i];
+                ordered[i] = from >= 0 && from < row.length ? row[from] : defaults[i];
+            }
+            return ordered;
+        }
+    }
+
+    /** Column names in order. */
+    private final String[] columns;
+
+    /** Value of each column for a row that does not have it. */
+    private final String[] defaults;
+
+    /** Index of each column by name. */
+    private final Map<String, Integer> index = new HashMap<>();
+
+    /**
+     * Creates a schema.
+     *
+     * @param columns Column names in order.
+     * @param defaults The value of each column for a row that does not have it.
+     */
+    CsvSchema(String[] columns, String[] defaults) {
+        if (columns.length != defaults.length) {
+            throw new IllegalArgumentException("Every column needs a default");
+        }
+        this.columns = columns.clone();
+        this.defaults = defaults.clone();
+        for (int i = 0; i < columns.length; i++) {
+            index.put(columns[i], i);
+        }
+    }
+
+    /**
+     * Returns the index of a column.
+     *
+     * @param column The column name, case-sensitive.
+     * @return The index, or -1 if the schema has no such column.
+     */
+    public int indexOf(String column) {
+        Integer i = index.get(column);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return The column count.
+     */
+    public int width() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the header row of a file written under this schema.
+     *
+     * @return A copy of the column names.
+     */
+    public String[] header() {
+        return columns.clone();
+    }
+
+    /**
+     * Returns a row holding every column's default, for the caller to fill in.
+     *
+     * @return A new row.
+     */
+    public String[] newRow() {
+        return defaults.clone();
+    }
+
+    /**
+     * Widens a row written before the schema's last columns were added, filling them with their defaults.
+     *
+     * @param row A row in schema order.
+     * @return The same row if it already has every column, otherwise a widened copy.
+     */
+    public String[] upgrade(String[] row) {
+        if (row.length >= columns.length) {
+            return row;
+        }
+        String[] upgraded = Arrays.copyOf(row, columns.length);
+        System.arraycopy(defaults, row.length, upgraded, row.length, columns.length - row.length);
+        return upgraded;
+    }
+
+    /**
+     * Resolves where this schema's columns sit in a file, from the file's header.
+     *
+     * @param fileHeader The header row of the file, or null for an empty file.
+     * @return The layout to read the file's rows through.
+     */
+    public Layout layout(String[] fileHeader) {
+        if (fileHeader == null) {
+            return new Layout(null, defaults, header());
+        }
+        boolean inOrder = true;
+        for (int i = 0; i < Math.min(fileHeader.length, columns.length); i++) {
+            inOrder &= fileHeader[i].equals(columns[i]);
+        }
+        if (inOrder) {
+            // Same columns, possibly with some missing at the end or unknown ones after them
+            String[] header = fileHeader.length >= columns.length ? fileHeader.clone() : header();
+            return new Layout(null, defaults, header);
+        }
+        List<String> header = new ArrayList<>(Arrays.asList(columns));
+        List<Integer> source = new ArrayList<>();
+        Map<String, Integer> inFile = new HashMap<>();
+        for (int i = 0; i < fileHeader.length; i++) {
+            inFile.putIfAbsent(fileHeader[i], i);
+        }
+        for (String column : columns) {
+            source.add(inFile.getOrDefault(column, -1));
+        }
+        for (int i = 0; i < fileHeader.length; i++) {
+            if (!index.containsKey(fileHeader[i])) {
+                header.add(fileHeader[i]);
+                source.add(i);
+            }
+        }
+        String[] allDefaults = Arrays.copyOf(defaults, source.size());
+        Arrays.fill(allDefaults, columns.length, allDefaults.length, "");
+        return new Layout(source.stream().mapToInt(Integer::intValue).toArray(), allDefaults, header.toArray(new String[0]));
+    }
+}
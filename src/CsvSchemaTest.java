@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link CsvSchema} class: resolving columns from a file's header, and reading user files
+ * written under older columns without rewriting them. Each test works in its own temporary folder.
+ */
+public class CsvSchemaTest {
+
+    /**
+     * Verifies that columns are found by name, and that a reordered header with an unknown column is read
+     * into schema order with defaults for the missing columns and the unknown one kept at the end.
+     */
+    @Test
+    public void testLayout() {
+        assertEquals(PlayerRecord.HIGH_SCORE, CsvSchema.USERS.indexOf("highScore"));
+        assertEquals(-1, CsvSchema.USERS.indexOf("email"));
+
+        CsvSchema.Layout layout = CsvSchema.USERS.layout(new String[]{"password", "user_name", "email", "highScore"});
+        assertFalse(layout.isInOrder());
+        assertArrayEquals(new String[]{"user_name", "password", "num_games_played", "saved_game?", "accuracy_rate",
+                "listOfCountry", "highScore", "email"}, layout.header());
+        assertArrayEquals(new String[]{"bob", "secret", "0", "N", "100", "None", "42", "bob@example.com"},
+                layout.toSchema(new String[]{"secret", "bob", "bob@example.com", "42"}));
+
+        CsvSchema.Layout older = CsvSchema.USERS.layout(new String[]{"user_name", "password", "num_games_played"});
+        assertTrue(older.isInOrder());
+        assertArrayEquals(CsvSchema.USERS.header(), older.header());
+        String[] row = {"carol", "pw", "3"};
+        assertSame(row, older.toSchema(row));
+        assertArrayEquals(new String[]{"carol", "pw", "3", "N", "100", "None", "0"}, CsvSchema.USERS.upgrade(row));
+    }
+
+    /**
+     * Verifies that a user file written before the high score column existed is read with the default
+     * score, and that only a row that is changed gains the column.
+     *
+     * @throws IOException if the temporary files cannot be created.
+     */
+    @Test
+    public void testOldRowsUpgradeWhenWritten() throws IOException {
+        Path data = Files.createTempDirectory("schema").resolve("database.csv");
+        Files.write(data, List.of(
+                "\"user_name\",\"password\",\"num_games_played\",\"saved_game?\",\"accuracy_rate\",\"listOfCountry\"",
+                "\"alice\",\"secret\",\"2\",\"N\",\"50.0\",\"None\"",
+                "\"bob\",\"secret\",\"4\",\"N\",\"75.0\",\"None\""));
+        UserTable table = new UserTable(data, false);
+        assertEquals("0", table.getField("alice", PlayerRecord.HIGH_SCORE));
+        assertEquals(0, table.getRecord("bob").getHighScore());
+        assertTrue(table.setField("alice", PlayerRecord.HIGH_SCORE, "90"));
+        table.close();
+
+        List<String> lines = Files.readAllLines(data);
+        assertEquals("\"user_name\",\"password\",\"num_games_played\",\"saved_game?\",\"accuracy_rate\",\"listOfCountry\",\"highScore\"",
+                lines.get(0));
+        assertEquals("\"bob\",\"secret\",\"4\",\"N\",\"75.0\",\"None\"", lines.get(2));
+        UserTable reopened = new UserTable(data, false);
+        assertEquals("90", reopened.getField("alice", PlayerRecord.HIGH_SCORE));
+        assertEquals("0", reopened.getField("bob", PlayerRecord.HIGH_SCORE));
+        reopened.close();
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link UserRepository} backed by {@code database.csv} through the static methods of {@link CsvHandler},
+ * with the in-memory {@link Leaderboard} answering leaderboard reads. This is the default backend.
+ */
+public class CsvUserRepository implements UserRepository {
+
+    @Override
+    public String addUser(String userName, String password) {
+        return CsvHandler.addUser(userName, password);
+    }
+
+    @Override
+    public String credentialChecker(String userName, String password) {
+        return CsvHandler.credentialChecker(userName, password);
+    }
+
+    @Override
+    public boolean isDuplicateUser(String userName) {
+        return CsvHandler.isDuplicateUser(userName);
+    }
+
+    @Override
+    public void markActive(String userName) {
+        CsvHandler.markActive(userName);
+    }
+
+    @Override
+    public String getPassword(String userName) {
+        return CsvHandler.getPassword(userName);
+    }
+
+    @Override
+    public String getNumGamesPlayed(String userName) {
+        return CsvHandler.getNumGamesPlayed(userName);
+    }
+
+    @Override
+    public String getAccuracyRate(String userName) {
+        return CsvHandler.getAccuracyRate(userName);
+    }
+
+    @Override
+    public String getListOfCountry(String userName) {
+        return CsvHandler.getListOfCountry(userName);
+    }
+
+    @Override
+    public String getHighScore(String userName) {
+        return CsvHandler.getHighScore(userName);
+    }
+
+    @Override
+    public void changePassword(String userName, String newPassword) {
+        CsvHandler.changePassword(userName, newPassword);
+    }
+
+    @Override
+    public void changeNumGamesPlayed(String userName, String newNumGamesPlayed) {
+        CsvHandler.changeNumGamesPlayed(userName, newNumGamesPlayed);
+    }
+
+    @Override
+    public void changeAccuracyRate(String userName, String newAccuracyRate) {
+        CsvHandler.changeAccuracyRate(userName, newAccuracyRate);
+    }
+
+    @Override
+    public void changeListOfCountry(String userName, String newListOfCountry) {
+        CsvHandler.changeListOfCountry(userName, newListOfCountry);
+    }
+
+    @Override
+    public void changeHighScore(String userName, String newHighScore) {
+        CsvHandler.changeHighScore(userName, newHighScore);
+    }
+
+    @Override
+    public PlayerRecord getRecord(String userName) {
+        return CsvHandler.getRecord(userName);
+    }
+
+    @Override
+    public boolean updateUser(String userName, Consumer<PlayerRecord> mutator) {
+        return CsvHandler.updateUser(userName, mutator);
+    }
+
+    @Override
+    public ArrayList<String> getAllUsers() {
+        return CsvHandler.getAllUsers();
+    }
+
+    @Override
+    public ArrayList<String> getHighScoreOrder() {
+        return CsvHandler.getHighScoreOrder();
+    }
+
+    @Override
+    public List<Leaderboard.Entry> getHighScorePage(int offset, int limit) {
+        return Leaderboard.get().page(offset, limit);
+    }
+
+    @Override
+    public Leaderboard.Snapshot getLeaderboardSnapshot() {
+        return Leaderboard.get().snapshot();
+    }
+
+    @Override
+    public List<Leaderboard.Entry> searchUsers(String prefix, int limit) {
+        return Leaderboard.get().search(prefix, limit);
+    }
+
+    @Override
+    public int countUsers() {
+        return Leaderboard.get().size();
+    }
+
+    @Override
+    public int countUsersAbove(int score) {
+        return RankService.get().countAbove(score);
+    }
+
+    @Override
+    public void deleteUser(String userName) {
+        CsvHandler.deleteUser(userName);
+    }
+
+    @Override
+    public boolean flush() {
+        return CsvHandler.flush();
+    }
+}
@@ -132,6 +132,7 @@ public class ExitScreen extends Screen {
      * exiting the application.
      */
     public void yesButton() {
+        UserRepository.get().flush();
         frame.dispose();
     }
 
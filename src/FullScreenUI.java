@@ -28,6 +28,7 @@ public class FullScreenUI extends JFrame {
             @Override
             public void windowClosing(WindowEvent e) {
                 // Perform any shutdown processes here
+                UserRepository.get().flush();
                 System.exit(0);
             }
         });
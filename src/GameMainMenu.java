@@ -103,13 +103,14 @@ public class GameMainMenu extends Screen {
      * Handles the action when the Continue button is clicked.
      */
     public void continue_Button() {
-        if(!user.getGameData().equals("None")) {
-            String type = user.getGameData().split(";")[1].split(":")[1];
-            String mode = user.getGameData().split(";")[2].split(":")[1];
-            String continent = user.getGameData().split(";")[3].split(":")[1];
+        String gameData = user.getGameData();
+        if(!gameData.equals("None")) {
+            String type = gameData.split(";")[1].split(":")[1];
+            String mode = gameData.split(";")[2].split(":")[1];
+            String continent = gameData.split(";")[3].split(":")[1];
 
             GameTesting game = new GameTesting(frame, user, mode, continent, type);
-            game.loadFile(user.getGameData());
+            game.loadFile(gameData);
         }
         else {
             this.displayErrorMessage("You have no saved game available");
@@ -134,6 +135,7 @@ public class GameMainMenu extends Screen {
      * Handles the action when the Log Out button is clicked.
      */
     public void logOutButton() {
+        UserRepository.get().flush();
         frame.dispose();
     }
 
@@ -345,7 +345,7 @@ public class GameTesting implements Serializable {
      * Saves the current game state to a file or persistent storage.
      */
     public void saveFile(){
-        CsvHandler.changeListOfCountry(user.getUsername(),this.toString());
+        user.setGameData(this.toString());
     }
 
     /**
@@ -457,13 +457,21 @@ public class GameTesting implements Serializable {
             totalPercentage = ((float) correctGuesses/(float) numGuesses)*100;
         }
 
-        totalPercentage += user.getNumGames() * (user.getAccuracy());
+        float gamePercentage = totalPercentage;
+        // Read and update the running stats as one step so another save cannot slip in between
+        UserRepository.get().updateUser(user.getUsername(), record -> {
+            int numGames = record.getNumGamesPlayed();
+            float total = gamePercentage + numGames * record.getAccuracyRate();
 
-        user.setAccuracy((totalPercentage/ (user.getNumGames()+1)));
+            record.setAccuracyRate(total / (numGames + 1));
 
-        user.setNumGames(user.getNumGames() + 1);
+            record.setNumGamesPlayed(numGames + 1);
+        });
 
 
+        // The game is over, so make sure its results are on disk before showing them
+        UserRepository.get().flush();
+
         frame.setContentPane(new StatScreen(frame, null, user));
     }
 
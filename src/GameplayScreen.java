@@ -196,7 +196,7 @@ public class GameplayScreen extends Screen {
             highScoreLabel.setForeground(Color.RED);
             highScoreLabel.setText("High Score: " + highscore + "  -" + 2);
             setTimer();
-            user.setHighScore(highscore);
+            user.addToHighScore(-2);
         }
         showFlagButton.setEnabled(false);
         flagWasClicked = true;
@@ -216,7 +216,7 @@ public class GameplayScreen extends Screen {
             highScoreLabel.setForeground(Color.BLACK);
             highScoreLabel.setText("High Score: " + highscore + "  -" + 2);
             setTimer();
-            user.setHighScore(highscore);
+            user.addToHighScore(-2);
         }
         showHintButton.setEnabled(false);
         hintWasClicked = true;
@@ -314,7 +314,7 @@ public class GameplayScreen extends Screen {
             highscore = highscore + highScoreWinAmount;
             highScoreLabel.setForeground(Color.green);
             highScoreLabel.setText("High Score: " + highscore + "  +" + highScoreWinAmount);
-            user.setHighScore(highscore);
+            user.addToHighScore(highScoreWinAmount);
             disableChoiceButtons();
             scoreUpdateTimer = new Timer(1000, e -> gameTesting.newGame(false    ));
             scoreUpdateTimer.setRepeats(false);
@@ -326,7 +326,7 @@ public class GameplayScreen extends Screen {
             highScoreLabel.setText("High Score: " + highscore + "  -" + highScoreLossAmount);
             choiceButton.setEnabled(false);
             setTimer();
-            user.setHighScore(highscore);
+            user.addToHighScore(-highScoreLossAmount);
 
         }
 
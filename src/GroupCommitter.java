@@ -0,0 +1,69 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups commit requests that arrive within a short window into one physical commit.
+ * The first request of a group schedules the commit {@code windowMillis} later; every
+ * request made before it runs joins the same group and is completed by the same commit,
+ * so a burst of saves costs one fsync instead of one per save.
+ */
+public class GroupCommitter {
+
+    /** The physical commit, for example forcing the journal to disk. */
+    private final Runnable commit;
+
+    /** Thread the commits run on. */
+    private final ScheduledExecutorService executor;
+
+    /** How long the first request of a group waits for others to join it. */
+    private final long windowMillis;
+
+    /** Completed when the currently open group has been committed, or null if no group is open. */
+    private CompletableFuture<Void> pending;
+
+    /**
+     * Creates a committer.
+     *
+     * @param commit The physical commit to run once per group.
+     * @param executor Thread the commits run on.
+     * @param windowMillis How long a group stays open after its first request.
+     */
+    public GroupCommitter(Runnable commit, ScheduledExecutorService executor, long windowMillis) {
+        this.commit = commit;
+        this.executor = executor;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Asks for everything written so far to be committed.
+     * Does not block; wait on the returned future to know when the data is durable.
+     *
+     * @return A future completed once the group this request joined has been committed.
+     */
+    public synchronized CompletableFuture<Void> request() {
+        if (pending == null) {
+            pending = new CompletableFuture<>();
+            executor.schedule(this::runGroup, windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return pending;
+    }
+
+    /**
+     * Closes the open group, runs the physical commit, and completes every request of the group.
+     * Requests that arrive while the commit runs start the next group.
+     */
+    private void runGroup() {
+        CompletableFuture<Void> group;
+        synchronized (this) {
+            group = pending;
+            pending = null;
+        }
+        try {
+            commit.run();
+            group.complete(null);
+        } catch (RuntimeException e) {
+            group.completeExceptionally(e);
+        }
+    }
+}
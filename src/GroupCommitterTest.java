@@ -0,0 +1,96 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link GroupCommitter} class, checking that requests made within one window
+ * share a single commit and that a failed commit is reported to every request of its group.
+ */
+public class GroupCommitterTest {
+
+    /**
+     * Verifies that requests made at the same time from several threads are completed by one commit,
+     * and that a request made after that commit starts a new one. The commit thread is held busy until
+     * every request is made, so the group cannot be committed early however the threads are scheduled.
+     *
+     * @throws Exception if a thread is interrupted or a commit fails.
+     */
+    @Test
+    public void testConcurrentRequestsShareOneCommit() throws Exception {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicInteger commits = new AtomicInteger();
+        GroupCommitter committer = new GroupCommitter(commits::incrementAndGet, executor, 0);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                CompletableFuture<Void> request = committer.request();
+                synchronized (requests) {
+                    requests.add(request);
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(workers.length, requests.size());
+        for (CompletableFuture<Void> request : requests) {
+            assertSame(requests.get(0), request);
+        }
+        assertEquals(0, commits.get());
+
+        release.countDown();
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(1, commits.get());
+
+        committer.request().get(5, TimeUnit.SECONDS);
+        assertEquals(2, commits.get());
+        executor.shutdown();
+    }
+
+    /**
+     * Verifies that every request of a group sees the exception of a failed commit.
+     *
+     * @throws InterruptedException if waiting is interrupted.
+     */
+    @Test
+    public void testFailedCommitFailsEveryRequest() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        GroupCommitter committer = new GroupCommitter(() -> {
+            throw new IllegalStateException("disk gone");
+        }, executor, 50);
+        CompletableFuture<Void> first = committer.request();
+        CompletableFuture<Void> second = committer.request();
+        assertSame(first, second);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
@@ -1,22 +1,36 @@
 import javax.imageio.ImageIO;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The HighScoreScreen class represents the user interface for displaying high scores.
  * It displays a list of players along with their high scores and ranks.
- * Users can navigate through the high score pages using the "Previous" and "Next" buttons.
+ * Users can navigate through the high score pages using the "Previous" and "Next" buttons,
+ * or type the start of a username to find players anywhere on the board.
  */
 public class HighScoreScreen extends Screen {
 
     /**
-     * A list of user identifiers or names. This ArrayList is used to store the names
-     * or unique identifiers of all players relevant to the current context or screen.
+     * The leaderboard snapshot being paged through. Next and previous pages reuse it, so every page
+     * comes from the same moment and nothing is sorted again.
      */
-    ArrayList<String> users;
+    Leaderboard.Snapshot snapshot;
+
+    /**
+     * The leaderboard entries shown on this page, each holding a username and its high score.
+     */
+    List<Leaderboard.Entry> entries;
+
+    /**
+     * The total number of players on the leaderboard, used to decide whether there is a next page.
+     */
+    int totalPlayers;
 
     /**
      * A list of JLabel components, each representing a player in the UI.
@@ -25,6 +39,53 @@ public class HighScoreScreen extends Screen {
      */
     ArrayList<JLabel> playerList;
 
+    /**
+     * The high score label of each row, next to the matching label in {@link #playerList}.
+     */
+    ArrayList<JLabel> scoreList;
+
+    /**
+     * The rank label of each row, next to the matching label in {@link #playerList}.
+     */
+    ArrayList<JLabel> rankList;
+
+    /**
+     * The rank of each entry in {@link #entries} by high score, so players with the same score share a rank.
+     * Page ranks are read from {@link #snapshot} like the rows; search ranks are counted live, as {@link Player#getRank()} does.
+     */
+    int[] ranks;
+
+    /**
+     * Column header over {@link #rankList}.
+     */
+    JLabel rankHeader;
+
+    /**
+     * Column header over {@link #playerList}.
+     */
+    JLabel usernameHeader;
+
+    /**
+     * Column header over {@link #scoreList}.
+     */
+    JLabel highScoreHeader;
+
+    /**
+     * Text field for finding players by the start of their username. Every keystroke replaces the
+     * rows with the matching players and their ranks; clearing it shows the current page again.
+     */
+    JTextField search;
+
+    /**
+     * Button that shows the previous page, hidden on the first page and while searching.
+     */
+    JButton previousButton;
+
+    /**
+     * Button that shows the next page, hidden on the last page and while searching.
+     */
+    JButton nextButton;
+
     /**
      * Tracks the current page number in a paginated display. This is particularly useful
      * in screens that list players or other content that exceeds the space available for display,
@@ -44,6 +105,16 @@ public class HighScoreScreen extends Screen {
      */
     Image plankIMG;
 
+    /**
+     * Placeholder shown in the {@link #search} field while it is empty.
+     */
+    private static final String SEARCH_PLACEHOLDER = "Search Username";
+
+    /**
+     * Number of players shown at once, on a page or as search results.
+     */
+    private static final int ROWS = 7;
+
 
     /**
      * Constructs a HighScoreScreen object with the specified frame, page number, and previous screen.
@@ -53,15 +124,86 @@ public class HighScoreScreen extends Screen {
      * @param previous The previous Screen object to return to when navigating back.
      */
     public HighScoreScreen(FullScreenUI frame, int page, Screen previous) {
+        this(frame, page, previous, UserRepository.get().getLeaderboardSnapshot());
+    }
+
+    /**
+     * Constructs a HighScoreScreen object showing one page of a given leaderboard snapshot.
+     *
+     * @param frame    The FullScreenUI frame that contains this screen.
+     * @param page     The current page number of high scores.
+     * @param previous The previous Screen object to return to when navigating back.
+     * @param snapshot The leaderboard snapshot to page through.
+     */
+    HighScoreScreen(FullScreenUI frame, int page, Screen previous, Leaderboard.Snapshot snapshot) {
         super(frame, previous);
         this.prev = previous;
         this.page = page;
-        users = CsvHandler.getHighScoreOrder();
+        this.snapshot = snapshot;
+        totalPlayers = snapshot.size();
         playerList = new ArrayList<>();
-        for (int i = this.page * 7; i < (this.page + 1) * 7; i++) {
-            if (!(i >= users.size())) {
-                playerList.add(new JLabel(users.get(i)));
+        scoreList = new ArrayList<>();
+        rankList = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            playerList.add(new JLabel());
+            scoreList.add(new JLabel());
+            rankList.add(new JLabel());
+        }
+        rankHeader = new JLabel("RANK");
+        usernameHeader = new JLabel("USERNAME");
+        highScoreHeader = new JLabel("HIGHSCORE");
+        showPage();
+
+        search = new JTextField(SEARCH_PLACEHOLDER, 16);
+        search.setOpaque(false);
+        search.setBorder(BorderFactory.createMatteBorder(0, 0, 2, 0, Color.BLACK));
+        search.setForeground(Color.BLACK);
+        setFocusListeners(search, SEARCH_PLACEHOLDER);
+        search.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                search(search.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                search(search.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                search(search.getText());
             }
+        });
+        previousButton = new JButton("Previous");
+        nextButton = new JButton("Next");
+        nextButton.addActionListener(e -> next());
+        previousButton.addActionListener(e -> previous());
+
+        // Set fonts for labels
+        usernameHeader.setFont(new Font("SansSerif", Font.BOLD, 24));
+        highScoreHeader.setFont(new Font("SansSerif", Font.BOLD, 24));
+        rankHeader.setFont(new Font("SansSerif", Font.BOLD, 24));
+        search.setFont(new Font("SansSerif", Font.BOLD, 24));
+        for (int i = 0; i < ROWS; i++) {
+            playerList.get(i).setFont(new Font("SansSerif", Font.BOLD, 24));
+            scoreList.get(i).setFont(new Font("SansSerif", Font.BOLD, 24));
+            rankList.get(i).setFont(new Font("SansSerif", Font.BOLD, 24));
+            playerList.get(i).setForeground(Color.BLACK);
+            scoreList.get(i).setForeground(Color.BLACK);
+        }
+
+        // Add components to the panel once, so repaints never take focus away from the search field
+        this.add(rankHeader);
+        this.add(highScoreHeader);
+        this.add(usernameHeader);
+        this.add(search);
+        this.add(previousButton);
+        this.add(nextButton);
+        for (int i = 0; i < ROWS; i++) {
+            this.add(rankList.get(i));
+            this.add(scoreList.get(i));
+            this.add(playerList.get(i));
         }
         try {
             plankIMG = ImageIO.read(getClass().getResourceAsStream("/plank.png"));
@@ -71,7 +213,55 @@ public class HighScoreScreen extends Screen {
     }
 
     /**
-     * Sets the layout and components of the high score screen.
+     * Shows the current page of the snapshot.
+     */
+    void showPage() {
+        entries = snapshot.page(this.page * ROWS, ROWS);
+        ranks = new int[entries.size()];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = snapshot.rankAt(this.page * ROWS + i);
+        }
+    }
+
+    /**
+     * Fills {@link #ranks} for search results, which come from the live leaderboard:
+     * one more than the number of players with a higher score now.
+     */
+    private void rankEntries() {
+        UserRepository users = UserRepository.get();
+        ranks = new int[entries.size()];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = users.countUsersAbove(entries.get(i).getScore()) + 1;
+        }
+    }
+
+    /**
+     * Shows the players whose username starts with a prefix, each with its rank by high score,
+     * or the current page again when the prefix is empty.
+     *
+     * @param prefix The text typed in the search field.
+     */
+    void search(String prefix) {
+        if (prefix.isEmpty() || prefix.equals(SEARCH_PLACEHOLDER)) {
+            showPage();
+        } else {
+            entries = UserRepository.get().searchUsers(prefix, ROWS);
+            rankEntries();
+        }
+        repaint();
+    }
+
+    /**
+     * Checks whether the rows show search results rather than a page.
+     *
+     * @return true while the search field holds a prefix.
+     */
+    boolean isSearching() {
+        return search != null && !search.getText().isEmpty() && !search.getText().equals(SEARCH_PLACEHOLDER);
+    }
+
+    /**
+     * Lays out the components added in the constructor and fills the player rows.
      */
     public void setComponents() {
         int width = getWidth();
@@ -80,25 +270,15 @@ public class HighScoreScreen extends Screen {
         int mainButtonY = height / 4;
         int mainButtonYIncrement = height / 10;
         int mainButtonXIncrement = width / 4;
-        JButton previous = new JButton("Previous");
-        JButton next = new JButton("Next");
         Image scaledImage = plankIMG.getScaledInstance(width / 5, height / 12, Image.SCALE_SMOOTH);
-        createButtons(previous, scaledImage, width / 60);
-        createButtons(next, scaledImage, width / 60);
-
-        JLabel highScore = new JLabel("HIGHSCORE");
-        JLabel rank = new JLabel("RANK");
-        JLabel username = new JLabel("USERNAME");
-
-        // Set fonts for labels
-        username.setFont(new Font("SansSerif", Font.BOLD, 24));
-        highScore.setFont(new Font("SansSerif", Font.BOLD, 24));
-        rank.setFont(new Font("SansSerif", Font.BOLD, 24));
+        createButtons(previousButton, scaledImage, width / 60);
+        createButtons(nextButton, scaledImage, width / 60);
 
         // Set bounds for labels
-        username.setBounds(mainButtonX, mainButtonY - mainButtonYIncrement, width / 5, height / 12);
-        highScore.setBounds(mainButtonX + mainButtonXIncrement, mainButtonY - mainButtonYIncrement, width / 5, height / 12);
-        rank.setBounds(mainButtonX - mainButtonXIncrement / 2, mainButtonY - mainButtonYIncrement, width / 5, height / 12);
+        usernameHeader.setBounds(mainButtonX, mainButtonY - mainButtonYIncrement, width / 5, height / 12);
+        highScoreHeader.setBounds(mainButtonX + mainButtonXIncrement, mainButtonY - mainButtonYIncrement, width / 5, height / 12);
+        rankHeader.setBounds(mainButtonX - mainButtonXIncrement / 2, mainButtonY - mainButtonYIncrement, width / 5, height / 12);
+        search.setBounds(mainButtonX, mainButtonY - mainButtonYIncrement * 2, width / 5, height / 20);
 
         // Set bounds for navigation buttons
         int buttonWidth = width / 12;
@@ -106,45 +286,30 @@ public class HighScoreScreen extends Screen {
         int padding = 20;
         int nextX = width - buttonWidth - padding;
         int previousX = nextX - buttonWidth - padding;
-        previous.setBounds(previousX, height - buttonHeight - padding, buttonWidth, buttonHeight);
-        next.setBounds(nextX, height - buttonHeight - padding, buttonWidth, buttonHeight);
-
-        // Add action listeners to navigation buttons
-        next.addActionListener(e -> next());
-        previous.addActionListener(e -> previous());
-
-        // Add components to the panel
-        this.add(rank);
-        this.add(highScore);
-        this.add(username);
-        if (this.page != 0) {
-            this.add(previous);
-        }
-        if ((this.page + 1) * 7 < users.size()) {
-            this.add(next);
-        }
+        previousButton.setBounds(previousX, height - buttonHeight - padding, buttonWidth, buttonHeight);
+        nextButton.setBounds(nextX, height - buttonHeight - padding, buttonWidth, buttonHeight);
 
-        // Add player information labels to the panel
+        previousButton.setVisible(!isSearching() && this.page != 0);
+        nextButton.setVisible(!isSearching() && (this.page + 1) * ROWS < totalPlayers);
+
+        // Fill the player rows, hiding the ones with no entry
         for (int i = 0; i < playerList.size(); i++) {
-            highScore = new JLabel(CsvHandler.getHighScore(playerList.get(i).getText()));
-            rank = new JLabel(Integer.toString(i + 1 + page * 7));
-            playerList.get(i).setBounds(mainButtonX, mainButtonY + mainButtonYIncrement * i, width / 5, height / 12);
+            JLabel player = playerList.get(i);
+            JLabel highScore = scoreList.get(i);
+            JLabel rank = rankList.get(i);
+            boolean shown = i < entries.size();
+            player.setVisible(shown);
+            highScore.setVisible(shown);
+            rank.setVisible(shown);
+            if (!shown) {
+                continue;
+            }
+            player.setText(entries.get(i).getUserName());
+            highScore.setText(Integer.toString(entries.get(i).getScore()));
+            rank.setText(Integer.toString(ranks[i]));
+            player.setBounds(mainButtonX, mainButtonY + mainButtonYIncrement * i, width / 5, height / 12);
             highScore.setBounds(mainButtonX + mainButtonXIncrement, mainButtonY + mainButtonYIncrement * i, width / 5, height / 12);
             rank.setBounds(mainButtonX - mainButtonXIncrement / 2, mainButtonY + mainButtonYIncrement * i, width / 5, height / 12);
-
-            // Set fonts for player information labels
-            playerList.get(i).setFont(new Font("SansSerif", Font.BOLD, 24));
-            highScore.setFont(new Font("SansSerif", Font.BOLD, 24));
-            rank.setFont(new Font("SansSerif", Font.BOLD, 24));
-
-            // Set foreground color for player information labels
-            highScore.setForeground(Color.BLACK);
-            playerList.get(i).setForeground(Color.BLACK);
-
-            // Add player information labels to the panel
-            this.add(rank);
-            this.add(highScore);
-            this.add(playerList.get(i));
         }
     }
 
@@ -152,14 +317,14 @@ public class HighScoreScreen extends Screen {
      * Displays the next page of high scores.
      */
     public void next() {
-        swapScreens(new HighScoreScreen(frame, this.page + 1, prev));
+        swapScreens(new HighScoreScreen(frame, this.page + 1, prev, snapshot));
     }
 
     /**
      * Displays the previous page of high scores.
      */
     public void previous() {
-        swapScreens(new HighScoreScreen(frame, this.page - 1, prev));
+        swapScreens(new HighScoreScreen(frame, this.page - 1, prev, snapshot));
     }
 
     /**
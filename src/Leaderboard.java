@@ -0,0 +1,479 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Users ordered by high score, kept sorted as scores change instead of re-sorting on every read.
+ * Entries are ordered by score, highest first, and users with the same score by username,
+ * so the order (and therefore every page) is the same each time it is read.
+ *
+ * <p>The index is built once from {@link StatsColumns} on first use and then updated by
+ * {@link CsvHandler#changeHighScore(String, String)}, {@link CsvHandler#addUser(String, String)} and
+ * {@link CsvHandler#deleteUser(String)}. Updates to the same user are serialized; readers never block
+ * and see a weakly consistent view, where a user being moved may briefly be missing from a page.
+ *
+ * <p>Every user is also kept in username order, so {@link #search(String, int)} can find the users whose name
+ * starts with a prefix by seeking to it rather than scanning the board.
+ *
+ * <p>Readers that page through the board, like {@link HighScoreScreen}, use a {@link Snapshot} instead:
+ * an immutable, versioned copy that lists every user exactly once. A background thread publishes a new
+ * one after {@link StorageConfig#LEADERBOARD_SNAPSHOT_CHANGES} changes, or {@link StorageConfig#LEADERBOARD_SNAPSHOT_MS}
+ * after the first unpublished change, so writers never wait for it and readers never lock.
+ */
+public class Leaderboard {
+
+    /**
+     * One position on the leaderboard.
+     */
+    public static final class Entry implements Comparable<Entry> {
+
+        /** The username. */
+        private final String userName;
+
+        /** The user's high score. */
+        private final int score;
+
+        /**
+         * Creates an entry.
+         *
+         * @param userName The username.
+         * @param score The user's high score.
+         */
+        public Entry(String userName, int score) {
+            this.userName = userName;
+            this.score = score;
+        }
+
+        /**
+         * Returns the username.
+         *
+         * @return The username.
+         */
+        public String getUserName() {
+            return userName;
+        }
+
+        /**
+         * Returns the high score.
+         *
+         * @return The high score.
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Orders entries by score, highest first, then by username.
+         *
+         * @param other The entry to compare with.
+         * @return A negative number if this entry ranks before the other one.
+         */
+        @Override
+        public int compareTo(Entry other) {
+            int byScore = Integer.compare(other.score, score);
+            return byScore != 0 ? byScore : userName.compareTo(other.userName);
+        }
+
+        /**
+         * Two entries are equal when they hold the same user and score.
+         *
+         * @param o The object to compare with.
+         * @return true if equal.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Entry && compareTo((Entry) o) == 0;
+        }
+
+        /**
+         * Hash code consistent with {@link #equals(Object)}.
+         *
+         * @return The hash code.
+         */
+        @Override
+        public int hashCode() {
+            return 31 * userName.hashCode() + score;
+        }
+    }
+
+    /**
+     * An immutable copy of the whole leaderboard at one moment, sorted like the live one.
+     */
+    public static final class Snapshot {
+
+        /** Increases by one with each snapshot a leaderboard publishes. */
+        private final long version;
+
+        /** Every entry in leaderboard order. */
+        private final Entry[] entries;
+
+        /**
+         * Creates a snapshot.
+         *
+         * @param version The version number.
+         * @param entries Every entry in leaderboard order; the array is kept, not copied.
+         */
+        Snapshot(long version, Entry[] entries) {
+            this.version = version;
+            this.entries = entries;
+        }
+
+        /**
+         * Returns the version number of this snapshot.
+         *
+         * @return The version.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns the number of users in this snapshot.
+         *
+         * @return The user count.
+         */
+        public int size() {
+            return entries.length;
+        }
+
+        /**
+         * Reads one page of this snapshot by position, without copying it.
+         *
+         * @param offset How many entries to skip from the top.
+         * @param limit The largest number of entries to return.
+         * @return A read-only view of the entries in leaderboard order.
+         */
+        public List<Entry> page(int offset, int limit) {
+            int from = Math.min(Math.max(offset, 0), entries.length);
+            int to = (int) Math.min((long) from + Math.max(limit, 0), entries.length);
+            return Collections.unmodifiableList(Arrays.asList(entries).subList(from, to));
+        }
+
+        /**
+         * Returns the rank of the entry at a position within this snapshot: the position of the first entry
+         * with the same score, plus one. Entries with the same score share a rank, and ranks always agree
+         * with the order and scores of the snapshot, however the live leaderboard has changed since.
+         *
+         * @param index The position of the entry, from 0.
+         * @return The rank, from 1.
+         */
+        public int rankAt(int index) {
+            int score = entries[index].score;
+            int low = 0;
+            int high = index;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (entries[mid].score > score) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low + 1;
+        }
+    }
+
+    /** The leaderboard shared by the whole process, created on first use. */
+    private static Leaderboard instance;
+
+    /** Every user in leaderboard order. */
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>();
+
+    /** Current score of every user, used to find a user's entry in {@link #ranking}. */
+    private final ConcurrentHashMap<String, Integer> scores = new ConcurrentHashMap<>();
+
+    /** Current score of every user in username order, for prefix searches. Changed together with {@link #scores}. */
+    private final ConcurrentSkipListMap<String, Integer> byName = new ConcurrentSkipListMap<>();
+
+    /** Distribution of the scores in {@link #scores}, for rank and percentile queries. */
+    private final RankService ranks = new RankService();
+
+    /** The latest published snapshot, or null until {@link #snapshot()} is first called. */
+    private volatile Snapshot published;
+
+    /** Number of changes made since {@link #published} was built. */
+    private final AtomicInteger unpublished = new AtomicInteger();
+
+    /** Set while a republish triggered by the change count is queued and not started yet. */
+    private final AtomicBoolean republishQueued = new AtomicBoolean();
+
+    /** Background thread that builds snapshots, started with the first one. */
+    private ScheduledExecutorService publisher;
+
+    /**
+     * Returns the leaderboard shared by the whole process, building it from the user store the first time.
+     *
+     * @return The shared leaderboard.
+     */
+    public static synchronized Leaderboard get() {
+        if (instance == null) {
+            Leaderboard leaderboard = new Leaderboard();
+            // The columns hold every score already parsed and can hand them over in order
+            for (Entry entry : StatsColumns.get().ranking()) {
+                leaderboard.update(entry.getUserName(), entry.getScore());
+            }
+            instance = leaderboard;
+        }
+        return instance;
+    }
+
+    /**
+     * Drops the shared leaderboard and stops its snapshot thread, so the next {@link #get()} builds it from
+     * the store again. Used by {@link CsvHandler#useFile(java.nio.file.Path)}.
+     */
+    static synchronized void reset() {
+        if (instance != null) {
+            synchronized (instance) {
+                if (instance.publisher != null) {
+                    instance.publisher.shutdown();
+                }
+            }
+            instance = null;
+        }
+    }
+
+    /**
+     * Returns the shared leaderboard if it has been built, without building it.
+     *
+     * @return The shared leaderboard, or null.
+     */
+    static synchronized Leaderboard ifBuilt() {
+        return instance;
+    }
+
+    /**
+     * Sets a user's score, adding the user if it is not on the leaderboard yet.
+     *
+     * @param userName The username.
+     * @param score The new high score.
+     */
+    public void update(String userName, int score) {
+        scores.compute(userName, (name, old) -> {
+            if (old != null) {
+                if (old == score) {
+                    return old;
+                }
+                ranking.remove(new Entry(name, old));
+                ranks.move(old, score);
+            } else {
+                ranks.add(score);
+            }
+            ranking.add(new Entry(name, score));
+            byName.put(name, score);
+            changed();
+            return score;
+        });
+    }
+
+    /**
+     * Sets a user's score from its stored text form. A value that is not a number counts as 0,
+     * so a damaged row cannot break the whole leaderboard.
+     *
+     * @param userName The username.
+     * @param score The new high score as stored in the user file.
+     */
+    public void update(String userName, String score) {
+        int value;
+        try {
+            value = Integer.parseInt(score);
+        } catch (NumberFormatException e) {
+            value = 0;
+        }
+        update(userName, value);
+    }
+
+    /**
+     * Removes a user from the leaderboard.
+     *
+     * @param userName The username.
+     */
+    public void remove(String userName) {
+        scores.computeIfPresent(userName, (name, old) -> {
+            ranking.remove(new Entry(name, old));
+            byName.remove(name);
+            ranks.remove(old);
+            changed();
+            return null;
+        });
+    }
+
+    /**
+     * Returns the latest published snapshot, building the first one on the calling thread.
+     * Later calls never block: they return the current snapshot while newer ones are built in the background.
+     *
+     * @return The current snapshot.
+     */
+    public Snapshot snapshot() {
+        Snapshot current = published;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (published == null) {
+                publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "geocraft-leaderboard");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                unpublished.set(0);
+                long interval = StorageConfig.LEADERBOARD_SNAPSHOT_MS;
+                publisher.scheduleWithFixedDelay(() -> {
+                    if (unpublished.get() > 0) {
+                        republish();
+                    }
+                }, interval, interval, TimeUnit.MILLISECONDS);
+                published = build(1);
+            }
+            return published;
+        }
+    }
+
+    /**
+     * Builds and publishes a new snapshot right away. Runs on the publisher thread; tests call it directly.
+     */
+    synchronized void republish() {
+        republishQueued.set(false);
+        // Reset first, so changes made while building count towards the next snapshot
+        unpublished.set(0);
+        Snapshot current = published;
+        published = build(current == null ? 1 : current.getVersion() + 1);
+    }
+
+    /**
+     * Copies every user's current score and sorts the copy. The copy comes from the score map rather than
+     * the sorted set, so a user moving at the same time still appears exactly once.
+     *
+     * @param version The version number of the new snapshot.
+     * @return The new snapshot.
+     */
+    private Snapshot build(long version) {
+        List<Entry> copy = new ArrayList<>(scores.size());
+        for (Map.Entry<String, Integer> score : scores.entrySet()) {
+            copy.add(new Entry(score.getKey(), score.getValue()));
+        }
+        Entry[] entries = copy.toArray(new Entry[0]);
+        Arrays.parallelSort(entries);
+        return new Snapshot(version, entries);
+    }
+
+    /**
+     * Counts one change and queues a republish once enough have built up since the last snapshot.
+     */
+    private void changed() {
+        if (unpublished.incrementAndGet() >= StorageConfig.LEADERBOARD_SNAPSHOT_CHANGES
+                && published != null && republishQueued.compareAndSet(false, true)) {
+            publisher.execute(this::republish);
+        }
+    }
+
+    /**
+     * Returns the number of users on the leaderboard.
+     *
+     * @return The user count.
+     */
+    public int size() {
+        return scores.size();
+    }
+
+    /**
+     * Returns the rank service kept in step with this leaderboard.
+     *
+     * @return The rank service.
+     */
+    public RankService getRanks() {
+        return ranks;
+    }
+
+    /**
+     * Returns a user's current score.
+     *
+     * @param userName The username.
+     * @return The score, or null if the user is not on the leaderboard.
+     */
+    public Integer getScore(String userName) {
+        return scores.get(userName);
+    }
+
+    /**
+     * Reads one page of the leaderboard by position.
+     *
+     * @param offset How many entries to skip from the top.
+     * @param limit The largest number of entries to return.
+     * @return The entries in leaderboard order.
+     */
+    public List<Entry> page(int offset, int limit) {
+        List<Entry> page = new ArrayList<>(Math.max(0, Math.min(limit, 64)));
+        Iterator<Entry> it = ranking.iterator();
+        for (int skipped = 0; skipped < offset && it.hasNext(); skipped++) {
+            it.next();
+        }
+        while (page.size() < limit && it.hasNext()) {
+            page.add(it.next());
+        }
+        return page;
+    }
+
+    /**
+     * Reads the page that follows a given entry, usually the last entry of the previous page.
+     * This seeks straight to the entry instead of counting from the top, and is not thrown off
+     * by users moving above the page between reads.
+     *
+     * @param last The entry the page starts after, or null to start at the top.
+     * @param limit The largest number of entries to return.
+     * @return The entries in leaderboard order.
+     */
+    public List<Entry> pageAfter(Entry last, int limit) {
+        Iterable<Entry> from = last == null ? ranking : ranking.tailSet(last, false);
+        List<Entry> page = new ArrayList<>(Math.max(0, Math.min(limit, 64)));
+        for (Entry entry : from) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(entry);
+        }
+        return page;
+    }
+
+    /**
+     * Finds the users whose name starts with a prefix, seeking straight to the prefix in username order.
+     * The matches are read from the live board, so they are as current as {@link #page(int, int)}.
+     *
+     * @param prefix The start of the username, matched case-sensitively like logins.
+     * @param limit The largest number of entries to return.
+     * @return The matching entries in username order, each with its score.
+     */
+    public List<Entry> search(String prefix, int limit) {
+        List<Entry> matches = new ArrayList<>(Math.max(0, Math.min(limit, 64)));
+        for (Map.Entry<String, Integer> user : byName.tailMap(prefix).entrySet()) {
+            if (matches.size() >= limit || !user.getKey().startsWith(prefix)) {
+                break;
+            }
+            matches.add(new Entry(user.getKey(), user.getValue()));
+        }
+        return matches;
+    }
+
+    /**
+     * Returns every username in leaderboard order.
+     *
+     * @return The usernames, highest score first.
+     */
+    public ArrayList<String> userNames() {
+        ArrayList<String> users = new ArrayList<>(scores.size());
+        for (Entry entry : ranking) {
+            users.add(entry.getUserName());
+        }
+        return users;
+    }
+}
@@ -0,0 +1,155 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link Leaderboard} class, covering ordering, tie breaking,
+ * score changes, paging and concurrent updates. Every test uses its own leaderboard.
+ */
+public class LeaderboardTest {
+
+    /**
+     * Verifies that users are ordered by score and that ties are broken by username.
+     */
+    @Test
+    public void testOrderAndTies() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("carol", 50);
+        leaderboard.update("alice", 80);
+        leaderboard.update("bob", 50);
+        assertEquals(List.of("alice", "bob", "carol"), leaderboard.userNames());
+    }
+
+    /**
+     * Verifies that changing a score moves the user and does not leave a stale entry behind.
+     */
+    @Test
+    public void testUpdateMovesUser() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("alice", 10);
+        leaderboard.update("bob", 20);
+        leaderboard.update("alice", 30);
+        assertEquals(List.of("alice", "bob"), leaderboard.userNames());
+        assertEquals(2, leaderboard.size());
+        leaderboard.remove("alice");
+        assertEquals(List.of("bob"), leaderboard.userNames());
+        leaderboard.update("erin", "not a number");
+        assertEquals(Integer.valueOf(0), leaderboard.getScore("erin"));
+    }
+
+    /**
+     * Verifies that paging by position and paging after an entry return the same pages.
+     */
+    @Test
+    public void testPaging() {
+        Leaderboard leaderboard = new Leaderboard();
+        for (int i = 0; i < 20; i++) {
+            leaderboard.update("user" + i, i % 5);
+        }
+        List<Leaderboard.Entry> first = leaderboard.page(0, 7);
+        List<Leaderboard.Entry> second = leaderboard.page(7, 7);
+        assertEquals(7, first.size());
+        assertEquals(second, leaderboard.pageAfter(first.get(6), 7));
+        assertEquals(6, leaderboard.page(14, 7).size());
+        assertEquals(4, first.get(0).getScore());
+    }
+
+    /**
+     * Verifies that a prefix search finds users in username order, follows score changes and removals,
+     * and stops at the limit.
+     */
+    @Test
+    public void testSearch() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("alice", 10);
+        leaderboard.update("alan", 30);
+        leaderboard.update("bob", 20);
+        leaderboard.update("al", 5);
+        leaderboard.update("alan", 40);
+        assertEquals(List.of(new Leaderboard.Entry("al", 5), new Leaderboard.Entry("alan", 40),
+                new Leaderboard.Entry("alice", 10)), leaderboard.search("al", 7));
+        assertEquals(2, leaderboard.search("al", 2).size());
+        leaderboard.remove("alan");
+        assertEquals(List.of(new Leaderboard.Entry("al", 5), new Leaderboard.Entry("alice", 10)), leaderboard.search("al", 7));
+        assertTrue(leaderboard.search("carl", 7).isEmpty());
+    }
+
+    /**
+     * Verifies that concurrent updates to the same users leave exactly one entry per user.
+     *
+     * @throws InterruptedException if a worker thread is interrupted.
+     */
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        Leaderboard leaderboard = new Leaderboard();
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            int seed = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    leaderboard.update("user" + (i % 50), (i * 31 + seed) % 1000);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(50, leaderboard.size());
+        assertEquals(50, leaderboard.userNames().size());
+    }
+
+    /**
+     * Verifies that a snapshot keeps its order while scores change, and that enough changes publish a newer one.
+     *
+     * @throws InterruptedException if interrupted while waiting for the publisher.
+     */
+    @Test
+    public void testSnapshots() throws InterruptedException {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("alice", 10);
+        leaderboard.update("bob", 20);
+        Leaderboard.Snapshot first = leaderboard.snapshot();
+
+        leaderboard.update("alice", 30);
+        assertEquals("bob", first.page(0, 7).get(0).getUserName());
+        assertEquals(2, first.size());
+        assertSame(first, leaderboard.snapshot());
+
+        for (int i = 0; i < StorageConfig.LEADERBOARD_SNAPSHOT_CHANGES; i++) {
+            leaderboard.update("user" + i, i);
+        }
+        // The change count publishes one snapshot right away, and the timer picks up whatever came after it
+        String top = "user" + (StorageConfig.LEADERBOARD_SNAPSHOT_CHANGES - 1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!top.equals(leaderboard.snapshot().page(0, 1).get(0).getUserName()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Leaderboard.Snapshot second = leaderboard.snapshot();
+        assertTrue(second.getVersion() > first.getVersion());
+        assertEquals(top, second.page(0, 1).get(0).getUserName());
+        assertEquals(0, second.page(second.size(), 7).size());
+    }
+
+    /**
+     * Verifies that ranks in a snapshot follow its own scores, with ties sharing a rank, after the live scores change.
+     */
+    @Test
+    public void testSnapshotRanks() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("alice", 50);
+        leaderboard.update("bob", 30);
+        leaderboard.update("carol", 30);
+        leaderboard.update("dave", 10);
+        Leaderboard.Snapshot snapshot = leaderboard.snapshot();
+        leaderboard.update("dave", 100);
+
+        assertEquals(1, snapshot.rankAt(0));
+        assertEquals(2, snapshot.rankAt(1));
+        assertEquals(2, snapshot.rankAt(2));
+        assertEquals(4, snapshot.rankAt(3));
+        assertEquals("dave", snapshot.page(3, 1).get(0).getUserName());
+    }
+}
@@ -164,8 +164,10 @@ public class LoginScreen extends Screen {
         String enteredUsername = username.getText();
         char[] enteredPassword = password.getPassword();
         String enteredPasswordString = new String(enteredPassword);
-        String storedPassword = CsvHandler.getPassword(enteredUsername);
+        String storedPassword = UserRepository.get().getPassword(enteredUsername);
         if (Objects.nonNull(storedPassword) && storedPassword.equals(enteredPasswordString)) {
+            // Brings a dormant account back from the cold archive before anything reads its stats
+            UserRepository.get().markActive(enteredUsername);
             Player user = new Player(enteredUsername, enteredPasswordString);
             swapScreens(new GameMainMenu(frame, this, user));
         } else {
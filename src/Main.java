@@ -7,12 +7,16 @@ import java.io.IOException;
 public class Main {
     /**
      * The main method of the application.
-     * Initializes the FullScreenUI to start the program.
+     * Initializes the FullScreenUI to start the program, and with the CSV backend
+     * schedules moving dormant accounts to the cold archive.
      *
      * @param args Command-line arguments (not used).
      * @throws IOException If an I/O exception occurs.
      */
     public static void main(String[] args) throws IOException {
         new FullScreenUI();
+        if (StorageConfig.REPOSITORY.equals("csv")) {
+            ColdArchive.scheduleTiering();
+        }
     }
 }
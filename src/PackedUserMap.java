@@ -0,0 +1,478 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Map from username to a value that keeps its keys as primitive {@code long}s instead of {@code String}s.
+ * Registration only accepts 4 to 16 letters and digits ({@link CsvHandler#credentialChecker(String, String)}),
+ * so every such name packs losslessly into 96 bits: each character becomes a 6-bit code from 1 to 62,
+ * the first ten go in one {@code long} and the rest in another, and unused positions stay 0.
+ *
+ * <p>Keys live in an open-addressing table with linear probing, three primitive arrays with no object per
+ * entry, and deletions shift later entries back instead of leaving tombstones. Looking a name up packs it
+ * on the fly and allocates nothing. Values sit in slots in the order they were first put, which is the
+ * order {@link #keys()}, {@link #values()} and {@link #forEach(BiConsumer)} return them, like a
+ * {@link java.util.LinkedHashMap}. Names that do not pack, such as ones from older files, fall back to a plain map.
+ *
+ * <p>Null values are not allowed. Not thread safe; {@link UserTable} only uses it under its own monitor.
+ */
+public class PackedUserMap<V> {
+
+    /** Longest name that packs. */
+    static final int MAX_PACKED_LENGTH = 16;
+
+    /** Characters held by the first {@code long} of a packed key. */
+    private static final int HIGH_CHARS = 10;
+
+    /** Bucket count of a new or cleared map. */
+    private static final int INITIAL_BUCKETS = 16;
+
+    /** First half of the packed key in each bucket, 0 for an empty bucket (a packed name never has 0 here). */
+    private long[] bucketHigh;
+
+    /** Second half of the packed key in each bucket. */
+    private long[] bucketLow;
+
+    /** Slot of the value of each bucket. */
+    private int[] bucketSlot;
+
+    /** Value of each slot, null once removed. */
+    private Object[] values;
+
+    /** Packed key of each slot, so keys can be listed and slots moved when compacting; 0 for fallback names. */
+    private long[] slotHigh, slotLow;
+
+    /** Slots used so far, live or removed. */
+    private int end;
+
+    /** Number of live entries, packed and fallback. */
+    private int size;
+
+    /** Number of live packed entries, which bounds the table load. */
+    private int packedCount;
+
+    /** Slots of the names that do not pack. */
+    private final Map<String, Integer> otherSlots = new HashMap<>();
+
+    /** Names that do not pack, by slot. */
+    private final Map<Integer, String> otherNames = new HashMap<>();
+
+    /** First half of the key last packed by {@link #pack(String)}. */
+    private long packedHigh;
+
+    /** Second half of the key last packed by {@link #pack(String)}. */
+    private long packedLow;
+
+    /**
+     * Creates an empty map.
+     */
+    public PackedUserMap() {
+        clear();
+    }
+
+    /**
+     * Removes every entry and shrinks the map back to its initial size.
+     */
+    public void clear() {
+        bucketHigh = new long[INITIAL_BUCKETS];
+        bucketLow = new long[INITIAL_BUCKETS];
+        bucketSlot = new int[INITIAL_BUCKETS];
+        values = new Object[INITIAL_BUCKETS];
+        slotHigh = new long[INITIAL_BUCKETS];
+        slotLow = new long[INITIAL_BUCKETS];
+        end = 0;
+        size = 0;
+        packedCount = 0;
+        otherSlots.clear();
+        otherNames.clear();
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return The entry count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether a name has a value.
+     *
+     * @param userName The username.
+     * @return true if the map holds the name.
+     */
+    public boolean containsKey(String userName) {
+        return slotOf(userName) >= 0;
+    }
+
+    /**
+     * Returns the value of a name.
+     *
+     * @param userName The username.
+     * @return The value, or null if the map does not hold the name.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String userName) {
+        int slot = slotOf(userName);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Sets the value of a name. A name already in the map keeps its position in the order.
+     *
+     * @param userName The username.
+     * @param value The value, not null.
+     * @return The previous value, or null if the name was not in the map.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(String userName, V value) {
+        if (!pack(userName)) {
+            Integer slot = otherSlots.get(userName);
+            if (slot != null) {
+                V old = (V) values[slot];
+                values[slot] = value;
+                return old;
+            }
+            int newSlot = addSlot(0, 0, value);
+            otherSlots.put(userName, newSlot);
+            otherNames.put(newSlot, userName);
+            return null;
+        }
+        int bucket = findBucket(packedHigh, packedLow);
+        if (bucketHigh[bucket] != 0) {
+            int slot = bucketSlot[bucket];
+            V old = (V) values[slot];
+            values[slot] = value;
+            return old;
+        }
+        long high = packedHigh;
+        long low = packedLow;
+        bucketHigh[bucket] = high;
+        bucketLow[bucket] = low;
+        bucketSlot[bucket] = addSlot(high, low, value);
+        packedCount++;
+        if (packedCount * 3 > bucketHigh.length * 2) {
+            rehash(bucketHigh.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Removes a name.
+     *
+     * @param userName The username.
+     * @return The value it had, or null if the map did not hold it.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(String userName) {
+        int slot;
+        if (!pack(userName)) {
+            Integer other = otherSlots.remove(userName);
+            if (other == null) {
+                return null;
+            }
+            slot = other;
+            otherNames.remove(slot);
+        } else {
+            int bucket = findBucket(packedHigh, packedLow);
+            if (bucketHigh[bucket] == 0) {
+                return null;
+            }
+            slot = bucketSlot[bucket];
+            deleteBucket(bucket);
+            packedCount--;
+        }
+        V old = (V) values[slot];
+        values[slot] = null;
+        slotHigh[slot] = 0;
+        slotLow[slot] = 0;
+        size--;
+        if (end > 2 * size + INITIAL_BUCKETS) {
+            compactSlots();
+        }
+        return old;
+    }
+
+    /**
+     * Lists every name in the order they were first put.
+     *
+     * @return A new list of the names.
+     */
+    public ArrayList<String> keys() {
+        ArrayList<String> keys = new ArrayList<>(size);
+        for (int slot = 0; slot < end; slot++) {
+            if (values[slot] != null) {
+                keys.add(keyOf(slot));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Lists every value in the order their names were first put.
+     *
+     * @return A new list of the values.
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size);
+        for (int slot = 0; slot < end; slot++) {
+            if (values[slot] != null) {
+                list.add((V) values[slot]);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Passes every entry to an action in the order the names were first put.
+     *
+     * @param action Receives each name and value.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<String, V> action) {
+        for (int slot = 0; slot < end; slot++) {
+            if (values[slot] != null) {
+                action.accept(keyOf(slot), (V) values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Packs a name into {@link #packedHigh} and {@link #packedLow}.
+     *
+     * @param userName The username.
+     * @return true if the name packs, false if it is empty, too long or has other characters.
+     */
+    private boolean pack(String userName) {
+        int length = userName.length();
+        if (length == 0 || length > MAX_PACKED_LENGTH) {
+            return false;
+        }
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < MAX_PACKED_LENGTH; i++) {
+            int code = 0;
+            if (i < length) {
+                code = code(userName.charAt(i));
+                if (code == 0) {
+                    return false;
+                }
+            }
+            if (i < HIGH_CHARS) {
+                high = (high << 6) | code;
+            } else {
+                low = (low << 6) | code;
+            }
+        }
+        packedHigh = high;
+        packedLow = low;
+        return true;
+    }
+
+    /**
+     * Returns the 6-bit code of a character.
+     *
+     * @param c The character.
+     * @return 1 to 10 for digits, 11 to 36 for upper case and 37 to 62 for lower case letters, otherwise 0.
+     */
+    private static int code(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 1;
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A' + 11;
+        }
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 37;
+        }
+        return 0;
+    }
+
+    /**
+     * Turns a 6-bit code back into its character.
+     *
+     * @param code A code from 1 to 62.
+     * @return The character.
+     */
+    private static char character(int code) {
+        if (code <= 10) {
+            return (char) ('0' + code - 1);
+        }
+        if (code <= 36) {
+            return (char) ('A' + code - 11);
+        }
+        return (char) ('a' + code - 37);
+    }
+
+    /**
+     * Rebuilds the name of a live slot.
+     *
+     * @param slot The slot.
+     * @return The username.
+     */
+    private String keyOf(int slot) {
+        if (slotHigh[slot] == 0) {
+            return otherNames.get(slot);
+        }
+        StringBuilder name = new StringBuilder(MAX_PACKED_LENGTH);
+        for (int i = HIGH_CHARS - 1; i >= 0; i--) {
+            int code = (int) (slotHigh[slot] >>> (6 * i)) & 63;
+            if (code == 0) {
+                return name.toString();
+            }
+            name.append(character(code));
+        }
+        for (int i = MAX_PACKED_LENGTH - HIGH_CHARS - 1; i >= 0; i--) {
+            int code = (int) (slotLow[slot] >>> (6 * i)) & 63;
+            if (code == 0) {
+                break;
+            }
+            name.append(character(code));
+        }
+        return name.toString();
+    }
+
+    /**
+     * Finds the slot of a name.
+     *
+     * @param userName The username.
+     * @return The slot, or -1 if the map does not hold the name.
+     */
+    private int slotOf(String userName) {
+        if (!pack(userName)) {
+            Integer slot = otherSlots.get(userName);
+            return slot == null ? -1 : slot;
+        }
+        int bucket = findBucket(packedHigh, packedLow);
+        return bucketHigh[bucket] == 0 ? -1 : bucketSlot[bucket];
+    }
+
+    /**
+     * Returns the bucket holding a packed key, or the empty bucket where it would go.
+     *
+     * @param high First half of the key.
+     * @param low Second half of the key.
+     * @return The bucket index.
+     */
+    private int findBucket(long high, long low) {
+        int mask = bucketHigh.length - 1;
+        int bucket = home(high, low, mask);
+        while (bucketHigh[bucket] != 0 && (bucketHigh[bucket] != high || bucketLow[bucket] != low)) {
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    /**
+     * Returns the bucket a packed key hashes to.
+     *
+     * @param high First half of the key.
+     * @param low Second half of the key.
+     * @param mask The bucket count minus one.
+     * @return The home bucket.
+     */
+    private static int home(long high, long low, int mask) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 29;
+        return (int) h & mask;
+    }
+
+    /**
+     * Empties a bucket and shifts later buckets of the same probe run back, so every key stays reachable.
+     *
+     * @param bucket The bucket to empty.
+     */
+    private void deleteBucket(int bucket) {
+        int mask = bucketHigh.length - 1;
+        int hole = bucket;
+        int next = (hole + 1) & mask;
+        while (bucketHigh[next] != 0) {
+            int want = home(bucketHigh[next], bucketLow[next], mask);
+            // The entry may fill the hole if its home is not in the cyclic range (hole, next]
+            if (((next - want) & mask) >= ((next - hole) & mask)) {
+                bucketHigh[hole] = bucketHigh[next];
+                bucketLow[hole] = bucketLow[next];
+                bucketSlot[hole] = bucketSlot[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        bucketHigh[hole] = 0;
+        bucketLow[hole] = 0;
+    }
+
+    /**
+     * Puts a value in the next slot, growing the slot arrays when needed.
+     *
+     * @param high First half of the packed key, or 0 for a fallback name.
+     * @param low Second half of the packed key.
+     * @param value The value.
+     * @return The slot.
+     */
+    private int addSlot(long high, long low, Object value) {
+        if (end == values.length) {
+            int capacity = values.length * 2;
+            values = Arrays.copyOf(values, capacity);
+            slotHigh = Arrays.copyOf(slotHigh, capacity);
+            slotLow = Arrays.copyOf(slotLow, capacity);
+        }
+        values[end] = value;
+        slotHigh[end] = high;
+        slotLow[end] = low;
+        size++;
+        return end++;
+    }
+
+    /**
+     * Moves the live slots together, keeping their order, and points the buckets at their new slots.
+     */
+    private void compactSlots() {
+        int live = 0;
+        otherSlots.clear();
+        Map<Integer, String> names = new HashMap<>(otherNames);
+        otherNames.clear();
+        for (int slot = 0; slot < end; slot++) {
+            if (values[slot] == null) {
+                continue;
+            }
+            values[live] = values[slot];
+            slotHigh[live] = slotHigh[slot];
+            slotLow[live] = slotLow[slot];
+            if (slotHigh[live] == 0) {
+                String name = names.get(slot);
+                otherSlots.put(name, live);
+                otherNames.put(live, name);
+            }
+            live++;
+        }
+        for (int slot = live; slot < end; slot++) {
+            values[slot] = null;
+        }
+        end = live;
+        rehash(bucketHigh.length);
+    }
+
+    /**
+     * Rebuilds the table with a number of buckets from the packed keys of the live slots.
+     *
+     * @param bucketCount The new bucket count, a power of two.
+     */
+    private void rehash(int bucketCount) {
+        bucketHigh = new long[bucketCount];
+        bucketLow = new long[bucketCount];
+        bucketSlot = new int[bucketCount];
+        for (int slot = 0; slot < end; slot++) {
+            if (values[slot] != null && slotHigh[slot] != 0) {
+                int bucket = findBucket(slotHigh[slot], slotLow[slot]);
+                bucketHigh[bucket] = slotHigh[slot];
+                bucketLow[bucket] = slotLow[slot];
+                bucketSlot[bucket] = slot;
+            }
+        }
+    }
+}
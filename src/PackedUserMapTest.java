@@ -0,0 +1,66 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link PackedUserMap} class: names survive packing, the order of first insertion is kept,
+ * and the map agrees with a {@link HashMap} through many puts and removals.
+ */
+public class PackedUserMapTest {
+
+    /**
+     * Verifies that packed names, including the longest and shortest ones, come back unchanged in insertion
+     * order, and that names which do not pack are still stored.
+     */
+    @Test
+    public void testKeysKeepOrder() {
+        PackedUserMap<String> map = new PackedUserMap<>();
+        map.put("zeta", "1");
+        map.put("A1b2C3d4E5f6G7h8", "2");
+        map.put("user_name", "3");
+        map.put("bob0", "4");
+        map.put("zeta", "5");
+        assertEquals(List.of("zeta", "A1b2C3d4E5f6G7h8", "user_name", "bob0"), map.keys());
+        assertEquals(List.of("5", "2", "3", "4"), map.values());
+        assertEquals("3", map.get("user_name"));
+        assertNull(map.get("bob"));
+        assertNull(map.get("bob00"));
+
+        assertEquals("5", map.remove("zeta"));
+        assertEquals("3", map.remove("user_name"));
+        assertFalse(map.containsKey("zeta"));
+        assertEquals(2, map.size());
+        assertEquals(List.of("A1b2C3d4E5f6G7h8", "bob0"), map.keys());
+    }
+
+    /**
+     * Verifies that random puts and removals leave the map holding the same entries as a HashMap,
+     * across table growth, backward-shift deletion and slot compaction.
+     */
+    @Test
+    public void testMatchesHashMap() {
+        PackedUserMap<Integer> map = new PackedUserMap<>();
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String userName = "player" + random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(userName), map.remove(userName));
+            } else {
+                assertEquals(expected.put(userName, i), map.put(userName, i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (String userName : map.keys()) {
+            assertEquals(expected.get(userName), map.get(userName));
+        }
+        for (int i = 0; i < 3000; i++) {
+            assertEquals(expected.containsKey("player" + i), map.containsKey("player" + i));
+        }
+    }
+}
@@ -0,0 +1,297 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Queue of pending column changes, written to the user store by one background thread
+ * so saving never does file I/O on the Swing event dispatch thread.
+ *
+ * <p>Changes are keyed by user and column. A change to a key that is still waiting replaces the
+ * waiting value, so a burst of score updates costs one write. Reads go through {@link #pendingValue(String, int)}
+ * first, so a caller always sees its own changes. At most {@link StorageConfig#PERSIST_QUEUE_CAPACITY}
+ * keys wait at once; beyond that {@link #submit(String, int, String)} blocks until the writer catches up.
+ * {@link #flush()} blocks until every change is written and durable, and tells whether any change failed to be written.
+ */
+public class PersistenceQueue {
+
+    /**
+     * Identifies one column of one user.
+     */
+    private static final class Key {
+
+        /** The username. */
+        final String userName;
+
+        /** The column index, where 0 is the username. */
+        final int index;
+
+        /**
+         * Creates a key.
+         *
+         * @param userName The username.
+         * @param index The column index.
+         */
+        Key(String userName, int index) {
+            this.userName = userName;
+            this.index = index;
+        }
+
+        /**
+         * Two keys are equal when they name the same column of the same user.
+         *
+         * @param o The object to compare with.
+         * @return true if equal.
+         */
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).index == index && ((Key) o).userName.equals(userName);
+        }
+
+        /**
+         * Hash code consistent with {@link #equals(Object)}.
+         *
+         * @return The hash code.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(userName, index);
+        }
+    }
+
+    /** The queue shared by the whole process, created on first use. */
+    private static PersistenceQueue instance;
+
+    /** The store changes are written to. */
+    private final UserRowStore store;
+
+    /** Most keys allowed to wait at once. */
+    private final int capacity;
+
+    /** Changes waiting for the writer, in the order their keys were first changed. */
+    private Map<Key, String> pending = new LinkedHashMap<>();
+
+    /** Changes the writer has taken from {@link #pending} and is writing right now. */
+    private Map<Key, String> inFlight = new HashMap<>();
+
+    /** The writer thread. */
+    private final Thread writer;
+
+    /** Number of changes the store failed to write since the last {@link #flush()}. */
+    private int failed;
+
+    /**
+     * Returns the queue shared by the whole process, writing to {@link CsvHandler#store()}.
+     *
+     * @return The shared queue.
+     */
+    public static synchronized PersistenceQueue get() {
+        if (instance == null) {
+            instance = new PersistenceQueue(CsvHandler.store(), StorageConfig.PERSIST_QUEUE_CAPACITY);
+        }
+        return instance;
+    }
+
+    /**
+     * Blocks until the shared queue, if it has been created, has written every change submitted so far.
+     * Run by the stores' shutdown hooks before their final flush, since the writer thread does not keep the JVM alive.
+     */
+    static void drainIfOpen() {
+        PersistenceQueue queue;
+        synchronized (PersistenceQueue.class) {
+            queue = instance;
+        }
+        if (queue != null) {
+            queue.awaitDrained();
+        }
+    }
+
+    /**
+     * Writes every change waiting in the shared queue, if it has been created, and stops its writer,
+     * so the next {@link #get()} writes to the store {@link CsvHandler} uses then.
+     * Used by {@link CsvHandler#useFile(java.nio.file.Path)}.
+     */
+    static synchronized void reset() {
+        if (instance != null) {
+            instance.awaitDrained();
+            instance.writer.interrupt();
+            instance = null;
+        }
+    }
+
+    /**
+     * Creates a queue and starts its writer thread.
+     *
+     * @param store The store changes are written to.
+     * @param capacity Most keys allowed to wait at once before submitters block.
+     */
+    PersistenceQueue(UserRowStore store, int capacity) {
+        this.store = store;
+        this.capacity = Math.max(1, capacity);
+        writer = new Thread(this::runWriter, "geocraft-persistence");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a change to one column, replacing any value still waiting for the same column.
+     * Blocks while the queue is full.
+     *
+     * @param userName The username whose row is changed.
+     * @param index The column index, where 0 is the username.
+     * @param value The new value of the column.
+     */
+    public synchronized void submit(String userName, int index, String value) {
+        Key key = new Key(userName, index);
+        if (pending.containsKey(key)) {
+            pending.put(key, value);
+            return;
+        }
+        while (pending.size() >= capacity) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        pending.put(key, value);
+        notifyAll();
+    }
+
+    /**
+     * Queues changes to several columns of one user as one step: they are written in the same batch,
+     * and readers see either none or all of them. Blocks while the queue is full.
+     *
+     * @param userName The username whose row is changed.
+     * @param indices The column indices, where 0 is the username.
+     * @param values The new values, one per index.
+     */
+    public synchronized void submitAll(String userName, int[] indices, String[] values) {
+        int added = 0;
+        for (int index : indices) {
+            if (!pending.containsKey(new Key(userName, index))) {
+                added++;
+            }
+        }
+        // Wait for room for every new key at once, so the writer never takes only part of the change
+        while (added > 0 && pending.size() + added > capacity && !pending.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (int i = 0; i < indices.length; i++) {
+            pending.put(new Key(userName, indices[i]), values[i]);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Returns the value of a column that is queued but may not be in the store yet.
+     *
+     * @param userName The username.
+     * @param index The column index.
+     * @return The newest queued value, or null if nothing is queued for that column.
+     */
+    public synchronized String pendingValue(String userName, int index) {
+        Key key = new Key(userName, index);
+        String value = pending.get(key);
+        return value != null ? value : inFlight.get(key);
+    }
+
+    /**
+     * Applies the queued values of a user's columns to a record read from the store.
+     *
+     * @param record The record, changed in place.
+     */
+    public synchronized void applyPending(PlayerRecord record) {
+        if (pending.isEmpty() && inFlight.isEmpty()) {
+            return;
+        }
+        for (int index = 1; index < record.width(); index++) {
+            String value = pendingValue(record.getUserName(), index);
+            if (value != null) {
+                record.setColumn(index, value);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of columns waiting for the writer, not counting the ones being written.
+     *
+     * @return The number of waiting changes.
+     */
+    synchronized int waiting() {
+        return pending.size();
+    }
+
+    /**
+     * Blocks until every change submitted so far has been written to the store.
+     */
+    public synchronized void awaitDrained() {
+        while (!pending.isEmpty() || !inFlight.isEmpty()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Blocks until every change submitted so far has been written, then makes the store durable.
+     *
+     * @return true if every change since the last flush reached the store, false if some were lost.
+     */
+    public boolean flush() {
+        awaitDrained();
+        store.flush();
+        synchronized (this) {
+            boolean written = failed == 0 && pending.isEmpty() && inFlight.isEmpty();
+            failed = 0;
+            return written;
+        }
+    }
+
+    /**
+     * Body of the writer thread: takes every waiting change at once and writes it.
+     */
+    private void runWriter() {
+        while (true) {
+            Map<Key, String> batch;
+            synchronized (this) {
+                while (pending.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new LinkedHashMap<>();
+                // Submitters blocked on a full queue can go on
+                notifyAll();
+            }
+            int lost = 0;
+            for (Map.Entry<Key, String> entry : batch.entrySet()) {
+                try {
+                    store.setField(entry.getKey().userName, entry.getKey().index, entry.getValue());
+                } catch (RuntimeException e) {
+                    // Counted so the next flush reports the loss; the rest of the batch is still written
+                    e.printStackTrace();
+                    lost++;
+                }
+            }
+            synchronized (this) {
+                failed += lost;
+                inFlight = new HashMap<>();
+                notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link PersistenceQueue} class, using an in-memory store whose writes
+ * can be held back to check coalescing, read-your-writes and flushing.
+ */
+public class PersistenceQueueTest {
+
+    /**
+     * In-memory store that counts writes and can make the writer wait before each one.
+     */
+    private static class SlowStore implements UserRowStore {
+
+        /** Column values keyed by username and column index. */
+        final Map<String, String> values = new HashMap<>();
+
+        /** Number of writes that reached the store. */
+        final AtomicInteger writes = new AtomicInteger();
+
+        /** Released to let writes through. */
+        final CountDownLatch gate = new CountDownLatch(1);
+
+        /** Number of times flush was called. */
+        final AtomicInteger flushes = new AtomicInteger();
+
+        @Override
+        public boolean contains(String userName) {
+            return true;
+        }
+
+        @Override
+        public synchronized String getField(String userName, int index) {
+            return values.get(userName + "/" + index);
+        }
+
+        @Override
+        public boolean setField(String userName, int index, String newValue) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                values.put(userName + "/" + index, newValue);
+            }
+            writes.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public boolean addRow(String[] row) {
+            return true;
+        }
+
+        @Override
+        public boolean removeRow(String userName) {
+            return true;
+        }
+
+        @Override
+        public ArrayList<String> getUserNames() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public Map<String, Map<String, String>> toMap() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public void flush() {
+            flushes.incrementAndGet();
+        }
+    }
+
+    /**
+     * Verifies that repeated changes to one column while the writer is busy are written once,
+     * with the last value, and that the queued value can be read before it is written.
+     */
+    @Test
+    public void testCoalescesAndReadsOwnWrites() {
+        SlowStore store = new SlowStore();
+        PersistenceQueue queue = new PersistenceQueue(store, 16);
+        queue.submit("alice", 6, "1");
+        // Wait until the writer holds the first change, so the next ones queue up behind it
+        while (queue.waiting() > 0) {
+            Thread.onSpinWait();
+        }
+        for (int i = 2; i <= 100; i++) {
+            queue.submit("alice", 6, Integer.toString(i));
+        }
+        assertEquals("100", queue.pendingValue("alice", 6));
+        store.gate.countDown();
+        queue.flush();
+        assertEquals("100", store.getField("alice", 6));
+        assertTrue(store.writes.get() <= 2);
+        assertEquals(1, store.flushes.get());
+        assertNull(queue.pendingValue("alice", 6));
+    }
+
+    /**
+     * Verifies that submitting blocks once the queue is full and resumes when the writer drains it.
+     *
+     * @throws InterruptedException if the submitting thread is interrupted.
+     */
+    @Test
+    public void testBackpressure() throws InterruptedException {
+        SlowStore store = new SlowStore();
+        PersistenceQueue queue = new PersistenceQueue(store, 2);
+        Thread submitter = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                queue.submit("user" + i, 1, "x");
+            }
+        });
+        submitter.start();
+        submitter.join(200);
+        assertTrue(submitter.isAlive());
+        store.gate.countDown();
+        submitter.join();
+        queue.awaitDrained();
+        assertEquals(10, store.writes.get());
+    }
+
+    /**
+     * Verifies that a flush reports a change the store failed to write, and that the next flush starts clean.
+     */
+    @Test
+    public void testFlushReportsFailedWrites() {
+        SlowStore store = new SlowStore() {
+            @Override
+            public boolean setField(String userName, int index, String newValue) {
+                if (userName.equals("broken")) {
+                    throw new IllegalStateException("cannot write " + userName);
+                }
+                return super.setField(userName, index, newValue);
+            }
+        };
+        store.gate.countDown();
+        PersistenceQueue queue = new PersistenceQueue(store, 16);
+        queue.submit("broken", 6, "1");
+        queue.submit("alice", 6, "2");
+        assertFalse(queue.flush());
+        assertEquals("2", store.getField("alice", 6));
+
+        queue.submit("alice", 6, "3");
+        assertTrue(queue.flush());
+    }
+}
@@ -1,20 +1,20 @@
 /**
  * The Player class represents a player user in the game.
  * It extends the User class and provides methods to interact with user data
- * stored in a CSV file using the CsvHandler class.
+ * kept by the configured {@link UserRepository}.
  */
 public class Player extends User {
 
     /**
      * Constructs a new Player with the given username and password.
-     * This constructor also adds the player to the CSV file using CsvHandler.
+     * This constructor also adds the player to the user storage through the {@link UserRepository}.
      *
      * @param username The username of the player.
      * @param password The password of the player.
      */
     public Player(String username, String password) {
         super(username, password);
-        System.out.println(CsvHandler.addUser(username, password));
+        System.out.println(UserRepository.get().addUser(username, password));
     }
 
     /**
@@ -23,7 +23,7 @@ public class Player extends User {
      * @return The number of games played by the player.
      */
     public int getNumGames() {
-        return Integer.parseInt(CsvHandler.getNumGamesPlayed(getUsername()));
+        return getRecord().getNumGamesPlayed();
     }
 
     /**
@@ -32,7 +32,31 @@ public class Player extends User {
      * @return The high score of the player.
      */
     public int getHighScore() {
-        return Integer.parseInt(CsvHandler.getHighScore(getUsername()));
+        return getRecord().getHighScore();
+    }
+
+    /**
+     * Retrieves the rank of the player on the leaderboard, where the best score is rank 1
+     * and players with the same high score share a rank.
+     *
+     * @return The rank of the player.
+     */
+    public int getRank() {
+        return UserRepository.get().countUsersAbove(getHighScore()) + 1;
+    }
+
+    /**
+     * Retrieves the percentile of the player's high score: the share of players scoring the same or lower.
+     *
+     * @return A percentage from 0 to 100.
+     */
+    public double getPercentile() {
+        UserRepository repository = UserRepository.get();
+        int users = repository.countUsers();
+        if (users == 0) {
+            return 100;
+        }
+        return 100.0 * (users - repository.countUsersAbove(getHighScore())) / users;
     }
 
     /**
@@ -41,7 +65,25 @@ public class Player extends User {
      * @return The accuracy rate of the player.
      */
     public float getAccuracy() {
-        return Float.parseFloat(CsvHandler.getAccuracyRate(getUsername()));
+        return getRecord().getAccuracyRate();
+    }
+
+    /**
+     * Retrieves all of the player's stats at once, with the numbers already parsed.
+     * Screens that show several stats read this once instead of calling each getter.
+     * A player that is no longer in the user storage reads as a new player, since the screens call this
+     * from Swing listeners that have no way to recover from an exception.
+     *
+     * @return A copy of the player's record, or a record of default stats if the player is not stored.
+     */
+    public PlayerRecord getRecord() {
+        PlayerRecord record = UserRepository.get().getRecord(getUsername());
+        if (record == null) {
+            String[] row = CsvSchema.USERS.newRow();
+            row[PlayerRecord.USER_NAME] = getUsername();
+            return PlayerRecord.parse(row);
+        }
+        return record;
     }
 
     /**
@@ -50,7 +92,7 @@ public class Player extends User {
      * @param numGames The number of games played by the player.
      */
     public void setNumGames(int numGames) {
-        CsvHandler.changeNumGamesPlayed(getUsername(), Integer.toString(numGames));
+        UserRepository.get().changeNumGamesPlayed(getUsername(), Integer.toString(numGames));
     }
 
     /**
@@ -60,34 +102,53 @@ public class Player extends User {
      */
     public void setHighScore(int highScore) {
         if (highScore >= 0) {
-            CsvHandler.changeHighScore(getUsername(), Integer.toString(highScore));
+            UserRepository.get().changeHighScore(getUsername(), Integer.toString(highScore));
         }
     }
 
+    /**
+     * Adds to the high score of the player as one step through {@link UserRepository#updateUser}, so concurrent
+     * changes to the same player are not lost, even from another process sharing the user file.
+     * A result below zero leaves the high score unchanged, like {@link #setHighScore(int)}.
+     * Nothing is changed for a player that is no longer in the user storage, as with the other setters.
+     *
+     * @param delta The amount to add, negative to subtract.
+     * @return The high score after the change, or 0 if the player is not stored.
+     */
+    public int addToHighScore(int delta) {
+        int[] result = new int[1];
+        UserRepository.get().updateUser(getUsername(), record -> {
+            record.setHighScore(record.getHighScore() + delta);
+            result[0] = record.getHighScore();
+        });
+        return result[0];
+    }
+
     /**
      * Sets the accuracy rate of the player.
      *
      * @param accuracy The accuracy rate of the player.
      */
     public void setAccuracy(float accuracy) {
-        CsvHandler.changeAccuracyRate(getUsername(), Float.toString(accuracy));
+        UserRepository.get().changeAccuracyRate(getUsername(), Float.toString(accuracy));
     }
 
     /**
-     * Sets the game data for the player.
+     * Sets the game data for the player. The data is kept in the player's save slot,
+     * not in the user file, and "None" removes it.
      *
      * @param gameData The game data to set for the player.
      */
     public void setGameData(String gameData) {
-        CsvHandler.changeListOfCountry(getUsername(), gameData);
+        SaveSlotStore.get().save(getUsername(), gameData);
     }
 
     /**
-     * Retrieves the game data for the player.
+     * Retrieves the game data for the player from the player's save slot.
      *
-     * @return The game data for the player.
+     * @return The game data for the player, or "None" if there is no saved game.
      */
     public String getGameData() {
-        return CsvHandler.getListOfCountry(getUsername());
+        return SaveSlotStore.get().load(getUsername());
     }
 }
@@ -0,0 +1,409 @@
+import java.util.Arrays;
+
+/**
+ * One user's row with its numbers held as {@code int} and {@code float} fields. The text of a row is parsed
+ * once, when it is loaded, and numbers are only turned back into text when the row is written out or read
+ * through the string-based methods of {@link CsvHandler}. {@link UserTable} keeps its rows in this form.
+ *
+ * <p>A numeric column whose stored text would not come back unchanged from its value, such as {@code "100"}
+ * for a float, {@code "007"} or {@code "50%"}, keeps that text as well, so rows are written back exactly as
+ * they were read. If the text is not a number at all, the typed getter throws {@link NumberFormatException},
+ * as parsing it did before. Columns after the known ones are kept as text.
+ *
+ * <p>Records are not thread safe; stores hand out copies.
+ */
+public class PlayerRecord {
+
+    /** Column indices, in the order of {@link CsvHandler#HEADER}. */
+    static final int USER_NAME = 0, PASSWORD = 1, NUM_GAMES_PLAYED = 2, SAVED_GAME = 3,
+            ACCURACY_RATE = 4, LIST_OF_COUNTRY = 5, HIGH_SCORE = 6;
+
+    /** Number of columns this class knows by name. */
+    static final int COLUMNS = 7;
+
+    /** The username. */
+    private final String userName;
+
+    /** Number of columns in the row, usually {@link #COLUMNS}. */
+    private final int width;
+
+    /** The password. */
+    private String password;
+
+    /** The saved game flag. */
+    private String savedGame;
+
+    /** The list of countries column. */
+    private String listOfCountry;
+
+    /** Number of games played. */
+    private int numGamesPlayed;
+
+    /** Accuracy rate as a percentage. */
+    private float accuracyRate;
+
+    /** High score. */
+    private int highScore;
+
+    /** Stored text of a numeric column that its value does not reproduce, otherwise null. */
+    private String rawNumGamesPlayed, rawAccuracyRate, rawHighScore;
+
+    /** One bit per numeric column, by index, set when its text is not a number or the column is missing. */
+    private int invalid;
+
+    /** Columns from {@link #COLUMNS} on, or null if there are none. */
+    private final String[] extra;
+
+    /** Version of the row in the store it came from, which changes on every change to the row; 0 if untracked. */
+    private long version;
+
+    /**
+     * Creates a record from typed values.
+     *
+     * @param userName The username.
+     * @param password The password.
+     * @param numGamesPlayed The number of games played.
+     * @param savedGame The saved game flag.
+     * @param accuracyRate The accuracy rate as a percentage.
+     * @param listOfCountry The list of countries column.
+     * @param highScore The high score.
+     */
+    public PlayerRecord(String userName, String password, int numGamesPlayed, String savedGame,
+                        float accuracyRate, String listOfCountry, int highScore) {
+        this(userName, COLUMNS, null);
+        this.password = password;
+        this.numGamesPlayed = numGamesPlayed;
+        this.savedGame = savedGame;
+        this.accuracyRate = accuracyRate;
+        this.listOfCountry = listOfCountry;
+        this.highScore = highScore;
+    }
+
+    /**
+     * Creates an empty record.
+     *
+     * @param userName The username.
+     * @param width Number of columns in the row.
+     * @param extra Columns from {@link #COLUMNS} on, or null.
+     */
+    private PlayerRecord(String userName, int width, String[] extra) {
+        this.userName = userName;
+        this.width = width;
+        this.extra = extra;
+    }
+
+    /**
+     * Parses a stored row.
+     *
+     * @param row Every column of the user, in the order of {@link CsvHandler#HEADER}.
+     * @return The record.
+     */
+    public static PlayerRecord parse(String[] row) {
+        PlayerRecord record = new PlayerRecord(row[0], row.length,
+                row.length > COLUMNS ? Arrays.copyOfRange(row, COLUMNS, row.length) : null);
+        record.invalid = (1 << NUM_GAMES_PLAYED) | (1 << ACCURACY_RATE) | (1 << HIGH_SCORE);
+        for (int i = 1; i < Math.min(row.length, COLUMNS); i++) {
+            record.setColumn(i, row[i]);
+        }
+        return record;
+    }
+
+    /**
+     * Returns an independent copy of this record.
+     *
+     * @return The copy.
+     */
+    public PlayerRecord copy() {
+        PlayerRecord copy = new PlayerRecord(userName, width, extra == null ? null : extra.clone());
+        copy.password = password;
+        copy.savedGame = savedGame;
+        copy.listOfCountry = listOfCountry;
+        copy.numGamesPlayed = numGamesPlayed;
+        copy.accuracyRate = accuracyRate;
+        copy.highScore = highScore;
+        copy.rawNumGamesPlayed = rawNumGamesPlayed;
+        copy.rawAccuracyRate = rawAccuracyRate;
+        copy.rawHighScore = rawHighScore;
+        copy.invalid = invalid;
+        copy.version = version;
+        return copy;
+    }
+
+    /**
+     * Returns the username, which cannot be changed.
+     *
+     * @return The username.
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * Returns the password.
+     *
+     * @return The password.
+     */
+    public String getPassword() {
+        return password;
+    }
+
+    /**
+     * Sets the password.
+     *
+     * @param password The new password.
+     */
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * Returns the number of games played.
+     *
+     * @return The number of games played.
+     * @throws NumberFormatException If the stored value is not a number.
+     */
+    public int getNumGamesPlayed() {
+        check(NUM_GAMES_PLAYED, rawNumGamesPlayed);
+        return numGamesPlayed;
+    }
+
+    /**
+     * Sets the number of games played.
+     *
+     * @param numGamesPlayed The new number of games played.
+     */
+    public void setNumGamesPlayed(int numGamesPlayed) {
+        this.numGamesPlayed = numGamesPlayed;
+        rawNumGamesPlayed = null;
+        invalid &= ~(1 << NUM_GAMES_PLAYED);
+    }
+
+    /**
+     * Returns the saved game flag.
+     *
+     * @return The saved game flag.
+     */
+    public String getSavedGame() {
+        return savedGame;
+    }
+
+    /**
+     * Sets the saved game flag.
+     *
+     * @param savedGame The new flag.
+     */
+    public void setSavedGame(String savedGame) {
+        this.savedGame = savedGame;
+    }
+
+    /**
+     * Returns the accuracy rate, as a percentage.
+     *
+     * @return The accuracy rate.
+     * @throws NumberFormatException If the stored value is not a number.
+     */
+    public float getAccuracyRate() {
+        check(ACCURACY_RATE, rawAccuracyRate);
+        return accuracyRate;
+    }
+
+    /**
+     * Sets the accuracy rate.
+     *
+     * @param accuracyRate The new accuracy rate, as a percentage.
+     */
+    public void setAccuracyRate(float accuracyRate) {
+        this.accuracyRate = accuracyRate;
+        rawAccuracyRate = null;
+        invalid &= ~(1 << ACCURACY_RATE);
+    }
+
+    /**
+     * Returns the list of countries column.
+     *
+     * @return The column value.
+     */
+    public String getListOfCountry() {
+        return listOfCountry;
+    }
+
+    /**
+     * Sets the list of countries column.
+     *
+     * @param listOfCountry The new column value.
+     */
+    public void setListOfCountry(String listOfCountry) {
+        this.listOfCountry = listOfCountry;
+    }
+
+    /**
+     * Returns the high score.
+     *
+     * @return The high score.
+     * @throws NumberFormatException If the stored value is not a number.
+     */
+    public int getHighScore() {
+        check(HIGH_SCORE, rawHighScore);
+        return highScore;
+    }
+
+    /**
+     * Sets the high score. A negative score is ignored, like {@link Player#setHighScore(int)}.
+     *
+     * @param highScore The new high score.
+     */
+    public void setHighScore(int highScore) {
+        if (highScore >= 0) {
+            this.highScore = highScore;
+            rawHighScore = null;
+            invalid &= ~(1 << HIGH_SCORE);
+        }
+    }
+
+    /**
+     * Returns the version the row had in its store when this record was read. A store that tracks versions,
+     * like {@link UserTable}, gives every change to the row a higher one, so a writer can tell whether the row
+     * changed since it was read.
+     *
+     * @return The version, or 0 if the store does not track versions.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the row, done by the store that holds it.
+     *
+     * @param version The new version.
+     */
+    void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Returns the number of columns in the row.
+     *
+     * @return The column count.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Returns the stored text of one column, formatting numbers as {@link Player} always has.
+     *
+     * @param index The column index.
+     * @return The column value, or null if the row has no such column.
+     */
+    public String getColumn(int index) {
+        if (index < 0 || index >= width) {
+            return null;
+        }
+        return switch (index) {
+            case USER_NAME -> userName;
+            case PASSWORD -> password;
+            case NUM_GAMES_PLAYED -> isText(NUM_GAMES_PLAYED, rawNumGamesPlayed) ? rawNumGamesPlayed : Integer.toString(numGamesPlayed);
+            case SAVED_GAME -> savedGame;
+            case ACCURACY_RATE -> isText(ACCURACY_RATE, rawAccuracyRate) ? rawAccuracyRate : Float.toString(accuracyRate);
+            case LIST_OF_COUNTRY -> listOfCountry;
+            case HIGH_SCORE -> isText(HIGH_SCORE, rawHighScore) ? rawHighScore : Integer.toString(highScore);
+            default -> extra[index - COLUMNS];
+        };
+    }
+
+    /**
+     * Sets one column from its stored text, parsing numbers.
+     *
+     * @param index The column index; the username cannot be changed.
+     * @param value The new text.
+     * @return true if the row has the column and it was set, otherwise false.
+     */
+    public boolean setColumn(int index, String value) {
+        if (index <= 0 || index >= width) {
+            return false;
+        }
+        switch (index) {
+            case PASSWORD -> password = value;
+            case SAVED_GAME -> savedGame = value;
+            case LIST_OF_COUNTRY -> listOfCountry = value;
+            case NUM_GAMES_PLAYED -> {
+                try {
+                    setNumGamesPlayed(Integer.parseInt(value));
+                    rawNumGamesPlayed = Integer.toString(numGamesPlayed).equals(value) ? null : value;
+                } catch (NumberFormatException e) {
+                    rawNumGamesPlayed = value;
+                    invalid |= 1 << NUM_GAMES_PLAYED;
+                }
+            }
+            case ACCURACY_RATE -> {
+                try {
+                    setAccuracyRate(Float.parseFloat(value));
+                    rawAccuracyRate = Float.toString(accuracyRate).equals(value) ? null : value;
+                } catch (NumberFormatException | NullPointerException e) {
+                    rawAccuracyRate = value;
+                    invalid |= 1 << ACCURACY_RATE;
+                }
+            }
+            case HIGH_SCORE -> {
+                try {
+                    // Unlike setHighScore, a stored negative value is kept as it is
+                    highScore = Integer.parseInt(value);
+                    invalid &= ~(1 << HIGH_SCORE);
+                    rawHighScore = Integer.toString(highScore).equals(value) ? null : value;
+                } catch (NumberFormatException e) {
+                    rawHighScore = value;
+                    invalid |= 1 << HIGH_SCORE;
+                }
+            }
+            default -> extra[index - COLUMNS] = value;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the stored text of every column, for writing the row out.
+     *
+     * @return A new array holding the row.
+     */
+    public String[] toRow() {
+        String[] row = new String[width];
+        for (int i = 0; i < width; i++) {
+            row[i] = getColumn(i);
+        }
+        return row;
+    }
+
+    /**
+     * Tells whether a numeric column must be written as its stored text rather than formatted from its value.
+     *
+     * @param index The column index.
+     * @param raw The stored text kept for the column.
+     * @return true if the text is used.
+     */
+    private boolean isText(int index, String raw) {
+        return raw != null || (invalid & (1 << index)) != 0;
+    }
+
+    /**
+     * Checks whether a numeric column holds a number, so its typed getter will not throw.
+     *
+     * @param index The column index.
+     * @return false if the column's stored text could not be parsed.
+     */
+    public boolean isNumber(int index) {
+        return (invalid & (1 << index)) == 0;
+    }
+
+    /**
+     * Throws the error parsing a column's text gave when it was loaded, if it was not a number.
+     *
+     * @param index The column index.
+     * @param raw The stored text kept for the column.
+     * @throws NumberFormatException If the column does not hold a number.
+     */
+    private void check(int index, String raw) {
+        if ((invalid & (1 << index)) != 0) {
+            throw new NumberFormatException(raw == null ? "Cannot parse null string" : "For input string: \"" + raw + "\"");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link PlayerRecord} class: numbers parsed once, stored text written back unchanged,
+ * values that are not numbers, and rows with more or fewer columns than usual.
+ */
+public class PlayerRecordTest {
+
+    /**
+     * Verifies that a row is parsed into typed values and written back exactly as it was read.
+     */
+    @Test
+    public void testParseAndRoundTrip() {
+        String[] row = {"alice", "secret", "007", "N", "100", "None", "42"};
+        PlayerRecord record = PlayerRecord.parse(row);
+
+        assertEquals(7, record.getNumGamesPlayed());
+        assertEquals(100f, record.getAccuracyRate(), 0f);
+        assertEquals(42, record.getHighScore());
+        assertArrayEquals(row, record.toRow());
+    }
+
+    /**
+     * Verifies that typed setters replace the stored text with the standard format.
+     */
+    @Test
+    public void testSettersFormatNumbers() {
+        PlayerRecord record = PlayerRecord.parse(new String[]{"bob", "secret", "007", "N", "100", "None", "0"});
+        record.setNumGamesPlayed(8);
+        record.setAccuracyRate(87.5f);
+        record.setHighScore(-5);
+
+        assertArrayEquals(new String[]{"bob", "secret", "8", "N", "87.5", "None", "0"}, record.toRow());
+    }
+
+    /**
+     * Verifies that text that is not a number is kept, and that reading it as a number fails like parsing did.
+     */
+    @Test
+    public void testTextThatIsNotANumber() {
+        PlayerRecord record = PlayerRecord.parse(new String[]{"carol", "secret", "3", "N", "50%", "None", "0"});
+
+        assertEquals("50%", record.getColumn(PlayerRecord.ACCURACY_RATE));
+        assertThrows(NumberFormatException.class, record::getAccuracyRate);
+        record.setColumn(PlayerRecord.ACCURACY_RATE, "60.0");
+        assertEquals(60f, record.getAccuracyRate(), 0f);
+    }
+
+    /**
+     * Verifies that extra columns are kept, missing ones read as null, and copies are independent.
+     */
+    @Test
+    public void testOtherWidths() {
+        PlayerRecord wide = PlayerRecord.parse(new String[]{"dave", "secret", "0", "N", "100", "None", "0", "extra"});
+        assertEquals("extra", wide.getColumn(7));
+        assertTrue(wide.setColumn(7, "changed"));
+        assertEquals("changed", wide.toRow()[7]);
+
+        PlayerRecord narrow = PlayerRecord.parse(new String[]{"erin", "secret"});
+        assertNull(narrow.getColumn(PlayerRecord.HIGH_SCORE));
+        assertFalse(narrow.setColumn(PlayerRecord.HIGH_SCORE, "5"));
+        assertThrows(NumberFormatException.class, narrow::getHighScore);
+
+        PlayerRecord copy = wide.copy();
+        copy.setHighScore(9);
+        assertEquals(0, wide.getHighScore());
+    }
+}
@@ -93,4 +93,35 @@ public class PlayerTest {
         // Ensuring the accuracy percentage is correctly updated and retrieved
         assertEquals(75.0f, player1.getAccuracy());
     }
+
+    /**
+     * Tests adding to the player's high score.
+     * This method checks that {@link Player#addToHighScore(int)} returns and stores the new score,
+     * and that a change that would go below zero leaves the score as it was.
+     */
+    @Test
+    void testAddToHighScore() {
+        player1 = new Player("testuser", "testpassword");
+        player1.setHighScore(10);
+        assertEquals(15, player1.addToHighScore(5));
+        assertEquals(15, player1.getHighScore());
+        // Going below zero is ignored
+        assertEquals(15, player1.addToHighScore(-20));
+    }
+
+    /**
+     * Tests a player whose user is no longer stored.
+     * This method checks that {@link Player#getRecord()} gives default stats and that
+     * {@link Player#addToHighScore(int)} changes nothing, instead of throwing from a screen's listener.
+     */
+    @Test
+    void testMissingUser() {
+        player1 = new Player("goneuser", "testpassword");
+        UserRepository.get().deleteUser("goneuser");
+
+        assertEquals("goneuser", player1.getRecord().getUserName());
+        assertEquals(0, player1.getHighScore());
+        assertEquals(0, player1.addToHighScore(5));
+        assertFalse(UserRepository.get().isDuplicateUser("goneuser"));
+    }
 }
@@ -0,0 +1,179 @@
+/**
+ * Answers rank and percentile questions from the distribution of high scores, without sorting anyone.
+ * Scores are counted in a Fenwick tree (binary indexed tree), so adding, removing or moving a score and
+ * counting the users above a score each take O(log range) time, where range is the highest score seen.
+ *
+ * <p>The tree starts small and doubles as higher scores come in. Scores from {@link #MAX_RANGE} up are
+ * counted as {@code MAX_RANGE - 1}, so users that high rank level with each other, and scores below 0, which
+ * only a damaged or hand-edited file holds, are counted as 0. Counting and querying clamp the same way. Each {@link Leaderboard}
+ * owns one and keeps it in step with its entries, which covers every high score change made through
+ * {@link CsvHandler}, including {@link Player#setHighScore(int)}. All methods are thread safe.
+ */
+public class RankService {
+
+    /** Highest number of distinct scores tracked, which bounds the tree at 16 MiB. */
+    static final int MAX_RANGE = 1 << 22;
+
+    /** Range the tree starts with. */
+    private static final int INITIAL_RANGE = 1024;
+
+    /** The Fenwick tree, 1-based: {@code tree[i]} counts the scores in {@code [i - lowbit(i), i - 1]}. */
+    private int[] tree = new int[INITIAL_RANGE + 1];
+
+    /** Number of scores counted. */
+    private int total;
+
+    /**
+     * Returns the rank service of the shared leaderboard.
+     *
+     * @return The shared rank service.
+     */
+    public static RankService get() {
+        return Leaderboard.get().getRanks();
+    }
+
+    /**
+     * Counts a new score.
+     *
+     * @param score The score.
+     */
+    public synchronized void add(int score) {
+        change(score, 1);
+        total++;
+    }
+
+    /**
+     * Stops counting a score.
+     *
+     * @param score The score, which must have been added.
+     */
+    public synchronized void remove(int score) {
+        change(score, -1);
+        total--;
+    }
+
+    /**
+     * Moves one counted score to another value, as one step.
+     *
+     * @param oldScore The score that was counted.
+     * @param newScore The score that replaces it.
+     */
+    public synchronized void move(int oldScore, int newScore) {
+        change(oldScore, -1);
+        change(newScore, 1);
+    }
+
+    /**
+     * Counts the users whose score is strictly higher than a score.
+     *
+     * @param score The score.
+     * @return The number of higher scores.
+     */
+    public synchronized int countAbove(int score) {
+        return total - countAtOrBelow(score);
+    }
+
+    /**
+     * Returns the rank a score has, where the best score is rank 1 and equal scores share a rank.
+     *
+     * @param score The score.
+     * @return One more than the number of higher scores.
+     */
+    public synchronized int rankOf(int score) {
+        return countAbove(score) + 1;
+    }
+
+    /**
+     * Returns the rank of a user on the shared leaderboard.
+     *
+     * @param userName The username.
+     * @return The rank, or 0 if the user is not on the leaderboard.
+     */
+    public int rankOf(String userName) {
+        Integer score = Leaderboard.get().getScore(userName);
+        return score == null ? 0 : rankOf(score);
+    }
+
+    /**
+     * Returns the percentile of a score: the share of users scoring the same or lower.
+     *
+     * @param score The score.
+     * @return A percentage from 0 to 100, or 100 if no scores are counted.
+     */
+    public synchronized double percentileOf(int score) {
+        if (total == 0) {
+            return 100;
+        }
+        return 100.0 * countAtOrBelow(score) / total;
+    }
+
+    /**
+     * Returns the number of scores counted.
+     *
+     * @return The count.
+     */
+    public synchronized int size() {
+        return total;
+    }
+
+    /**
+     * Counts the scores at or below a score, summing the tree from the score's position down.
+     *
+     * @param score The score.
+     * @return The number of scores at or below it.
+     */
+    private int countAtOrBelow(int score) {
+        int count = 0;
+        for (int i = Math.min(position(score), tree.length - 2) + 1; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    /**
+     * Adds to the count of one score, growing the tree first if the score is past its range.
+     *
+     * @param score The score.
+     * @param delta The change in its count.
+     */
+    private void change(int score, int delta) {
+        int position = position(score);
+        if (position >= tree.length - 1) {
+            grow(position);
+        }
+        for (int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the position a score is counted at.
+     *
+     * @param score The score.
+     * @return The score clamped to {@code [0, MAX_RANGE - 1]}.
+     */
+    static int position(int score) {
+        return Math.min(Math.max(score, 0), MAX_RANGE - 1);
+    }
+
+    /**
+     * Doubles the range until it covers a score. Nodes up to the old range cover the same scores as before,
+     * and the only new nodes covering old scores are the powers of two above it, which cover every score
+     * below them; so those get the old total and every other new node starts at 0.
+     *
+     * @param position The score the tree must cover.
+     */
+    private void grow(int position) {
+        int oldRange = tree.length - 1;
+        int newRange = oldRange;
+        while (newRange <= position) {
+            newRange *= 2;
+        }
+        int[] grown = new int[newRange + 1];
+        System.arraycopy(tree, 0, grown, 0, tree.length);
+        for (int power = oldRange * 2; power <= newRange; power *= 2) {
+            grown[power] = tree[oldRange];
+        }
+        tree = grown;
+    }
+}
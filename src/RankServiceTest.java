@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link RankService} class: counts against a plain scan, growth past the initial range,
+ * shared ranks for ties and a leaderboard keeping its ranks in step. Every test uses its own service.
+ */
+public class RankServiceTest {
+
+    /**
+     * Verifies that counts above a score match a scan of the scores, including after growing and removing.
+     */
+    @Test
+    public void testMatchesScan() {
+        RankService ranks = new RankService();
+        int[] scores = new int[500];
+        Random random = new Random(7);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextInt(5000);
+            ranks.add(scores[i]);
+        }
+        for (int i = 0; i < 100; i++) {
+            int moved = random.nextInt(20000);
+            ranks.move(scores[i], moved);
+            scores[i] = moved;
+        }
+        ranks.remove(scores[499]);
+        scores[499] = -1;
+
+        for (int probe = -1; probe < 21000; probe += 37) {
+            int above = 0;
+            for (int score : scores) {
+                if (score > probe) {
+                    above++;
+                }
+            }
+            assertEquals(above, ranks.countAbove(probe), "above " + probe);
+        }
+        assertEquals(499, ranks.size());
+    }
+
+    /**
+     * Verifies ranks with ties and percentiles.
+     */
+    @Test
+    public void testRankAndPercentile() {
+        RankService ranks = new RankService();
+        ranks.add(10);
+        ranks.add(50);
+        ranks.add(50);
+        ranks.add(90);
+
+        assertEquals(1, ranks.rankOf(90));
+        assertEquals(2, ranks.rankOf(50));
+        assertEquals(4, ranks.rankOf(10));
+        assertEquals(75.0, ranks.percentileOf(50), 1e-9);
+        assertEquals(100.0, ranks.percentileOf(90), 1e-9);
+        assertEquals(0.0, ranks.percentileOf(5), 1e-9);
+        assertEquals(100.0, new RankService().percentileOf(0), 1e-9);
+    }
+
+    /**
+     * Verifies that a negative score is counted and queried as 0, so it ranks level with a score of 0.
+     */
+    @Test
+    public void testNegativeScoresCountAsZero() {
+        RankService ranks = new RankService();
+        ranks.add(-5);
+        ranks.add(0);
+        ranks.add(20);
+
+        assertEquals(1, ranks.countAbove(-5));
+        assertEquals(ranks.rankOf(0), ranks.rankOf(-5));
+        assertEquals(ranks.percentileOf(0), ranks.percentileOf(-3), 1e-9);
+        ranks.move(-5, 30);
+        assertEquals(1, ranks.rankOf(30));
+        assertEquals(3, ranks.rankOf(-1));
+    }
+
+    /**
+     * Verifies that a leaderboard updates its ranks when scores are added, changed and removed.
+     */
+    @Test
+    public void testLeaderboardKeepsRanks() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.update("alice", 30);
+        leaderboard.update("bob", 20);
+        leaderboard.update("bob", 40);
+        leaderboard.update("carol", 10);
+        leaderboard.remove("carol");
+
+        RankService ranks = leaderboard.getRanks();
+        assertEquals(2, ranks.size());
+        assertEquals(1, ranks.countAbove(30));
+        assertEquals(0, ranks.countAbove(40));
+    }
+}
@@ -216,8 +216,12 @@ public class RegisterScreen extends Screen {
      */
     public void registerButton() {
         if (password.getText().equals(password_2.getText())) {
-            String s = CsvHandler.credentialChecker(username.getText(), password.getText());
-            if (!s.equals("ok")) {
+            String s = UserRepository.get().credentialChecker(username.getText(), password.getText());
+            if (s.equals("ok")) {
+                // The check can pass and the account still not be stored, e.g. if someone took the name meanwhile
+                s = UserRepository.get().addUser(username.getText(), password.getText());
+            }
+            if (!s.equals("APPROVED")) {
                 displayErrorMessage(s);
             } else {
                 Player player = new Player(username.getText(), password.getText());
@@ -0,0 +1,214 @@
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Saved game sessions, one small file per user in {@link StorageConfig#SAVE_DIR}, kept apart from the
+ * account and stats data in {@code database.csv}. Autosaving a session therefore never touches the user file.
+ *
+ * <p>Saves are written in the background: the newest session of each user is remembered in memory and
+ * written by one thread, so saving every second costs at most one file write per user per pass, however
+ * often it is called. Each file is replaced atomically through {@link AtomicFiles}.
+ * Sessions saved by older versions in the {@code listOfCountry} column are moved here the first time they are read.
+ */
+public class SaveSlotStore {
+
+    /** The value meaning "no saved game", the same sentinel the user file has always used. */
+    public static final String NO_SAVE = "None";
+
+    /** The store shared by the whole process, created on first use. */
+    private static SaveSlotStore instance;
+
+    /** Folder holding the save files. */
+    private final Path directory;
+
+    /** Newest session of every user saved or loaded since startup, {@link #NO_SAVE} for none. */
+    private final ConcurrentHashMap<String, String> latest = new ConcurrentHashMap<>();
+
+    /** Users whose newest session still has to be written. */
+    private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+
+    /** Users whose last write failed, so their newest session is not on disk. */
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+
+    /** The single thread writing save files. */
+    private final ExecutorService writer;
+
+    /**
+     * Returns the store shared by the whole process, saving to {@link StorageConfig#SAVE_DIR}.
+     * The first call registers a shutdown hook that writes the saves still queued, since the writer
+     * thread does not keep the JVM alive.
+     *
+     * @return The shared save store.
+     */
+    public static synchronized SaveSlotStore get() {
+        if (instance == null) {
+            instance = new SaveSlotStore(Paths.get(StorageConfig.SAVE_DIR));
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::flush, "geocraft-saves-flush-on-exit"));
+        }
+        return instance;
+    }
+
+    /**
+     * Writes the saves still queued by the shared store, if it has been created, and replaces it with one
+     * saving into another folder. Lets tests keep saved games out of {@link StorageConfig#SAVE_DIR}.
+     *
+     * @param directory Folder the shared store saves into from now on.
+     */
+    static synchronized void useDirectory(Path directory) {
+        if (instance != null) {
+            instance.flush();
+            instance.writer.shutdown();
+        }
+        instance = new SaveSlotStore(directory);
+    }
+
+    /**
+     * Creates a store saving into the given folder, which is created when the first save is written.
+     *
+     * @param directory Folder holding the save files.
+     */
+    SaveSlotStore(Path directory) {
+        this.directory = directory;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "geocraft-saves");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Remembers a user's session and queues it to be written. Does not block.
+     *
+     * @param userName The user the session belongs to.
+     * @param session The serialized session, see {@code GameTesting.toString()}.
+     */
+    public void save(String userName, String session) {
+        latest.put(userName, session);
+        if (scheduled.add(userName)) {
+            writer.execute(() -> write(userName));
+        }
+    }
+
+    /**
+     * Removes a user's saved session, for when the game it belongs to has ended.
+     *
+     * @param userName The user whose session is removed.
+     */
+    public void clear(String userName) {
+        save(userName, NO_SAVE);
+    }
+
+    /**
+     * Returns a user's saved session.
+     *
+     * @param userName The user whose session is read.
+     * @return The serialized session, or {@link #NO_SAVE} if the user has none.
+     */
+    public String load(String userName) {
+        String cached = latest.get(userName);
+        if (cached != null) {
+            return cached;
+        }
+        String session = NO_SAVE;
+        try {
+            // AtomicFiles writes with the platform charset
+            session = new String(Files.readAllBytes(pathFor(userName)), Charset.defaultCharset());
+        } catch (NoSuchFileException e) {
+            session = migrateLegacy(userName);
+        } catch (IOException e) {
+            // Not remembered, so the next load tries the file again instead of a later save overwriting it unread
+            e.printStackTrace();
+            return NO_SAVE;
+        }
+        latest.putIfAbsent(userName, session);
+        return latest.get(userName);
+    }
+
+    /**
+     * Blocks until every save queued so far is on disk.
+     *
+     * @return true if the newest session of every user is on disk, false if a write failed or the wait was cut short.
+     */
+    public boolean flush() {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return false;
+        }
+        return failed.isEmpty();
+    }
+
+    /**
+     * Moves a session saved by an older version from the user file into this store.
+     *
+     * @param userName The user whose session is moved.
+     * @return The session, or {@link #NO_SAVE} if the user file held none.
+     */
+    private String migrateLegacy(String userName) {
+        String legacy = UserRepository.get().getListOfCountry(userName);
+        if (legacy == null || legacy.equals(NO_SAVE)) {
+            return NO_SAVE;
+        }
+        save(userName, legacy);
+        UserRepository.get().changeListOfCountry(userName, NO_SAVE);
+        return legacy;
+    }
+
+    /**
+     * Writes the newest session of a user, or deletes the file if the user has none. Runs on the writer thread.
+     *
+     * @param userName The user whose session is written.
+     */
+    private void write(String userName) {
+        // Unmark first, so a save made while writing queues another write
+        scheduled.remove(userName);
+        String session = latest.get(userName);
+        Path path = pathFor(userName);
+        try {
+            if (session == null || session.equals(NO_SAVE)) {
+                Files.deleteIfExists(path);
+            } else {
+                Files.createDirectories(directory);
+                AtomicFiles.write(path, out -> out.write(session));
+            }
+            failed.remove(userName);
+        } catch (IOException e) {
+            // Reported by the next flush, until a later save of the same user is written
+            e.printStackTrace();
+            failed.add(userName);
+        }
+    }
+
+    /**
+     * Returns the save file of a user. Lowercase alphanumeric names are used as they are; anything else
+     * is hex encoded, so it can never escape the save folder or clash with another user's file on a
+     * case-insensitive file system.
+     *
+     * @param userName The user.
+     * @return The path of the user's save file.
+     */
+    Path pathFor(String userName) {
+        if (userName.matches("^[a-z0-9]+$")) {
+            return directory.resolve(userName + ".sav");
+        }
+        StringBuilder hex = new StringBuilder("_");
+        for (byte b : userName.getBytes(StandardCharsets.UTF_8)) {
+            hex.append(String.format("%02x", b));
+        }
+        return directory.resolve(hex + ".sav");
+    }
+}
@@ -0,0 +1,81 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SaveSlotStore} class, covering saving and loading a session across
+ * store instances, clearing a save and the naming of save files. Every test uses its own folder.
+ */
+public class SaveSlotStoreTest {
+
+    /**
+     * Verifies that a flushed session is read back by a new store, and that only the newest session is kept.
+     *
+     * @throws IOException if the temporary folder cannot be created.
+     */
+    @Test
+    public void testSessionSurvivesRestart() throws IOException {
+        Path directory = Files.createTempDirectory("saves");
+        SaveSlotStore store = new SaveSlotStore(directory);
+        for (int i = 0; i < 50; i++) {
+            store.save("alice", "visitedIndices:" + i + ";type:Timed;mode:Flag;continent:All");
+        }
+        store.flush();
+        assertEquals("visitedIndices:49;type:Timed;mode:Flag;continent:All", new SaveSlotStore(directory).load("alice"));
+    }
+
+    /**
+     * Verifies that clearing a session removes its file and loads as no save.
+     *
+     * @throws IOException if the temporary folder cannot be created.
+     */
+    @Test
+    public void testClearRemovesFile() throws IOException {
+        Path directory = Files.createTempDirectory("saves");
+        SaveSlotStore store = new SaveSlotStore(directory);
+        store.save("bob", "type:Marathon");
+        store.flush();
+        assertTrue(Files.exists(store.pathFor("bob")));
+        store.clear("bob");
+        assertEquals(SaveSlotStore.NO_SAVE, store.load("bob"));
+        store.flush();
+        assertFalse(Files.exists(store.pathFor("bob")));
+    }
+
+    /**
+     * Verifies that a flush reports a session that could not be written, until a later save of it is.
+     *
+     * @throws IOException if the temporary files cannot be created.
+     */
+    @Test
+    public void testFlushReportsFailedWrite() throws IOException {
+        // A file where the folder should be makes every write fail
+        Path directory = Files.createTempFile("saves", ".dir");
+        SaveSlotStore store = new SaveSlotStore(directory);
+        store.save("dave", "type:Timed");
+        assertFalse(store.flush());
+
+        Files.delete(directory);
+        store.save("dave", "type:Timed");
+        assertTrue(store.flush());
+        assertTrue(Files.exists(store.pathFor("dave")));
+    }
+
+    /**
+     * Verifies that names which are not lowercase alphanumeric get distinct encoded file names inside the folder.
+     *
+     * @throws IOException if the temporary folder cannot be created.
+     */
+    @Test
+    public void testFileNames() throws IOException {
+        Path directory = Files.createTempDirectory("saves");
+        SaveSlotStore store = new SaveSlotStore(directory);
+        assertEquals(directory.resolve("carol.sav"), store.pathFor("carol"));
+        assertNotEquals(store.pathFor("Carol"), store.pathFor("carol"));
+        assertEquals(directory, store.pathFor("../../etc").getParent());
+    }
+}
@@ -225,6 +225,7 @@ public class SettingScreen extends Screen {
      * Method to handle the action when the logout button is clicked.
      */
     public void logoutButton(){
+        UserRepository.get().flush();
         frame.dispose();
     }
     /**
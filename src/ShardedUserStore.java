@@ -0,0 +1,328 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * User store split into several CSV files by a hash of the username, each one a {@link UserTable} with
+ * its own journal, group committer and compactions. A change only touches the shard holding the user,
+ * so a compaction or snapshot rewrite costs one shard instead of every user, and shards compact
+ * independently on their own flusher threads. Used by {@link CsvHandler} when {@link StorageConfig#USER_SHARDS}
+ * is above 1, or while users are still laid out for another count.
+ *
+ * <p>With one shard the users live in {@code database.csv} itself; with {@code n} shards shard {@code i}
+ * is {@code database.i-of-n.csv}, and the file {@code database.csv.shards} records {@code n}. When the
+ * configured count differs from the recorded one, every user is moved into the new layout before
+ * the store opens: the new files are written first, then the record is switched, then the old files are
+ * deleted, so a crash at any point leaves one complete layout behind.
+ */
+public class ShardedUserStore implements UserRowStore {
+
+    /** The store shared by the whole process, created on first use. */
+    private static ShardedUserStore instance;
+
+    /** One table per shard, indexed by {@link #shardOf(String, int)}. */
+    private final UserTable[] shards;
+
+    /**
+     * Returns the store shared by the whole process, opening (and if needed rebalancing) it the first time.
+     *
+     * @return The shared store.
+     */
+    public static synchronized ShardedUserStore get() {
+        if (instance == null) {
+            boolean shared = StorageConfig.SHARED_STORE;
+            instance = new ShardedUserStore(CsvHandler.filePath, Math.max(1, StorageConfig.USER_SHARDS),
+                    StorageConfig.JOURNAL_ENABLED || shared, shared);
+            for (UserTable shard : instance.shards) {
+                shard.serveCsvHandler();
+                shard.startFlusher(StorageConfig.COMMIT_WINDOW_MS);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Closes the shared store, if it is open, so the next {@link #get()} opens {@link CsvHandler#filePath} again.
+     * Used by {@link CsvHandler#useFile(Path)}.
+     */
+    static synchronized void reset() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Tells whether users are laid out in shards, so {@link CsvHandler} must go through this store
+     * even when the configured count is back to 1.
+     *
+     * @param data The main user file.
+     * @return true if a shard count is recorded next to the file.
+     */
+    static boolean isSharded(Path data) {
+        return Files.exists(manifestPath(data));
+    }
+
+    /**
+     * Opens the shards for a user file, first moving every user into the layout for {@code count} shards
+     * if they are laid out for another count.
+     *
+     * @param data The main user file, {@code database.csv}.
+     * @param count The number of shards.
+     * @param journaled Whether the shard tables journal their changes.
+     * @param shared Whether other processes use the same files; the rebalance then runs under a {@link SharedFileLock}.
+     */
+    ShardedUserStore(Path data, int count, boolean journaled, boolean shared) {
+        SharedFileLock lock = null;
+        try {
+            if (shared) {
+                lock = new SharedFileLock(manifestPath(data));
+                lock.lock();
+            }
+            int current = readCount(data);
+            if (current != count) {
+                rebalance(data, current, count);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (lock != null) {
+                try {
+                    lock.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        shards = new UserTable[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new UserTable(shardPath(data, i, count), journaled, shared);
+        }
+    }
+
+    /**
+     * Returns the shard a user belongs to. {@link String#hashCode()} is fixed by the language,
+     * so a user stays in the same shard across runs; the multiply spreads names that differ only at the end.
+     *
+     * @param userName The username.
+     * @param count The number of shards.
+     * @return The shard index, from 0 to {@code count - 1}.
+     */
+    static int shardOf(String userName, int count) {
+        return Math.floorMod(userName.hashCode() * 0x9E3779B9, count);
+    }
+
+    /**
+     * Returns the file holding one shard.
+     *
+     * @param data The main user file, {@code database.csv}.
+     * @param shard The shard index.
+     * @param count The number of shards.
+     * @return The main file itself for a single shard, otherwise {@code database.<shard>-of-<count>.csv}.
+     */
+    static Path shardPath(Path data, int shard, int count) {
+        if (count == 1) {
+            return data;
+        }
+        String name = data.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot < 0 ? name : name.substring(0, dot);
+        String extension = dot < 0 ? "" : name.substring(dot);
+        return data.resolveSibling(base + "." + shard + "-of-" + count + extension);
+    }
+
+    /**
+     * Returns the file recording the shard count.
+     *
+     * @param data The main user file.
+     * @return The path of {@code database.csv.shards}.
+     */
+    private static Path manifestPath(Path data) {
+        return Paths.get(data + ".shards");
+    }
+
+    /**
+     * Reads the shard count the users are laid out for.
+     *
+     * @param data The main user file.
+     * @return The recorded count, or 1 if none is recorded.
+     * @throws IOException If the record exists but cannot be read.
+     */
+    static int readCount(Path data) throws IOException {
+        Path manifest = manifestPath(data);
+        if (!Files.exists(manifest)) {
+            return 1;
+        }
+        try {
+            return Integer.parseInt(new String(Files.readAllBytes(manifest), StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Not a shard count: " + manifest, e);
+        }
+    }
+
+    /**
+     * Moves every user from the layout for one shard count into the layout for another.
+     * Files left in the target layout by an interrupted rebalance are deleted first, since the recorded
+     * count still names the source layout and they may be incomplete.
+     *
+     * @param data The main user file.
+     * @param from The shard count the users are laid out for now.
+     * @param to The shard count to lay them out for.
+     * @throws IOException If the new layout cannot be recorded.
+     */
+    private static void rebalance(Path data, int from, int to) throws IOException {
+        deleteLayout(data, to);
+        UserTable[] targets = new UserTable[to];
+        for (int i = 0; i < to; i++) {
+            // Journaling off: each target is written once, as one snapshot, when it is closed
+            targets[i] = new UserTable(shardPath(data, i, to), false);
+        }
+        for (int i = 0; i < from; i++) {
+            Path source = shardPath(data, i, from);
+            if (!Files.exists(source)) {
+                continue;
+            }
+            UserTable table = new UserTable(source, true);
+            for (String userName : table.getUserNames()) {
+                targets[shardOf(userName, to)].addRow(table.getRecord(userName).toRow());
+            }
+            table.close();
+        }
+        for (UserTable target : targets) {
+            target.close();
+        }
+        Path manifest = manifestPath(data);
+        if (to == 1) {
+            Files.deleteIfExists(manifest);
+        } else {
+            AtomicFiles.write(manifest, writer -> writer.write(Integer.toString(to)));
+        }
+        deleteLayout(data, from);
+    }
+
+    /**
+     * Deletes the files and journals of every shard of one layout.
+     *
+     * @param data The main user file.
+     * @param count The shard count of the layout.
+     * @throws IOException If a file cannot be deleted.
+     */
+    private static void deleteLayout(Path data, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            Path shard = shardPath(data, i, count);
+            Files.deleteIfExists(shard);
+            Files.deleteIfExists(Paths.get(shard + ".journal"));
+            Files.deleteIfExists(Paths.get(shard + ".journal.old"));
+        }
+    }
+
+    /**
+     * Returns the table holding a user.
+     *
+     * @param userName The username.
+     * @return The user's shard.
+     */
+    private UserTable shard(String userName) {
+        return shards[shardOf(userName, shards.length)];
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return The shard count.
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public boolean contains(String userName) {
+        return shard(userName).contains(userName);
+    }
+
+    @Override
+    public String getField(String userName, int index) {
+        return shard(userName).getField(userName, index);
+    }
+
+    @Override
+    public PlayerRecord getRecord(String userName) {
+        return shard(userName).getRecord(userName);
+    }
+
+    @Override
+    public boolean setField(String userName, int index, String newValue) {
+        return shard(userName).setField(userName, index, newValue);
+    }
+
+    @Override
+    public boolean setFieldsIfVersion(String userName, long expectedVersion, int[] indices, String[] values) {
+        return shard(userName).setFieldsIfVersion(userName, expectedVersion, indices, values);
+    }
+
+    @Override
+    public boolean addRow(String[] row) {
+        return shard(row[0]).addRow(row);
+    }
+
+    @Override
+    public boolean removeRow(String userName) {
+        return shard(userName).removeRow(userName);
+    }
+
+    /**
+     * Retrieves every username, shard by shard.
+     *
+     * @return An ArrayList containing all usernames.
+     */
+    @Override
+    public ArrayList<String> getUserNames() {
+        ArrayList<String> userNames = new ArrayList<>();
+        for (UserTable shard : shards) {
+            userNames.addAll(shard.getUserNames());
+        }
+        return userNames;
+    }
+
+    @Override
+    public Map<String, Map<String, String>> toMap() {
+        Map<String, Map<String, String>> userValuesMap = new HashMap<>();
+        for (UserTable shard : shards) {
+            userValuesMap.putAll(shard.toMap());
+        }
+        return userValuesMap;
+    }
+
+    /**
+     * Makes every change so far durable, flushing the shards in parallel.
+     */
+    @Override
+    public void flush() {
+        Arrays.stream(shards).parallel().forEach(UserTable::flush);
+    }
+
+    /**
+     * Flushes and closes every shard. The store must not be used afterwards.
+     */
+    public void close() {
+        for (UserTable shard : shards) {
+            shard.close();
+        }
+    }
+
+    /**
+     * Returns the tables of every shard, for tools and tests.
+     *
+     * @return The shards, in index order.
+     */
+    List<UserTable> getShards() {
+        return List.of(shards);
+    }
+}
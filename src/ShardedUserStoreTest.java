@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link ShardedUserStore} class: routing users to shards and moving them between
+ * layouts when the shard count changes. Each test works in its own temporary folder.
+ */
+public class ShardedUserStoreTest {
+
+    /**
+     * Verifies that users keep every column through splitting one file into shards, changing the
+     * shard count, and going back to a single file, and that each layout leaves only its own files.
+     *
+     * @throws IOException if the temporary files cannot be created.
+     */
+    @Test
+    public void testRebalanceKeepsUsers() throws IOException {
+        Path data = Files.createTempDirectory("shards").resolve("database.csv");
+        UserTable single = new UserTable(data, true);
+        for (int i = 0; i < 40; i++) {
+            single.addRow(new String[]{"user" + i, "secret", Integer.toString(i), "N", "100", "None", "0"});
+        }
+        single.close();
+
+        ShardedUserStore four = new ShardedUserStore(data, 4, true, false);
+        assertEquals(40, four.getUserNames().size());
+        assertFalse(Files.exists(data));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(Files.exists(ShardedUserStore.shardPath(data, i, 4)));
+        }
+        for (UserTable shard : four.getShards()) {
+            for (String userName : shard.getUserNames()) {
+                assertSame(shard, four.getShards().get(ShardedUserStore.shardOf(userName, 4)));
+            }
+        }
+        assertTrue(four.setField("user7", 6, "70"));
+        four.close();
+
+        ShardedUserStore three = new ShardedUserStore(data, 3, true, false);
+        assertEquals("70", three.getField("user7", 6));
+        assertEquals("39", three.getField("user39", 2));
+        assertFalse(Files.exists(ShardedUserStore.shardPath(data, 0, 4)));
+        three.close();
+
+        assertTrue(ShardedUserStore.isSharded(data));
+        ShardedUserStore one = new ShardedUserStore(data, 1, true, false);
+        assertEquals(40, one.getUserNames().size());
+        one.close();
+        assertFalse(ShardedUserStore.isSharded(data));
+        UserTable reopened = new UserTable(data, true);
+        assertEquals("70", reopened.getField("user7", 6));
+        reopened.close();
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Exclusive lock shared by every game process using the same user file, held on {@code <file>.lock}
+ * with {@link FileChannel#lock()}. The operating system releases it if a process dies while holding it.
+ *
+ * <p>A JVM may hold only one lock on a file, so callers must make sure a single thread at a time
+ * uses one of these; {@link UserTable} only takes it while holding its own writer lock.
+ */
+public class SharedFileLock implements Closeable {
+
+    /** Channel of the lock file. Its contents are never used. */
+    private final FileChannel channel;
+
+    /** The lock currently held, or null. */
+    private FileLock held;
+
+    /**
+     * Opens the lock file kept next to a data file, creating it if needed.
+     *
+     * @param data The file the lock guards.
+     * @throws IOException If the lock file cannot be opened.
+     */
+    public SharedFileLock(Path data) throws IOException {
+        channel = FileChannel.open(Paths.get(data + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Waits until no other process holds the lock and takes it.
+     *
+     * @throws IOException If the lock cannot be taken.
+     */
+    public void lock() throws IOException {
+        held = channel.lock();
+    }
+
+    /**
+     * Takes the lock only if no other process holds it.
+     *
+     * @return true if the lock was taken, false if another process holds it.
+     * @throws IOException If the lock cannot be taken.
+     */
+    public boolean tryLock() throws IOException {
+        held = channel.tryLock();
+        return held != null;
+    }
+
+    /**
+     * Releases the lock, if it is held.
+     */
+    public void unlock() {
+        if (held == null) {
+            return;
+        }
+        try {
+            held.release();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        held = null;
+    }
+
+    /**
+     * Releases the lock and closes the lock file.
+     *
+     * @throws IOException If the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        unlock();
+        channel.close();
+    }
+}
@@ -0,0 +1,471 @@
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * {@link UserRepository} backed by an embedded, file-based SQL database over JDBC, for installs with
+ * more users than comfortably fit in memory. Users live in one {@code users} table keyed by username,
+ * with an index on {@code (high_score DESC, user_name)} so leaderboard pages are read straight from the index.
+ *
+ * <p>The database is chosen by {@link StorageConfig#JDBC_URL}, {@code jdbc:h2:./geocraft} by default.
+ * The H2 driver is bundled in {@code ExternalLibraries}; another engine works if its JDBC driver is on the classpath.
+ * When the table is created it is filled once from {@code database.csv}, if that file has any users.
+ */
+public class SqlUserRepository implements UserRepository {
+
+    /** Columns of the users table, in the same order as the CSV file. */
+    private static final String[] COLUMNS = {"user_name", "password", "num_games_played", "saved_game", "accuracy_rate", "list_of_country", "high_score"};
+
+    /** SQLState of a unique key violation, raised when another insert took the username first. */
+    private static final String DUPLICATE_KEY = "23505";
+
+    /** The open connection, shared by every call and guarded by this object's lock. */
+    private final Connection connection;
+
+    /** Version number of the last leaderboard snapshot read. */
+    private long snapshotVersion;
+
+    /**
+     * Connects to the database and creates the users table and its index if they do not exist.
+     * A new table is filled from the users {@link CsvHandler} serves.
+     *
+     * @param jdbcUrl The JDBC URL of the database.
+     * @throws IllegalStateException If the database cannot be opened, for example because its driver is missing.
+     */
+    public SqlUserRepository(String jdbcUrl) {
+        this(jdbcUrl, SqlUserRepository::readCsvUsers);
+    }
+
+    /**
+     * Connects to the database and creates the users table and its index if they do not exist.
+     *
+     * @param jdbcUrl The JDBC URL of the database.
+     * @param csvUsers Supplies the users a new table is filled with, keyed by username, in the form of {@link CsvHandler#readCsvFile()}.
+     * @throws IllegalStateException If the database cannot be opened, for example because its driver is missing.
+     */
+    SqlUserRepository(String jdbcUrl, Supplier<Map<String, Map<String, String>>> csvUsers) {
+        try {
+            connection = DriverManager.getConnection(jdbcUrl);
+            createSchema(csvUsers);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot open the user database " + jdbcUrl
+                    + " (is its JDBC driver on the classpath?)", e);
+        }
+    }
+
+    /**
+     * Creates the users table and leaderboard index, importing the CSV users if the table is new.
+     *
+     * @param csvUsers Supplies the users to import.
+     * @throws SQLException If the schema cannot be created.
+     */
+    private void createSchema(Supplier<Map<String, Map<String, String>>> csvUsers) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS users ("
+                    + "user_name VARCHAR(64) PRIMARY KEY, "
+                    + "password VARCHAR(64) NOT NULL, "
+                    + "num_games_played VARCHAR(16) NOT NULL, "
+                    + "saved_game VARCHAR(8) NOT NULL, "
+                    + "accuracy_rate VARCHAR(32) NOT NULL, "
+                    + "list_of_country CLOB NOT NULL, "
+                    + "high_score INT NOT NULL)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS users_high_score ON users (high_score DESC, user_name)");
+        }
+        if (countUsers() == 0) {
+            importCsv(csvUsers.get());
+        }
+    }
+
+    /**
+     * Reads the users of {@code database.csv} through {@link CsvHandler}, without creating the file if it is missing.
+     *
+     * @return The users keyed by username, or an empty map if there is no file.
+     */
+    private static Map<String, Map<String, String>> readCsvUsers() {
+        if (!Files.exists(CsvHandler.filePath) && !ShardedUserStore.isSharded(CsvHandler.filePath)) {
+            return Map.of();
+        }
+        return CsvHandler.readCsvFile();
+    }
+
+    /**
+     * Copies every given user into the table in one transaction.
+     *
+     * @param users The users keyed by username, in the form of {@link CsvHandler#readCsvFile()}.
+     * @throws SQLException If the rows cannot be inserted.
+     */
+    private void importCsv(Map<String, Map<String, String>> users) throws SQLException {
+        if (users.isEmpty()) {
+            return;
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO users (user_name, password, num_games_played, saved_game, accuracy_rate, list_of_country, high_score) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (Map.Entry<String, Map<String, String>> user : users.entrySet()) {
+                Map<String, String> values = user.getValue();
+                insert.setString(1, user.getKey());
+                insert.setString(2, values.getOrDefault("password", ""));
+                insert.setString(3, values.getOrDefault("num_games_played", "0"));
+                insert.setString(4, values.getOrDefault("saved_game?", "N"));
+                insert.setString(5, values.getOrDefault("accuracy_rate", "100"));
+                insert.setString(6, values.getOrDefault("listOfCountry", "None"));
+                insert.setInt(7, parseScore(values.get("highScore")));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    @Override
+    public synchronized String addUser(String userName, String password) {
+        String check = credentialChecker(userName, password);
+        if (!check.equals("ok")) {
+            return check;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO users (user_name, password, num_games_played, saved_game, accuracy_rate, list_of_country, high_score) "
+                        + "VALUES (?, ?, '0', 'N', '100', 'None', 0)")) {
+            insert.setString(1, userName);
+            insert.setString(2, password);
+            insert.executeUpdate();
+            return "APPROVED";
+        } catch (SQLException e) {
+            if (DUPLICATE_KEY.equals(e.getSQLState())) {
+                return "User already exists.";
+            }
+            // Any other failure is not the user's fault, and is reported as the CSV backend reports a row it could not save
+            e.printStackTrace();
+            return "The account could not be saved, please try again.";
+        }
+    }
+
+    @Override
+    public String credentialChecker(String userName, String password) {
+        if (isDuplicateUser(userName)) {
+            return "User already exists.";
+        }
+        return UserRepository.checkFormat(userName, password);
+    }
+
+    @Override
+    public boolean isDuplicateUser(String userName) {
+        return getColumn(userName, 0) != null;
+    }
+
+    /**
+     * Does nothing: every account stays in the one indexed table, so none is ever moved out for being dormant.
+     *
+     * @param userName The username that logged in.
+     */
+    @Override
+    public void markActive(String userName) {
+    }
+
+    @Override
+    public String getPassword(String userName) {
+        return getColumn(userName, 1);
+    }
+
+    @Override
+    public String getNumGamesPlayed(String userName) {
+        return getColumn(userName, 2);
+    }
+
+    @Override
+    public String getAccuracyRate(String userName) {
+        return getColumn(userName, 4);
+    }
+
+    @Override
+    public String getListOfCountry(String userName) {
+        return getColumn(userName, 5);
+    }
+
+    @Override
+    public String getHighScore(String userName) {
+        return getColumn(userName, 6);
+    }
+
+    @Override
+    public void changePassword(String userName, String newPassword) {
+        setColumn(userName, 1, newPassword);
+    }
+
+    @Override
+    public void changeNumGamesPlayed(String userName, String newNumGamesPlayed) {
+        setColumn(userName, 2, newNumGamesPlayed);
+    }
+
+    @Override
+    public void changeAccuracyRate(String userName, String newAccuracyRate) {
+        setColumn(userName, 4, newAccuracyRate);
+    }
+
+    @Override
+    public void changeListOfCountry(String userName, String newListOfCountry) {
+        setColumn(userName, 5, newListOfCountry);
+    }
+
+    @Override
+    public void changeHighScore(String userName, String newHighScore) {
+        setColumn(userName, 6, newHighScore);
+    }
+
+    @Override
+    public synchronized PlayerRecord getRecord(String userName) {
+        String[] row = new String[COLUMNS.length];
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT " + String.join(", ", COLUMNS) + " FROM users WHERE user_name = ?")) {
+            query.setString(1, userName);
+            try (ResultSet rows = query.executeQuery()) {
+                if (!rows.next()) {
+                    return null;
+                }
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = rows.getString(i + 1);
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return PlayerRecord.parse(row);
+    }
+
+    /**
+     * Reads the row and writes every column back in one UPDATE statement, which the database applies atomically.
+     */
+    @Override
+    public synchronized boolean updateUser(String userName, Consumer<PlayerRecord> mutator) {
+        PlayerRecord record = getRecord(userName);
+        if (record == null) {
+            return false;
+        }
+        mutator.accept(record);
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE users SET password = ?, num_games_played = ?, saved_game = ?, accuracy_rate = ?, "
+                        + "list_of_country = ?, high_score = ? WHERE user_name = ?")) {
+            for (int i = 1; i < COLUMNS.length - 1; i++) {
+                update.setString(i, record.getColumn(i));
+            }
+            update.setInt(6, parseScore(record.getColumn(PlayerRecord.HIGH_SCORE)));
+            update.setString(7, userName);
+            update.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized ArrayList<String> getAllUsers() {
+        return queryNames("SELECT user_name FROM users");
+    }
+
+    @Override
+    public synchronized ArrayList<String> getHighScoreOrder() {
+        return queryNames("SELECT user_name FROM users ORDER BY high_score DESC, user_name");
+    }
+
+    @Override
+    public synchronized List<Leaderboard.Entry> getHighScorePage(int offset, int limit) {
+        List<Leaderboard.Entry> page = new ArrayList<>();
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT user_name, high_score FROM users ORDER BY high_score DESC, user_name LIMIT ? OFFSET ?")) {
+            query.setInt(1, limit);
+            query.setInt(2, offset);
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next()) {
+                    page.add(new Leaderboard.Entry(rows.getString(1), rows.getInt(2)));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return page;
+    }
+
+    /**
+     * Reads the whole leaderboard in one query, straight from the high score index.
+     * Each call reads the table again, so callers keep the snapshot while paging.
+     */
+    @Override
+    public synchronized Leaderboard.Snapshot getLeaderboardSnapshot() {
+        List<Leaderboard.Entry> entries = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT user_name, high_score FROM users ORDER BY high_score DESC, user_name")) {
+            while (rows.next()) {
+                entries.add(new Leaderboard.Entry(rows.getString(1), rows.getInt(2)));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new Leaderboard.Snapshot(++snapshotVersion, entries.toArray(new Leaderboard.Entry[0]));
+    }
+
+    /**
+     * Uses a range on the primary key rather than LIKE, so the prefix needs no escaping and the index is used.
+     */
+    @Override
+    public synchronized List<Leaderboard.Entry> searchUsers(String prefix, int limit) {
+        List<Leaderboard.Entry> matches = new ArrayList<>();
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT user_name, high_score FROM users WHERE user_name >= ? ORDER BY user_name LIMIT ?")) {
+            query.setString(1, prefix);
+            query.setInt(2, limit);
+            try (ResultSet rows = query.executeQuery()) {
+                while (rows.next() && rows.getString(1).startsWith(prefix)) {
+                    matches.add(new Leaderboard.Entry(rows.getString(1), rows.getInt(2)));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return matches;
+    }
+
+    @Override
+    public synchronized int countUsers() {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM users")) {
+            return rows.next() ? rows.getInt(1) : 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Counts scores clamped the way {@link RankService} counts them, so both backends give the same ranks.
+     * Once the query is clamped to c, a stored score clamps above c exactly when it is above c, unless c is
+     * already the top position; so the plain comparison still reads the high score index.
+     */
+    @Override
+    public synchronized int countUsersAbove(int score) {
+        int position = RankService.position(score);
+        if (position == RankService.MAX_RANGE - 1) {
+            return 0;
+        }
+        try (PreparedStatement query = connection.prepareStatement("SELECT COUNT(*) FROM users WHERE high_score > ?")) {
+            query.setInt(1, position);
+            try (ResultSet rows = query.executeQuery()) {
+                return rows.next() ? rows.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    @Override
+    public synchronized void deleteUser(String userName) {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM users WHERE user_name = ?")) {
+            delete.setString(1, userName);
+            delete.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        SaveSlotStore.get().clear(userName);
+    }
+
+    /**
+     * Every statement runs in auto-commit mode, so the database has already made each change durable.
+     * Only pending saved games are waited for.
+     */
+    @Override
+    public boolean flush() {
+        return SaveSlotStore.get().flush();
+    }
+
+    /**
+     * Reads one column of a user by primary key.
+     *
+     * @param userName The username.
+     * @param column The column index, in CSV order.
+     * @return The value as a string, or null if the user does not exist.
+     */
+    private synchronized String getColumn(String userName, int column) {
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT " + COLUMNS[column] + " FROM users WHERE user_name = ?")) {
+            query.setString(1, userName);
+            try (ResultSet rows = query.executeQuery()) {
+                return rows.next() ? rows.getString(1) : null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Changes one column of a user by primary key.
+     *
+     * @param userName The username.
+     * @param column The column index, in CSV order.
+     * @param value The new value; converted to a number for the high score column.
+     */
+    private synchronized void setColumn(String userName, int column, String value) {
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE users SET " + COLUMNS[column] + " = ? WHERE user_name = ?")) {
+            if (column == 6) {
+                update.setInt(1, parseScore(value));
+            } else {
+                update.setString(1, value);
+            }
+            update.setString(2, userName);
+            update.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs a query returning usernames in its first column.
+     *
+     * @param sql The query.
+     * @return The usernames in the order returned.
+     */
+    private ArrayList<String> queryNames(String sql) {
+        ArrayList<String> users = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            while (rows.next()) {
+                users.add(rows.getString(1));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return users;
+    }
+
+    /**
+     * Parses a stored high score, treating anything that is not a number as 0.
+     *
+     * @param value The stored value.
+     * @return The score.
+     */
+    private static int parseScore(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
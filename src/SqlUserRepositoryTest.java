@@ -0,0 +1,213 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link SqlUserRepository} class on the bundled H2 engine, covering lookups, updates,
+ * leaderboard pages, deletion and the one-time import of the CSV users.
+ * Every test works on its own temporary database file.
+ */
+public class SqlUserRepositoryTest {
+
+    /** The header row as the game writes it. */
+    private static final String HEADER = "\"user_name\",\"password\",\"num_games_played\",\"saved_game?\",\"accuracy_rate\",\"listOfCountry\",\"highScore\"";
+
+    /**
+     * Creates the JDBC URL of a database that does not exist yet.
+     *
+     * @return A URL for an H2 file in a fresh temporary folder.
+     * @throws IOException if the temporary folder cannot be created.
+     */
+    private static String freshDatabase() throws IOException {
+        Path dir = Files.createTempDirectory("users");
+        return "jdbc:h2:" + dir.resolve("geocraft").toAbsolutePath();
+    }
+
+    /**
+     * Opens a repository on a fresh database with no users to import.
+     *
+     * @return The repository.
+     * @throws IOException if the temporary folder cannot be created.
+     */
+    private static SqlUserRepository emptyRepository() throws IOException {
+        return new SqlUserRepository(freshDatabase(), Map::of);
+    }
+
+    /**
+     * Verifies that an added user can be looked up column by column and as a record.
+     *
+     * @throws IOException if the temporary database cannot be created.
+     */
+    @Test
+    public void testAddAndLookup() throws IOException {
+        SqlUserRepository users = emptyRepository();
+        assertEquals("APPROVED", users.addUser("alice", "secret"));
+        assertEquals("User already exists.", users.addUser("alice", "other"));
+        assertTrue(users.isDuplicateUser("alice"));
+        assertFalse(users.isDuplicateUser("bob"));
+        assertEquals("secret", users.getPassword("alice"));
+        assertEquals("0", users.getNumGamesPlayed("alice"));
+        assertEquals("100", users.getAccuracyRate("alice"));
+        assertEquals("None", users.getListOfCountry("alice"));
+        assertEquals("0", users.getHighScore("alice"));
+        assertNull(users.getPassword("bob"));
+        assertNull(users.getRecord("bob"));
+
+        PlayerRecord record = users.getRecord("alice");
+        assertEquals("alice", record.getUserName());
+        assertEquals(0, record.getHighScore());
+    }
+
+    /**
+     * Verifies that an insert failing for a reason other than a duplicate username is not reported as a duplicate.
+     *
+     * @throws IOException if the temporary database cannot be created.
+     * @throws SQLException if the table cannot be dropped.
+     */
+    @Test
+    public void testFailedInsertIsNotADuplicate() throws IOException, SQLException {
+        String url = freshDatabase();
+        SqlUserRepository users = new SqlUserRepository(url, Map::of);
+        try (Connection connection = DriverManager.getConnection(url); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE users");
+        }
+        assertEquals("The account could not be saved, please try again.", users.addUser("alice", "secret"));
+    }
+
+    /**
+     * Verifies that single-column changes and multi-column updates are both read back.
+     *
+     * @throws IOException if the temporary database cannot be created.
+     */
+    @Test
+    public void testUpdate() throws IOException {
+        SqlUserRepository users = emptyRepository();
+        users.addUser("alice", "secret");
+        users.changePassword("alice", "newpass");
+        users.changeHighScore("alice", "40");
+        assertEquals("newpass", users.getPassword("alice"));
+        assertEquals("40", users.getHighScore("alice"));
+
+        assertTrue(users.updateUser("alice", record -> {
+            record.setNumGamesPlayed(record.getNumGamesPlayed() + 1);
+            record.setHighScore(record.getHighScore() + 25);
+            record.setListOfCountry("3-4");
+        }));
+        assertEquals("1", users.getNumGamesPlayed("alice"));
+        assertEquals("65", users.getHighScore("alice"));
+        assertEquals("3-4", users.getListOfCountry("alice"));
+        assertFalse(users.updateUser("bob", record -> record.setHighScore(1)));
+    }
+
+    /**
+     * Verifies that leaderboard pages, snapshots and prefix search follow score order, ties by username.
+     *
+     * @throws IOException if the temporary database cannot be created.
+     */
+    @Test
+    public void testLeaderboardPages() throws IOException {
+        SqlUserRepository users = emptyRepository();
+        String[] names = {"alice", "bobby", "carol", "dave1", "erin1"};
+        int[] scores = {30, 50, 10, 50, 20};
+        for (int i = 0; i < names.length; i++) {
+            users.addUser(names[i], "secret");
+            users.changeHighScore(names[i], Integer.toString(scores[i]));
+        }
+
+        assertEquals(List.of("bobby", "dave1", "alice", "erin1", "carol"), users.getHighScoreOrder());
+        List<Leaderboard.Entry> page = users.getHighScorePage(2, 2);
+        assertEquals(2, page.size());
+        assertEquals("alice", page.get(0).getUserName());
+        assertEquals(30, page.get(0).getScore());
+        assertEquals("erin1", page.get(1).getUserName());
+        assertTrue(users.getHighScorePage(5, 2).isEmpty());
+
+        Leaderboard.Snapshot snapshot = users.getLeaderboardSnapshot();
+        assertEquals(5, snapshot.size());
+        assertEquals("carol", snapshot.page(4, 2).get(0).getUserName());
+
+        assertEquals(5, users.countUsers());
+        assertEquals(2, users.countUsersAbove(30));
+        assertEquals(0, users.countUsersAbove(50));
+
+        List<Leaderboard.Entry> matches = users.searchUsers("da", 7);
+        assertEquals(1, matches.size());
+        assertEquals("dave1", matches.get(0).getUserName());
+    }
+
+    /**
+     * Verifies that negative and oversized scores are counted clamped, as {@link RankService} counts them.
+     *
+     * @throws IOException if the temporary database cannot be created.
+     */
+    @Test
+    public void testCountUsersAboveClampsScores() throws IOException {
+        SqlUserRepository users = emptyRepository();
+        String[] names = {"alice", "bobby", "carol", "dave1"};
+        int[] scores = {-5, 0, 20, RankService.MAX_RANGE + 10};
+        for (int i = 0; i < names.length; i++) {
+            users.addUser(names[i], "secret");
+            users.changeHighScore(names[i], Integer.toString(scores[i]));
+        }
+
+        assertEquals(2, users.countUsersAbove(-5));
+        assertEquals(users.countUsersAbove(0), users.countUsersAbove(-3));
+        assertEquals(0, users.countUsersAbove(RankService.MAX_RANGE - 1));
+        assertEquals(0, users.countUsersAbove(RankService.MAX_RANGE + 10));
+        assertEquals(1, users.countUsersAbove(RankService.MAX_RANGE - 2));
+    }
+
+    /**
+     * Verifies that a deleted user is gone from lookups and from the leaderboard.
+     *
+     * @throws IOException if the temporary database cannot be created.
+     */
+    @Test
+    public void testDelete() throws IOException {
+        SqlUserRepository users = emptyRepository();
+        users.addUser("alice", "secret");
+        users.addUser("bobby", "secret");
+        users.deleteUser("alice");
+        assertFalse(users.isDuplicateUser("alice"));
+        assertEquals(List.of("bobby"), users.getAllUsers());
+        assertEquals(1, users.countUsers());
+        assertEquals("APPROVED", users.addUser("alice", "again"));
+    }
+
+    /**
+     * Verifies that a new database is filled from the CSV users, and that reopening it does not import them again.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testImportsCsvOnce() throws IOException {
+        Path csv = Files.createTempFile("users", ".csv");
+        Files.write(csv, List.of(HEADER,
+                "\"alice\",\"pw1\",\"3\",\"N\",\"75.5\",\"None\",\"120\"",
+                "\"bobby\",\"pw2\",\"1\",\"N\",\"100\",\"None\",\"abc\""));
+        Map<String, Map<String, String>> csvUsers = new UserTable(csv, false).toMap();
+        String url = freshDatabase();
+
+        SqlUserRepository users = new SqlUserRepository(url, () -> csvUsers);
+        assertEquals(2, users.countUsers());
+        assertEquals("pw1", users.getPassword("alice"));
+        assertEquals("3", users.getNumGamesPlayed("alice"));
+        assertEquals("75.5", users.getAccuracyRate("alice"));
+        assertEquals("120", users.getHighScore("alice"));
+        assertEquals("0", users.getHighScore("bobby"));
+
+        users.deleteUser("bobby");
+        SqlUserRepository reopened = new SqlUserRepository(url, () -> fail("imported twice"));
+        assertEquals(List.of("alice"), reopened.getAllUsers());
+    }
+}
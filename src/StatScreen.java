@@ -23,6 +23,21 @@ public class StatScreen extends Screen {
      */
     Image plankIMG;
 
+    /**
+     * The player's stats, read once when the screen is created instead of on every repaint.
+     */
+    PlayerRecord stats;
+
+    /**
+     * The player's rank on the leaderboard, read once when the screen is created
+     * instead of on every repaint.
+     */
+    int rank;
+
+    /**
+     * The percentile of the player's high score, read once when the screen is created.
+     */
+    double percentile;
 
     /**
      * Constructor for StatScreen.
@@ -43,6 +58,9 @@ public class StatScreen extends Screen {
             throw new RuntimeException(e);
         }
         this.add(backButton);
+        stats = user.getRecord();
+        rank = user.getRank();
+        percentile = user.getPercentile();
     }
 
     /**
@@ -83,10 +101,14 @@ public class StatScreen extends Screen {
         g2d.setFont(new Font("Arial", Font.BOLD, width / 50)); // Set font for labels
         g2d.drawString("High Score:", width / 3, height / 2 - height / 20);
         g2d.drawString("Accuracy:", width / 3, height / 2 + height / 120);
+        g2d.drawString("Rank:", width / 3, height / 2 + height / 15);
+        g2d.drawString("Percentile:", width / 3, height / 2 + height / 8);
         // Draw stat values with some spacing from labels
-        g2d.drawString(Integer.toString(user.getHighScore()), width / 3 + width / 5, height / 2 - height / 20);
-        String accuracy = String.format("%.2f", user.getAccuracy()) + "%";
+        g2d.drawString(Integer.toString(stats.getHighScore()), width / 3 + width / 5, height / 2 - height / 20);
+        String accuracy = String.format("%.2f", stats.getAccuracyRate()) + "%";
         g2d.drawString(accuracy, width / 3 + width / 5, height / 2 + height / 120);
+        g2d.drawString("#" + rank, width / 3 + width / 5, height / 2 + height / 15);
+        g2d.drawString(String.format("%.1f", percentile), width / 3 + width / 5, height / 2 + height / 8);
         setComponents();
     }
 }
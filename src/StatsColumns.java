@@ -0,0 +1,374 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every user's numeric stats held column by column in parallel primitive arrays, for queries that
+ * look at all users at once: full leaderboard orders, top-K, score histograms and averages.
+ * Scanning an {@code int[]} or {@code float[]} is far cheaper than walking per-user maps or records.
+ *
+ * <p>Rows are kept sorted by username, and the sorted name array doubles as the username dictionary:
+ * a user is found by binary search. Because row order is name order, a full leaderboard order is one
+ * {@link Arrays#parallelSort(long[])} of keys that pack the negated score above the row index, with no
+ * string comparisons; top-K keeps the K best keys in a small array during one pass over the scores.
+ *
+ * <p>The shared instance is built from {@link CsvHandler#store()} on first use and then kept in step by
+ * {@link CsvHandler}'s writes. All methods are thread safe.
+ */
+public class StatsColumns {
+
+    /** The columns shared by the whole process, or null until {@link #get()} is first called. */
+    private static volatile StatsColumns instance;
+
+    /** Usernames of the rows, sorted. */
+    private String[] names;
+
+    /** High score of each row. */
+    private int[] highScores;
+
+    /** Number of games played of each row. */
+    private int[] gamesPlayed;
+
+    /** Accuracy rate of each row, as a percentage. */
+    private float[] accuracy;
+
+    /** Number of rows in use. */
+    private int size;
+
+    /**
+     * Returns the columns shared by the whole process, loading them from the user store the first time.
+     *
+     * @return The shared columns.
+     */
+    public static StatsColumns get() {
+        StatsColumns columns = instance;
+        if (columns != null) {
+            return columns;
+        }
+        synchronized (StatsColumns.class) {
+            if (instance == null) {
+                StatsColumns built = new StatsColumns();
+                synchronized (built) {
+                    // Published before loading, so a write made during the load waits for it and is applied after
+                    instance = built;
+                    ArrayList<String> userNames = CsvHandler.store().getUserNames();
+                    String[] sorted = userNames.toArray(new String[0]);
+                    Arrays.parallelSort(sorted);
+                    for (String userName : sorted) {
+                        PlayerRecord record = CsvHandler.getRecord(userName);
+                        if (record != null) {
+                            built.append(record);
+                        }
+                    }
+                }
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * Drops the shared columns so the next {@link #get()} loads them from the store again.
+     * Used by {@link CsvHandler#useFile(java.nio.file.Path)}.
+     */
+    static synchronized void reset() {
+        instance = null;
+    }
+
+    /**
+     * Applies a change to one column to the shared instance, if it has been loaded.
+     *
+     * @param userName The username.
+     * @param index The column index; columns other than the stats are ignored.
+     * @param value The new value as stored.
+     */
+    static void changed(String userName, int index, String value) {
+        StatsColumns columns = instance;
+        if (columns != null) {
+            columns.set(userName, index, value);
+        }
+    }
+
+    /**
+     * Adds or replaces a user in the shared instance, if it has been loaded.
+     *
+     * @param record The user's record.
+     */
+    static void changed(PlayerRecord record) {
+        StatsColumns columns = instance;
+        if (columns != null) {
+            columns.put(record);
+        }
+    }
+
+    /**
+     * Removes a user from the shared instance, if it has been loaded.
+     *
+     * @param userName The username.
+     */
+    static void removed(String userName) {
+        StatsColumns columns = instance;
+        if (columns != null) {
+            columns.remove(userName);
+        }
+    }
+
+    /**
+     * Creates empty columns.
+     */
+    StatsColumns() {
+        names = new String[16];
+        highScores = new int[16];
+        gamesPlayed = new int[16];
+        accuracy = new float[16];
+    }
+
+    /**
+     * Adds a user, or replaces the stats of an existing one, from the numbers the record already parsed.
+     * A value that is not a number counts as 0, so one damaged row cannot break every query.
+     *
+     * @param record The user's record.
+     */
+    public synchronized void put(PlayerRecord record) {
+        int row = Arrays.binarySearch(names, 0, size, record.getUserName());
+        if (row < 0) {
+            row = -row - 1;
+            insertAt(row, record.getUserName());
+        }
+        highScores[row] = record.isNumber(PlayerRecord.HIGH_SCORE) ? record.getHighScore() : 0;
+        gamesPlayed[row] = record.isNumber(PlayerRecord.NUM_GAMES_PLAYED) ? record.getNumGamesPlayed() : 0;
+        accuracy[row] = record.isNumber(PlayerRecord.ACCURACY_RATE) ? record.getAccuracyRate() : 0;
+    }
+
+    /**
+     * Changes one stat of an existing user.
+     *
+     * @param userName The username.
+     * @param index The column index; columns other than the stats are ignored.
+     * @param value The new value as stored.
+     */
+    public synchronized void set(String userName, int index, String value) {
+        int row = Arrays.binarySearch(names, 0, size, userName);
+        if (row < 0) {
+            return;
+        }
+        switch (index) {
+            case PlayerRecord.HIGH_SCORE -> highScores[row] = intOrZero(value);
+            case PlayerRecord.NUM_GAMES_PLAYED -> gamesPlayed[row] = intOrZero(value);
+            case PlayerRecord.ACCURACY_RATE -> accuracy[row] = floatOrZero(value);
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Removes a user.
+     *
+     * @param userName The username.
+     */
+    public synchronized void remove(String userName) {
+        int row = Arrays.binarySearch(names, 0, size, userName);
+        if (row < 0) {
+            return;
+        }
+        int moved = size - row - 1;
+        System.arraycopy(names, row + 1, names, row, moved);
+        System.arraycopy(highScores, row + 1, highScores, row, moved);
+        System.arraycopy(gamesPlayed, row + 1, gamesPlayed, row, moved);
+        System.arraycopy(accuracy, row + 1, accuracy, row, moved);
+        names[--size] = null;
+    }
+
+    /**
+     * Returns the number of users.
+     *
+     * @return The user count.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns every user in leaderboard order: highest score first, equal scores by username.
+     *
+     * @return The entries.
+     */
+    public synchronized Leaderboard.Entry[] ranking() {
+        long[] keys = new long[size];
+        for (int row = 0; row < size; row++) {
+            keys[row] = key(row);
+        }
+        Arrays.parallelSort(keys);
+        Leaderboard.Entry[] entries = new Leaderboard.Entry[size];
+        for (int i = 0; i < size; i++) {
+            int row = (int) keys[i];
+            entries[i] = new Leaderboard.Entry(names[row], highScores[row]);
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the best users in leaderboard order, without sorting everyone.
+     *
+     * @param k The largest number of users to return.
+     * @return Up to {@code k} entries, highest score first.
+     */
+    public synchronized List<Leaderboard.Entry> top(int k) {
+        int limit = Math.max(0, Math.min(k, size));
+        // The best keys so far, smallest (best) first
+        long[] best = new long[limit];
+        int count = 0;
+        for (int row = 0; row < size && limit > 0; row++) {
+            long key = key(row);
+            if (count == limit && key >= best[limit - 1]) {
+                continue;
+            }
+            int at = count < limit ? count++ : limit - 1;
+            while (at > 0 && best[at - 1] > key) {
+                best[at] = best[at - 1];
+                at--;
+            }
+            best[at] = key;
+        }
+        List<Leaderboard.Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int row = (int) best[i];
+            entries.add(new Leaderboard.Entry(names[row], highScores[row]));
+        }
+        return entries;
+    }
+
+    /**
+     * Counts high scores in equal-width buckets starting at 0. Scores past the last bucket are counted
+     * in it and negative scores in the first.
+     *
+     * @param bucketWidth The width of each bucket.
+     * @param buckets The number of buckets.
+     * @return The count of each bucket.
+     */
+    public synchronized int[] scoreHistogram(int bucketWidth, int buckets) {
+        int[] counts = new int[buckets];
+        for (int row = 0; row < size; row++) {
+            int bucket = Math.max(0, highScores[row]) / bucketWidth;
+            counts[Math.min(bucket, buckets - 1)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the mean accuracy rate over every user.
+     *
+     * @return The average as a percentage, or 0 if there are no users.
+     */
+    public synchronized double averageAccuracy() {
+        double sum = 0;
+        for (int row = 0; row < size; row++) {
+            sum += accuracy[row];
+        }
+        return size == 0 ? 0 : sum / size;
+    }
+
+    /**
+     * Returns the number of games played by all users together.
+     *
+     * @return The total.
+     */
+    public synchronized long totalGamesPlayed() {
+        long sum = 0;
+        for (int row = 0; row < size; row++) {
+            sum += gamesPlayed[row];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the highest score of any user.
+     *
+     * @return The highest score, or 0 if there are no users.
+     */
+    public synchronized int maxHighScore() {
+        int max = 0;
+        for (int row = 0; row < size; row++) {
+            max = Math.max(max, highScores[row]);
+        }
+        return max;
+    }
+
+    /**
+     * Packs a row's sort key: the negated score in the high half so higher scores sort first, and the
+     * row index in the low half, which breaks ties by username because rows are in name order.
+     *
+     * @param row The row.
+     * @return The key.
+     */
+    private long key(int row) {
+        return ((long) ~highScores[row] << 32) | row;
+    }
+
+    /**
+     * Adds a user after every existing row, for loading names that arrive sorted.
+     *
+     * @param record The user's record.
+     */
+    private void append(PlayerRecord record) {
+        if (size > 0 && names[size - 1].compareTo(record.getUserName()) >= 0) {
+            put(record);
+            return;
+        }
+        insertAt(size, record.getUserName());
+        put(record);
+    }
+
+    /**
+     * Opens an empty row at a position, growing the arrays when needed.
+     *
+     * @param row The position.
+     * @param userName The username of the new row.
+     */
+    private void insertAt(int row, String userName) {
+        if (size == names.length) {
+            int capacity = names.length * 2;
+            names = Arrays.copyOf(names, capacity);
+            highScores = Arrays.copyOf(highScores, capacity);
+            gamesPlayed = Arrays.copyOf(gamesPlayed, capacity);
+            accuracy = Arrays.copyOf(accuracy, capacity);
+        }
+        int moved = size - row;
+        System.arraycopy(names, row, names, row + 1, moved);
+        System.arraycopy(highScores, row, highScores, row + 1, moved);
+        System.arraycopy(gamesPlayed, row, gamesPlayed, row + 1, moved);
+        System.arraycopy(accuracy, row, accuracy, row + 1, moved);
+        names[row] = userName;
+        highScores[row] = 0;
+        gamesPlayed[row] = 0;
+        accuracy[row] = 0;
+        size++;
+    }
+
+    /**
+     * Parses a stored whole number, treating anything else as 0.
+     *
+     * @param value The stored text.
+     * @return The number.
+     */
+    private static int intOrZero(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Parses a stored decimal number, treating anything else as 0.
+     *
+     * @param value The stored text.
+     * @return The number.
+     */
+    private static float floatOrZero(String value) {
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException | NullPointerException e) {
+            return 0;
+        }
+    }
+}
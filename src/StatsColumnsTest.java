@@ -0,0 +1,86 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link StatsColumns} class: the packed-key orders against sorting entries directly,
+ * histograms, aggregates and keeping rows in step. Every test uses its own columns.
+ */
+public class StatsColumnsTest {
+
+    /**
+     * Creates a record with the given stats.
+     *
+     * @param userName The username.
+     * @param games The number of games played.
+     * @param accuracy The accuracy rate.
+     * @param score The high score.
+     * @return The record.
+     */
+    private static PlayerRecord record(String userName, int games, float accuracy, int score) {
+        return new PlayerRecord(userName, "secret", games, "N", accuracy, "None", score);
+    }
+
+    /**
+     * Verifies that the ranking and top-K match sorting the entries, ties included.
+     */
+    @Test
+    public void testRankingMatchesSort() {
+        StatsColumns columns = new StatsColumns();
+        Random random = new Random(11);
+        Leaderboard.Entry[] expected = new Leaderboard.Entry[300];
+        for (int i = 0; i < expected.length; i++) {
+            String name = "user" + random.nextInt(1_000_000) + "_" + i;
+            int score = random.nextInt(40);
+            columns.put(record(name, 0, 100, score));
+            expected[i] = new Leaderboard.Entry(name, score);
+        }
+        Arrays.sort(expected);
+
+        Leaderboard.Entry[] ranking = columns.ranking();
+        assertEquals(expected.length, ranking.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getUserName(), ranking[i].getUserName());
+            assertEquals(expected[i].getScore(), ranking[i].getScore());
+        }
+
+        List<Leaderboard.Entry> top = columns.top(10);
+        assertEquals(10, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(expected[i].getUserName(), top.get(i).getUserName());
+        }
+        assertEquals(300, columns.top(1000).size());
+        assertTrue(columns.top(0).isEmpty());
+    }
+
+    /**
+     * Verifies histograms and aggregates, and that changes and removals are reflected.
+     */
+    @Test
+    public void testHistogramAndAggregates() {
+        StatsColumns columns = new StatsColumns();
+        columns.put(record("alice", 4, 50, 5));
+        columns.put(record("bob", 6, 100, 15));
+        columns.put(record("carol", 10, 75, 250));
+
+        assertArrayEquals(new int[]{1, 1, 1}, columns.scoreHistogram(10, 3));
+        assertEquals(75.0, columns.averageAccuracy(), 1e-9);
+        assertEquals(20, columns.totalGamesPlayed());
+        assertEquals(250, columns.maxHighScore());
+
+        columns.set("alice", PlayerRecord.HIGH_SCORE, "12");
+        columns.set("alice", PlayerRecord.ACCURACY_RATE, "not a number");
+        columns.remove("carol");
+        columns.set("carol", PlayerRecord.HIGH_SCORE, "99");
+
+        assertEquals(2, columns.size());
+        assertArrayEquals(new int[]{0, 2, 0}, columns.scoreHistogram(10, 3));
+        assertEquals(50.0, columns.averageAccuracy(), 1e-9);
+        assertEquals(15, columns.maxHighScore());
+        assertEquals("bob", columns.top(1).get(0).getUserName());
+    }
+}
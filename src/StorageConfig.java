@@ -0,0 +1,109 @@
+/**
+ * Central place for the tunable settings of the user storage layer.
+ * Every value can be overridden on the command line with a {@code -D} system property,
+ * for example {@code -Dgeocraft.commitWindowMs=50}.
+ */
+public final class StorageConfig {
+
+    /**
+     * How long, in milliseconds, a commit waits for other saves to join it before forcing them to disk together.
+     */
+    public static final long COMMIT_WINDOW_MS = Long.getLong("geocraft.commitWindowMs", 25L);
+
+    /**
+     * Whether changes are appended to a journal next to {@code database.csv} instead of rewriting the whole file.
+     * Turn off with {@code -Dgeocraft.journal=false} to get the plain write-back behaviour.
+     */
+    public static final boolean JOURNAL_ENABLED = Boolean.parseBoolean(System.getProperty("geocraft.journal", "true"));
+
+    /**
+     * Size in bytes the journal may reach before a background compaction folds it into a new snapshot.
+     */
+    public static final long JOURNAL_COMPACT_BYTES = Long.getLong("geocraft.journalCompactBytes", 4L * 1024 * 1024);
+
+    /**
+     * Which user store backs {@link CsvHandler}: {@code csv} (the default) or {@code binary}
+     * for the memory-mapped {@link BinaryUserStore}.
+     */
+    public static final String STORAGE = System.getProperty("geocraft.storage", "csv");
+
+    /**
+     * Location of the binary user store used when {@link #STORAGE} is {@code binary}.
+     */
+    public static final String BINARY_FILE_PATH = System.getProperty("geocraft.binaryFile", "database.bin");
+
+    /**
+     * Number of files the CSV user store is split into by username hash, see {@link ShardedUserStore}.
+     * Changing it moves every user into the new layout the next time the game starts.
+     */
+    public static final int USER_SHARDS = Integer.getInteger("geocraft.userShards", 1);
+
+    /**
+     * Whether several game processes share one {@code database.csv}. Turn on with {@code -Dgeocraft.sharedStore=true}:
+     * writers then coordinate through a {@link SharedFileLock} and catch up with each other's journal records,
+     * journaling is always on, and asynchronous writes are off so conflicts are seen by the writer that caused them.
+     */
+    public static final boolean SHARED_STORE = Boolean.parseBoolean(System.getProperty("geocraft.sharedStore", "false"));
+
+    /**
+     * How often, in milliseconds, a shared store picks up the changes other processes made while it was not writing.
+     */
+    public static final long SHARED_POLL_MS = Long.getLong("geocraft.sharedPollMs", 500L);
+
+    /**
+     * Days without a login after which an account is moved to the {@link ColdArchive}; 0 or less turns tiering off.
+     * Always off for a {@link #SHARED_STORE}, since each process only knows the logins it saw itself.
+     */
+    public static final int COLD_AFTER_DAYS = SHARED_STORE ? 0 : Integer.getInteger("geocraft.coldAfterDays", 180);
+
+    /**
+     * Whether column changes made through {@link CsvHandler} are handed to the background {@link PersistenceQueue}
+     * instead of being written on the calling thread. Turn off with {@code -Dgeocraft.asyncWrites=false}.
+     * Always off for a {@link #SHARED_STORE}.
+     */
+    public static final boolean ASYNC_WRITES = Boolean.parseBoolean(System.getProperty("geocraft.asyncWrites", "true")) && !SHARED_STORE;
+
+    /**
+     * Whether {@link CsvHandler} keeps a {@link UserBloomFilter} so names that were never registered are turned
+     * away without a store lookup. Always off for a {@link #SHARED_STORE}: every process would map the same filter
+     * file but resize and refill it from its own view of the users, wiping names the others had added.
+     */
+    public static final boolean USER_BLOOM_FILTER = !SHARED_STORE;
+
+    /**
+     * Most distinct user columns that may wait in the {@link PersistenceQueue} before saving blocks the caller.
+     */
+    public static final int PERSIST_QUEUE_CAPACITY = Integer.getInteger("geocraft.persistQueueCapacity", 1024);
+
+    /**
+     * Which {@link UserRepository} the game uses: {@code csv} (the default, {@link CsvUserRepository})
+     * or {@code sql} for {@link SqlUserRepository}.
+     */
+    public static final String REPOSITORY = System.getProperty("geocraft.repository", "csv");
+
+    /**
+     * JDBC URL of the database used when {@link #REPOSITORY} is {@code sql}. The H2 driver is bundled; other engines need their driver on the classpath.
+     */
+    public static final String JDBC_URL = System.getProperty("geocraft.jdbcUrl", "jdbc:h2:./geocraft");
+
+    /**
+     * Folder holding one saved game file per user, see {@link SaveSlotStore}.
+     */
+    public static final String SAVE_DIR = System.getProperty("geocraft.saveDir", "saves");
+
+    /**
+     * Number of score changes after which the {@link Leaderboard} publishes a new snapshot for readers.
+     */
+    public static final int LEADERBOARD_SNAPSHOT_CHANGES = Integer.getInteger("geocraft.leaderboardSnapshotChanges", 64);
+
+    /**
+     * Longest time in milliseconds a {@link Leaderboard} snapshot stays unpublished while changes are waiting.
+     */
+    public static final long LEADERBOARD_SNAPSHOT_MS = Long.getLong("geocraft.leaderboardSnapshotMs", 1000L);
+
+    /**
+     * This class only holds constants and should never be created.
+     */
+    private StorageConfig() {
+    }
+}
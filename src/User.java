@@ -21,7 +21,7 @@ public class User {
     public User(String username, String password) {
         this.username = username;
         this.password = password;
-        CsvHandler.addUser(username, password);
+        UserRepository.get().addUser(username, password);
     }
 
     /**
@@ -38,7 +38,7 @@ public class User {
      */
     public void setPassword(String password) {
         this.password = password;
-        CsvHandler.changePassword(username, password);
+        UserRepository.get().changePassword(username, password);
     }
 
     /**
@@ -0,0 +1,190 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * When each user was last active, which decides who {@link CsvHandler#archiveDormantUsers(long)} moves
+ * into the {@link ColdArchive}. Kept next to the user file in {@code database.csv.activity} rather than as a
+ * column, so touching a user never rewrites its row.
+ *
+ * <p>The file is a log of {@code user_name,epoch millis} lines where the last line for a user wins; a login
+ * appends one line. It is rewritten with one line per user when it has grown to twice that. The first time
+ * the file is created every existing user is stamped as active then, so no one is archived straight away.
+ *
+ * <p>With {@link StorageConfig#SHARED_STORE} several processes append to the same log, so it is never rewritten
+ * from one process's copy, which would drop the others' lines; a deleted user is recorded by a line with a
+ * negative time instead.
+ */
+public class UserActivity {
+
+    /** Lines the log may hold beyond twice the number of users before it is rewritten. */
+    private static final int COMPACT_SLACK = 1024;
+
+    /** Time written for a user that was deleted. */
+    private static final long FORGOTTEN = -1;
+
+    /** The activity record shared by the whole process, created on first use. */
+    private static UserActivity instance;
+
+    /** Location of the log. */
+    private final Path path;
+
+    /** Last activity of each user, in milliseconds since the epoch. */
+    private final Map<String, Long> lastActive = new HashMap<>();
+
+    /** Number of lines in the log. */
+    private int lines;
+
+    /**
+     * Returns the activity record of the users of {@link CsvHandler}, loading it the first time.
+     *
+     * @return The shared activity record.
+     */
+    public static synchronized UserActivity get() {
+        if (instance == null) {
+            Path path = Paths.get(CsvHandler.filePath + ".activity");
+            boolean created = !Files.exists(path);
+            instance = new UserActivity(path);
+            if (created) {
+                instance.touchAll(CsvHandler.store().getUserNames(), System.currentTimeMillis());
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Drops the shared record so the next {@link #get()} loads the log next to {@link CsvHandler#filePath} again.
+     * Every change is already in the log. Used by {@link CsvHandler#useFile(Path)}.
+     */
+    static synchronized void reset() {
+        instance = null;
+    }
+
+    /**
+     * Opens the log at a path and loads it, if it exists.
+     *
+     * @param path Location of the log.
+     */
+    UserActivity(Path path) {
+        this.path = path;
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(path.toString()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comma = line.lastIndexOf(',');
+                if (comma <= 0) {
+                    continue;
+                }
+                try {
+                    String userName = line.substring(0, comma);
+                    long time = Long.parseLong(line.substring(comma + 1));
+                    if (time < 0) {
+                        lastActive.remove(userName);
+                    } else {
+                        lastActive.put(userName, time);
+                    }
+                    lines++;
+                } catch (NumberFormatException e) {
+                    // A line torn by a crash; the user keeps its previous time
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns when a user was last active.
+     *
+     * @param userName The username.
+     * @return Milliseconds since the epoch, or -1 if nothing is known about the user.
+     */
+    public synchronized long lastActive(String userName) {
+        Long time = lastActive.get(userName);
+        return time == null ? -1 : time;
+    }
+
+    /**
+     * Records that a user is active now.
+     *
+     * @param userName The username.
+     */
+    public void touch(String userName) {
+        touchAll(List.of(userName), System.currentTimeMillis());
+    }
+
+    /**
+     * Records that several users were active at a time.
+     *
+     * @param userNames The usernames.
+     * @param time Milliseconds since the epoch.
+     */
+    synchronized void touchAll(Iterable<String> userNames, long time) {
+        for (String userName : userNames) {
+            lastActive.put(userName, time);
+        }
+        append(userNames, time);
+        if (!StorageConfig.SHARED_STORE && lines > 2 * lastActive.size() + COMPACT_SLACK) {
+            rewrite();
+        }
+    }
+
+    /**
+     * Forgets a deleted user, rewriting the log so the user is not brought back by an old line, or appending
+     * a line that removes the user when the log is shared.
+     *
+     * @param userName The username.
+     */
+    public synchronized void forget(String userName) {
+        if (lastActive.remove(userName) != null) {
+            if (StorageConfig.SHARED_STORE) {
+                append(List.of(userName), FORGOTTEN);
+            } else {
+                rewrite();
+            }
+        }
+    }
+
+    /**
+     * Appends a line for each of several users to the log.
+     *
+     * @param userNames The usernames.
+     * @param time Milliseconds since the epoch, or {@link #FORGOTTEN}.
+     */
+    private void append(Iterable<String> userNames, long time) {
+        try (Writer writer = new FileWriter(path.toString(), true)) {
+            for (String userName : userNames) {
+                writer.write(userName + "," + time + "\n");
+                lines++;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replaces the log with one line per user.
+     */
+    private void rewrite() {
+        try {
+            AtomicFiles.write(path, writer -> {
+                for (Map.Entry<String, Long> entry : lastActive.entrySet()) {
+                    writer.write(entry.getKey() + "," + entry.getValue() + "\n");
+                }
+            });
+            lines = lastActive.size();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
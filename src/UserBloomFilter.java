@@ -0,0 +1,294 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Bloom filter over every registered username, kept in a memory-mapped file next to the user data
+ * ({@code database.csv.bloom}, or {@code database.bin.bloom} with binary storage).
+ * {@link CsvHandler#isDuplicateUser(String)} asks it first: a negative answer is final and skips the
+ * store lookup, and only a possible match goes on to the exact check.
+ *
+ * <p>Usernames are added before their row is stored and never removed, so the filter only ever errs
+ * towards "maybe". It is sized at about ten bits per user for a false positive rate near 1%, and is
+ * rebuilt from the store once it has taken in twice the users it was sized for and whenever the shared
+ * {@link UserTable} compacts its journal, which also clears the bits of deleted users. Rebuilds hold the
+ * exclusive {@link UserLocks} lock, so no username is between being added and being stored while the
+ * store is read. A file that has seen fewer additions than the store has users, for example after the
+ * user file was edited offline, is rebuilt on open.
+ *
+ * <p>Not used for a {@link StorageConfig#SHARED_STORE}, see {@link StorageConfig#USER_BLOOM_FILTER}.
+ *
+ * <p>Header layout: magic (int), hash count (int), bit count (long), additions (int), capacity (int).
+ */
+public class UserBloomFilter implements Closeable {
+
+    /** Magic number at the start of every filter file ("GCB1"). */
+    static final int MAGIC = 0x47434231;
+
+    /** Size in bytes of the file header. */
+    static final int HEADER_SIZE = 24;
+
+    /** Bits per expected user. With {@link #HASHES} hashes this gives about 1% false positives. */
+    static final int BITS_PER_USER = 10;
+
+    /** Number of bits set per username. */
+    static final int HASHES = 7;
+
+    /** Fewest users a filter is sized for, so a new install does not rebuild after every registration. */
+    private static final int MIN_CAPACITY = 1024;
+
+    /** Header offsets. */
+    private static final int H_HASHES = 4, H_BITS = 8, H_ADDED = 16, H_CAPACITY = 20;
+
+    /** The filter shared by the whole process, created on first use. */
+    private static UserBloomFilter instance;
+
+    /** Where the usernames come from when the filter is rebuilt. */
+    private final UserRowStore store;
+
+    /** Channel of the filter file, or null if it could not be opened and the filter lives on the heap. */
+    private final FileChannel channel;
+
+    /** The header followed by the bit array. */
+    private ByteBuffer map;
+
+    /** Number of bits in the array, a multiple of 64. */
+    private long bits;
+
+    /** Number of usernames added since the last rebuild, including the ones the rebuild added. */
+    private int added;
+
+    /** Number of additions the array was sized for; reaching it triggers a rebuild. */
+    private int capacity;
+
+    /**
+     * Returns the filter for the users of {@link CsvHandler#store()}, opening or building it the first time.
+     *
+     * @return The shared filter.
+     */
+    public static synchronized UserBloomFilter get() {
+        if (instance == null) {
+            Path data = StorageConfig.STORAGE.equals("binary") ? Paths.get(StorageConfig.BINARY_FILE_PATH) : CsvHandler.filePath;
+            instance = new UserBloomFilter(pathFor(data), CsvHandler.store());
+        }
+        return instance;
+    }
+
+    /**
+     * Closes the shared filter, if it is open, so the next {@link #get()} opens the one kept for
+     * {@link CsvHandler#filePath} again. Used by {@link CsvHandler#useFile(Path)}.
+     */
+    static synchronized void reset() {
+        if (instance != null) {
+            try {
+                instance.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            instance = null;
+        }
+    }
+
+    /**
+     * Rebuilds the shared filter from the store under the exclusive {@link UserLocks} lock, if it has been created.
+     * Called after a compaction so the bits of deleted users are dropped, and after a registration that filled the filter.
+     * Does nothing inside a per-user section, which cannot take the exclusive lock; the next call catches up.
+     */
+    public static void rebuildIfOpen() {
+        UserBloomFilter filter;
+        synchronized (UserBloomFilter.class) {
+            filter = instance;
+        }
+        if (filter != null && !UserLocks.inUserSection()) {
+            UserLocks.exclusive(filter::rebuild);
+        }
+    }
+
+    /**
+     * Returns the location of the filter file kept for a user data file.
+     *
+     * @param data The user data file.
+     * @return The path of its filter file.
+     */
+    static Path pathFor(Path data) {
+        return Paths.get(data + ".bloom");
+    }
+
+    /**
+     * Opens the filter file, rebuilding it from the store if it is missing, damaged or stale.
+     * If the file cannot be opened the stack trace is printed and the filter is kept in memory only.
+     *
+     * @param path Location of the filter file.
+     * @param store The users the filter covers.
+     */
+    UserBloomFilter(Path path, UserRowStore store) {
+        this.store = store;
+        FileChannel opened = null;
+        boolean valid = false;
+        try {
+            opened = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (opened.size() >= HEADER_SIZE) {
+                MappedByteBuffer header = opened.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+                long storedBits = header.getLong(H_BITS);
+                valid = header.getInt(0) == MAGIC && header.getInt(H_HASHES) == HASHES
+                        && storedBits > 0 && storedBits % 64 == 0 && opened.size() >= HEADER_SIZE + storedBits / 8
+                        // Every username is added before its row is stored, so fewer additions than users means some were missed
+                        && header.getInt(H_ADDED) >= store.getUserNames().size();
+                if (valid) {
+                    bits = storedBits;
+                    added = header.getInt(H_ADDED);
+                    capacity = header.getInt(H_CAPACITY);
+                    map = opened.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + bits / 8);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            opened = null;
+        }
+        channel = opened;
+        if (!valid) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Tells whether a username may be registered.
+     *
+     * @param userName The username.
+     * @return false if the username is certainly not registered, true if it might be.
+     */
+    public synchronized boolean mightContain(String userName) {
+        long h1 = hash(userName);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((map.get(HEADER_SIZE + (int) (bit >>> 3)) & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a username. Must be called before the user's row is stored.
+     *
+     * @param userName The username.
+     */
+    public synchronized void add(String userName) {
+        set(userName);
+        added++;
+        map.putInt(H_ADDED, added);
+    }
+
+    /**
+     * Tells whether the filter has taken in as many usernames as it was sized for, so its
+     * false positive rate has started to climb and it should be rebuilt larger.
+     *
+     * @return true if a rebuild is due.
+     */
+    public synchronized boolean isFull() {
+        return added >= capacity;
+    }
+
+    /**
+     * Returns the number of usernames added since the last rebuild, including the ones the rebuild added.
+     *
+     * @return The addition count.
+     */
+    public synchronized int added() {
+        return added;
+    }
+
+    /**
+     * Clears the filter and adds every username currently in the store, sizing it for twice that many.
+     * Outside of opening, callers hold the exclusive {@link UserLocks} lock, so a username that was
+     * added but not stored yet cannot be dropped.
+     */
+    public synchronized void rebuild() {
+        ArrayList<String> names = store.getUserNames();
+        capacity = Math.max(MIN_CAPACITY, names.size() * 2);
+        bits = ((long) capacity * BITS_PER_USER + 63) / 64 * 64;
+        int length = (int) (HEADER_SIZE + bits / 8);
+        try {
+            map = channel != null ? channel.map(FileChannel.MapMode.READ_WRITE, 0, length) : ByteBuffer.allocate(length);
+        } catch (IOException e) {
+            e.printStackTrace();
+            map = ByteBuffer.allocate(length);
+        }
+        // The file is never truncated while mapped, so clear the bits left over from a previous filter
+        for (int offset = HEADER_SIZE; offset < length; offset += 8) {
+            map.putLong(offset, 0);
+        }
+        for (String name : names) {
+            set(name);
+        }
+        added = names.size();
+        map.putInt(0, MAGIC).putInt(H_HASHES, HASHES).putLong(H_BITS, bits).putInt(H_ADDED, added).putInt(H_CAPACITY, capacity);
+    }
+
+    /**
+     * Forces the filter and closes the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (map instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) map).force();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Sets the bits of a username.
+     *
+     * @param userName The username.
+     */
+    private void set(String userName) {
+        long h1 = hash(userName);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int offset = HEADER_SIZE + (int) (bit >>> 3);
+            map.put(offset, (byte) (map.get(offset) | (1 << (bit & 7))));
+        }
+    }
+
+    /**
+     * First hash of a username, 64-bit FNV-1a over its characters.
+     *
+     * @param userName The username.
+     * @return The hash.
+     */
+    private static long hash(String userName) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < userName.length(); i++) {
+            h = (h ^ userName.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Derives the second hash from the first with the 64-bit MurmurHash3 finalizer.
+     * The i-th bit of a username is {@code h1 + i * h2}, so only two hashes are computed per lookup.
+     *
+     * @param h The first hash.
+     * @return The mixed value.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
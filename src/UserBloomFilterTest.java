@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link UserBloomFilter} class: no false negatives, a filter reused from disk,
+ * and a stale filter rebuilt from the store. Every test works on its own temporary files.
+ */
+public class UserBloomFilterTest {
+
+    /**
+     * Creates a user table in a temporary file with the given users.
+     *
+     * @param names The usernames to add.
+     * @return The table.
+     * @throws IOException if the temporary file cannot be created.
+     */
+    private static UserTable tableWith(String... names) throws IOException {
+        Path csv = Files.createTempFile("users", ".csv");
+        Files.delete(csv);
+        UserTable table = new UserTable(csv, false);
+        for (String name : names) {
+            table.addRow(new String[]{name, "secret", "0", "N", "100", "None", "0"});
+        }
+        return table;
+    }
+
+    /**
+     * Verifies that every stored or added username is reported as possibly present,
+     * and that most unknown usernames are rejected.
+     *
+     * @throws IOException if the temporary files cannot be created.
+     */
+    @Test
+    public void testNoFalseNegatives() throws IOException {
+        UserTable table = tableWith("alice", "bob");
+        Path path = Files.createTempFile("users", ".bloom");
+        try (UserBloomFilter filter = new UserBloomFilter(path, table)) {
+            for (int i = 0; i < 3000; i++) {
+                filter.add("user" + i);
+                table.addRow(new String[]{"user" + i, "secret", "0", "N", "100", "None", "0"});
+                if (filter.isFull()) {
+                    filter.rebuild();
+                }
+            }
+            assertTrue(filter.mightContain("alice"));
+            assertTrue(filter.mightContain("bob"));
+            int falsePositives = 0;
+            for (int i = 0; i < 3000; i++) {
+                assertTrue(filter.mightContain("user" + i));
+                if (filter.mightContain("other" + i)) {
+                    falsePositives++;
+                }
+            }
+            assertTrue(falsePositives < 150, falsePositives + " false positives");
+        }
+    }
+
+    /**
+     * Verifies that a filter written to disk is reused as is when reopened.
+     *
+     * @throws IOException if the temporary files cannot be created.
+     */
+    @Test
+    public void testReopenedFromDisk() throws IOException {
+        UserTable table = tableWith("alice");
+        Path path = Files.createTempFile("users", ".bloom");
+        try (UserBloomFilter filter = new UserBloomFilter(path, table)) {
+            filter.add("carol");
+        }
+        try (UserBloomFilter reopened = new UserBloomFilter(path, table)) {
+            assertEquals(2, reopened.added());
+            assertTrue(reopened.mightContain("carol"));
+        }
+    }
+
+    /**
+     * Verifies that a filter that has seen fewer users than the store holds is rebuilt on open.
+     *
+     * @throws IOException if the temporary files cannot be created.
+     */
+    @Test
+    public void testStaleFileIsRebuilt() throws IOException {
+        UserTable table = tableWith("alice");
+        Path path = Files.createTempFile("users", ".bloom");
+        new UserBloomFilter(path, table).close();
+        table.addRow(new String[]{"dave", "secret", "0", "N", "100", "None", "0"});
+
+        try (UserBloomFilter reopened = new UserBloomFilter(path, table)) {
+            assertEquals(2, reopened.added());
+            assertTrue(reopened.mightContain("dave"));
+        }
+    }
+}
@@ -0,0 +1,352 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistent hash index from username to record slot, kept in a memory-mapped file next to the user data.
+ * It is an open-addressing table with linear probing, so a lookup reads one bucket in the common case
+ * and a few neighbouring buckets on a collision, no matter how many users there are.
+ *
+ * <p>The header stores a stamp that must match the one kept by the data file. The data file changes
+ * its stamp whenever users are added or deleted and the index is updated in the same step, so a
+ * mismatch means the index is missing or stale and must be rebuilt with {@link #clear(int)} and {@link #put(String, int)}.
+ *
+ * <p>Bucket layout: state (1), key length (1), key (16), slot (int), padding (2).
+ */
+public class UserHashIndex implements Closeable {
+
+    /** Magic number at the start of every index file ("GCX1"). */
+    static final int MAGIC = 0x47435831;
+
+    /** Size in bytes of the file header. */
+    static final int HEADER_SIZE = 32;
+
+    /** Size in bytes of one bucket. */
+    static final int BUCKET_SIZE = 24;
+
+    /** Longest key in bytes, the same limit the binary store puts on usernames. */
+    static final int MAX_KEY_BYTES = BinaryUserStore.MAX_NAME_BYTES;
+
+    /** Bucket states. */
+    private static final byte EMPTY = 0, USED = 1, DELETED = 2;
+
+    /** Header offsets. */
+    private static final int H_BUCKETS = 4, H_ENTRIES = 8, H_TOMBSTONES = 12, H_STAMP = 16;
+
+    /** Channel of the index file. */
+    private final FileChannel channel;
+
+    /** Mapping of the header and every bucket. */
+    private MappedByteBuffer map;
+
+    /** Number of buckets, always a power of two. */
+    private int buckets;
+
+    /** Number of live entries. */
+    private int entries;
+
+    /** Number of deleted buckets still occupying a probe chain. */
+    private int tombstones;
+
+    /** Whether the file held a well-formed index whose stamp matched the expected one when opened. */
+    private final boolean valid;
+
+    /**
+     * Opens the index file, creating it if needed.
+     *
+     * @param path Location of the index file.
+     * @param expectedStamp The stamp the data file currently holds.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public UserHashIndex(Path path, long expectedStamp) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean wellFormed = false;
+        if (channel.size() >= HEADER_SIZE) {
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            int storedBuckets = map.getInt(H_BUCKETS);
+            wellFormed = map.getInt(0) == MAGIC && Integer.bitCount(storedBuckets) == 1
+                    && channel.size() >= HEADER_SIZE + (long) storedBuckets * BUCKET_SIZE;
+            if (wellFormed) {
+                buckets = storedBuckets;
+                map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) buckets * BUCKET_SIZE);
+                entries = map.getInt(H_ENTRIES);
+                tombstones = map.getInt(H_TOMBSTONES);
+            }
+        }
+        valid = wellFormed && map.getLong(H_STAMP) == expectedStamp;
+        if (!wellFormed) {
+            clear(64);
+            setStamp(expectedStamp);
+        }
+    }
+
+    /**
+     * Tells whether the index could be used as it was found on disk.
+     * When false the caller must rebuild it from the data file.
+     *
+     * @return true if the index matched the data file when it was opened.
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Returns the number of usernames in the index.
+     *
+     * @return The entry count.
+     */
+    public synchronized int size() {
+        return entries;
+    }
+
+    /**
+     * Records the stamp of the data file this index now matches.
+     *
+     * @param stamp The data file's stamp.
+     */
+    public synchronized void setStamp(long stamp) {
+        map.putLong(H_STAMP, stamp);
+    }
+
+    /**
+     * Empties the index and resizes it so it can hold about {@code expectedEntries} usernames.
+     *
+     * @param expectedEntries How many usernames are about to be inserted.
+     * @throws IOException If the file cannot be resized.
+     */
+    public synchronized void clear(int expectedEntries) throws IOException {
+        int newBuckets = Integer.highestOneBit(Math.max(64, expectedEntries * 2 - 1)) << 1;
+        resize(newBuckets);
+        entries = 0;
+        tombstones = 0;
+        writeCounts();
+    }
+
+    /**
+     * Returns the slot stored for a username.
+     *
+     * @param name The username.
+     * @return The record slot, or -1 if the username is not in the index.
+     */
+    public synchronized int get(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_KEY_BYTES) {
+            return -1;
+        }
+        int bucket = find(key);
+        return bucket < 0 ? -1 : map.getInt(bucketOffset(bucket) + 18);
+    }
+
+    /**
+     * Stores or replaces the slot for a username, growing the table when it gets half full.
+     *
+     * @param name The username.
+     * @param slot The record slot.
+     * @throws IOException If the table has to grow and the file cannot be resized.
+     */
+    public synchronized void put(String name, int slot) throws IOException {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_KEY_BYTES) {
+            throw new IllegalArgumentException("Key longer than " + MAX_KEY_BYTES + " bytes: " + name);
+        }
+        int existing = find(key);
+        if (existing >= 0) {
+            map.putInt(bucketOffset(existing) + 18, slot);
+            return;
+        }
+        if ((entries + tombstones + 1) * 2 > buckets) {
+            rehash(entries + 1 > buckets / 4 ? buckets * 2 : buckets);
+        }
+        int bucket = (int) hash(key) & (buckets - 1);
+        while (map.get(bucketOffset(bucket)) == USED) {
+            bucket = (bucket + 1) & (buckets - 1);
+        }
+        if (map.get(bucketOffset(bucket)) == DELETED) {
+            tombstones--;
+        }
+        writeBucket(bucket, key, slot);
+        entries++;
+        writeCounts();
+    }
+
+    /**
+     * Removes a username from the index.
+     *
+     * @param name The username.
+     * @return true if the username was in the index.
+     */
+    public synchronized boolean remove(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_KEY_BYTES) {
+            return false;
+        }
+        int bucket = find(key);
+        if (bucket < 0) {
+            return false;
+        }
+        map.put(bucketOffset(bucket), DELETED);
+        entries--;
+        tombstones++;
+        writeCounts();
+        return true;
+    }
+
+    /**
+     * Forces the index to disk.
+     */
+    public synchronized void force() {
+        map.force();
+    }
+
+    /**
+     * Forces the index and closes the file.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    /**
+     * Finds the bucket holding a key by probing from its home bucket until an empty bucket.
+     *
+     * @param key The key bytes.
+     * @return The bucket index, or -1 if the key is absent.
+     */
+    private int find(byte[] key) {
+        int bucket = (int) hash(key) & (buckets - 1);
+        for (int probes = 0; probes < buckets; probes++) {
+            int at = bucketOffset(bucket);
+            byte state = map.get(at);
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == USED && keyEquals(at, key)) {
+                return bucket;
+            }
+            bucket = (bucket + 1) & (buckets - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the key stored in a bucket with the given key.
+     *
+     * @param at Offset of the bucket.
+     * @param key The key bytes.
+     * @return true if they are equal.
+     */
+    private boolean keyEquals(int at, byte[] key) {
+        if (map.get(at + 1) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (map.get(at + 2 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a used bucket.
+     *
+     * @param bucket The bucket index.
+     * @param key The key bytes.
+     * @param slot The record slot.
+     */
+    private void writeBucket(int bucket, byte[] key, int slot) {
+        int at = bucketOffset(bucket);
+        map.put(at + 1, (byte) key.length);
+        map.put(at + 2, key);
+        map.putInt(at + 18, slot);
+        map.put(at, USED);
+    }
+
+    /**
+     * Rebuilds the table with a new number of buckets, dropping tombstones.
+     *
+     * @param newBuckets The new bucket count, a power of two.
+     * @throws IOException If the file cannot be resized.
+     */
+    private void rehash(int newBuckets) throws IOException {
+        List<byte[]> keys = new ArrayList<>(entries);
+        List<Integer> slots = new ArrayList<>(entries);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int at = bucketOffset(bucket);
+            if (map.get(at) == USED) {
+                byte[] key = new byte[map.get(at + 1)];
+                map.get(at + 2, key);
+                keys.add(key);
+                slots.add(map.getInt(at + 18));
+            }
+        }
+        resize(newBuckets);
+        for (int i = 0; i < keys.size(); i++) {
+            int bucket = (int) hash(keys.get(i)) & (buckets - 1);
+            while (map.get(bucketOffset(bucket)) == USED) {
+                bucket = (bucket + 1) & (buckets - 1);
+            }
+            writeBucket(bucket, keys.get(i), slots.get(i));
+        }
+        tombstones = 0;
+        writeCounts();
+    }
+
+    /**
+     * Maps a zeroed table of the given size, keeping the stamp.
+     *
+     * @param newBuckets The new bucket count, a power of two.
+     * @throws IOException If the file cannot be resized.
+     */
+    private void resize(int newBuckets) throws IOException {
+        long stamp = map == null ? 0 : map.getLong(H_STAMP);
+        buckets = newBuckets;
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) buckets * BUCKET_SIZE);
+        // The file is never truncated while mapped, so clear the states left over from a previous table
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            map.put(bucketOffset(bucket), EMPTY);
+        }
+        map.putInt(0, MAGIC).putInt(H_BUCKETS, buckets).putLong(H_STAMP, stamp);
+    }
+
+    /**
+     * Writes the entry and tombstone counts to the header.
+     */
+    private void writeCounts() {
+        map.putInt(H_ENTRIES, entries).putInt(H_TOMBSTONES, tombstones);
+    }
+
+    /**
+     * Returns the byte offset of a bucket inside the mapping.
+     *
+     * @param bucket The bucket index.
+     * @return The offset of its first byte.
+     */
+    private static int bucketOffset(int bucket) {
+        return HEADER_SIZE + bucket * BUCKET_SIZE;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the key bytes, mixed so the low bits used for the bucket are well spread.
+     *
+     * @param key The key bytes.
+     * @return The hash.
+     */
+    static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h ^ (h >>> 32);
+    }
+}
@@ -0,0 +1,382 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of changes made to the user table since the last snapshot of {@code database.csv}.
+ * Every change is one small record, so the cost of saving depends on the size of the change
+ * instead of the number of users. On startup the log is replayed on top of the snapshot.
+ *
+ * <p>The file starts with a 12 byte header (magic number and a random generation id).
+ * Each record is laid out as {@code [int payload length][int CRC32 of payload][payload]}.
+ * A record whose length or checksum does not match was torn by a crash and is cut off, together
+ * with everything after it, the next time the journal is opened.
+ */
+public class UserJournal implements Closeable {
+
+    /** Magic number at the start of every journal file ("GCJ1"). */
+    static final int MAGIC = 0x47434A31;
+
+    /** Size in bytes of the file header: magic number followed by the generation id. */
+    static final int HEADER_SIZE = 12;
+
+    /** Size in bytes of the length and checksum written in front of every record. */
+    static final int RECORD_HEADER_SIZE = 8;
+
+    /** Records larger than this are treated as corruption rather than allocated. */
+    static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    /** Record type: one column of an existing user changed. */
+    static final byte OP_SET = 1;
+
+    /** Record type: a whole new user row was added. */
+    static final byte OP_ADD = 2;
+
+    /** Record type: a user row was deleted. */
+    static final byte OP_DELETE = 3;
+
+    /**
+     * Receives the records of a journal while it is replayed.
+     */
+    public interface Visitor {
+        /**
+         * Called for a record that changed one column.
+         *
+         * @param userName The username whose row changed.
+         * @param index The column index, where 0 is the username.
+         * @param value The new value of the column.
+         */
+        void set(String userName, int index, String value);
+
+        /**
+         * Called for a record that added a user.
+         *
+         * @param row The full row, where index 0 is the username.
+         */
+        void add(String[] row);
+
+        /**
+         * Called for a record that deleted a user.
+         *
+         * @param userName The username that was deleted.
+         */
+        void delete(String userName);
+    }
+
+    /** Location of the journal file. */
+    private final Path path;
+
+    /** Channel used for both replaying and appending. */
+    private final FileChannel channel;
+
+    /** Random id written in the header, changes every time a fresh journal is started. */
+    private final long generation;
+
+    /** End of the last record this table has seen, by replaying it or appending it. */
+    private long replayedTo = HEADER_SIZE;
+
+    /**
+     * Opens the journal at the given path, creating it with a fresh header if it is missing or empty.
+     *
+     * @param path Location of the journal file.
+     * @throws IOException If the file cannot be opened or its header is not a journal header.
+     */
+    public UserJournal(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            generation = ThreadLocalRandom.current().nextLong();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putLong(generation).flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                channel.close();
+                throw new IOException("Not a user journal: " + path);
+            }
+            generation = header.getLong();
+        }
+    }
+
+    /**
+     * Returns the location of the journal file.
+     *
+     * @return The journal path.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the random id of this journal, written in its header when the file was created.
+     *
+     * @return The generation id.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the current size of the journal file in bytes, header included.
+     *
+     * @return The journal size in bytes.
+     * @throws IOException If the size cannot be read.
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Feeds every intact record to the visitor in the order it was written.
+     * A torn or corrupt tail is truncated so new records are appended right after the last good one.
+     *
+     * @param visitor Receives the records.
+     * @return The number of records replayed.
+     * @throws IOException If the file cannot be read.
+     */
+    public synchronized int replay(Visitor visitor) throws IOException {
+        return replayFrom(HEADER_SIZE, visitor);
+    }
+
+    /**
+     * Feeds the records appended since the last replay, catch-up or append of this instance to the visitor.
+     * Used when other processes append to the same file; the caller must hold the {@link SharedFileLock}
+     * so no record is half written.
+     *
+     * @param visitor Receives the records.
+     * @return The number of records replayed.
+     * @throws IOException If the file cannot be read.
+     */
+    public synchronized int catchUp(Visitor visitor) throws IOException {
+        return replayFrom(replayedTo, visitor);
+    }
+
+    /**
+     * Reads the generation id of the journal currently at a path, which differs from {@link #getGeneration()}
+     * once another process has compacted the journal this instance has open.
+     *
+     * @param path Location of a journal file.
+     * @return The generation id, or 0 if there is no journal with a valid header at the path.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    static long readGeneration(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            in.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                return 0;
+            }
+            return header.getLong();
+        }
+    }
+
+    /**
+     * Feeds every intact record from a position on to the visitor, and truncates a torn or corrupt tail.
+     *
+     * @param start Position of the first record to read.
+     * @param visitor Receives the records.
+     * @return The number of records replayed.
+     * @throws IOException If the file cannot be read.
+     */
+    private int replayFrom(long start, Visitor visitor) throws IOException {
+        long position = start;
+        long end = channel.size();
+        int count = 0;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_SIZE <= end) {
+            recordHeader.clear();
+            channel.read(recordHeader, position);
+            recordHeader.flip();
+            int length = recordHeader.getInt();
+            int checksum = recordHeader.getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + RECORD_HEADER_SIZE + length > end) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, position + RECORD_HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.array(), 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            payload.flip();
+            apply(payload, visitor);
+            position += RECORD_HEADER_SIZE + length;
+            count++;
+        }
+        if (position < end) {
+            System.err.println("Discarding " + (end - position) + " torn bytes at the end of " + path);
+            channel.truncate(position);
+        }
+        channel.position(channel.size());
+        replayedTo = position;
+        return count;
+    }
+
+    /**
+     * Decodes one record payload and passes it to the visitor.
+     *
+     * @param payload The record payload, positioned at its first byte.
+     * @param visitor Receives the decoded record.
+     */
+    private static void apply(ByteBuffer payload, Visitor visitor) {
+        byte op = payload.get();
+        switch (op) {
+            case OP_SET -> {
+                String userName = readString(payload);
+                int index = payload.getShort();
+                visitor.set(userName, index, readString(payload));
+            }
+            case OP_ADD -> {
+                String[] row = new String[payload.getShort()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = readString(payload);
+                }
+                visitor.add(row);
+            }
+            case OP_DELETE -> visitor.delete(readString(payload));
+            default -> System.err.println("Skipping unknown journal record type " + op);
+        }
+    }
+
+    /**
+     * Appends a record for a change to one column.
+     *
+     * @param userName The username whose row changed.
+     * @param index The column index, where 0 is the username.
+     * @param value The new value of the column, or null.
+     * @throws IOException If the record cannot be written.
+     */
+    public void appendSet(String userName, int index, String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(value == null ? 32 : 32 + value.length());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_SET);
+        writeString(out, userName);
+        out.writeShort(index);
+        writeString(out, value);
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * Appends a record for a newly added user.
+     *
+     * @param row The full row, where index 0 is the username.
+     * @throws IOException If the record cannot be written.
+     */
+    public void appendAdd(String[] row) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_ADD);
+        out.writeShort(row.length);
+        for (String value : row) {
+            writeString(out, value);
+        }
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * Appends a record for a deleted user.
+     *
+     * @param userName The username that was deleted.
+     * @throws IOException If the record cannot be written.
+     */
+    public void appendDelete(String userName) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(24);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_DELETE);
+        writeString(out, userName);
+        append(bytes.toByteArray());
+    }
+
+    /**
+     * Writes one framed record (length, checksum, payload) at the end of the file.
+     *
+     * @param payload The encoded record.
+     * @throws IOException If the record cannot be written.
+     */
+    private synchronized void append(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        long position = channel.size();
+        // Only a journal that has seen every earlier record stays caught up after this one
+        boolean caughtUp = replayedTo == position;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        if (caughtUp) {
+            replayedTo = position;
+        }
+    }
+
+    /**
+     * Forces every appended record to the storage device.
+     *
+     * @throws IOException If the journal cannot be synced.
+     */
+    public void sync() throws IOException {
+        channel.force(false);
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by its bytes. A null string is written as length -1.
+     *
+     * @param out The stream to write to.
+     * @param value The string to write.
+     * @throws IOException If the stream fails.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param in The buffer to read from.
+     * @return The string, or null if a null string was written.
+     */
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * Closes the journal file.
+     *
+     * @throws IOException If the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
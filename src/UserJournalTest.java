@@ -0,0 +1,195 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link UserJournal} class and the journaled mode of {@link UserTable}.
+ * Each test works on its own temporary files so it never touches the real database.
+ */
+public class UserJournalTest {
+
+    /**
+     * Collects replayed records as readable strings so they can be compared in order.
+     */
+    private static class Recorder implements UserJournal.Visitor {
+        /** The records seen so far. */
+        final List<String> seen = new ArrayList<>();
+
+        @Override
+        public void set(String userName, int index, String value) {
+            seen.add("set " + userName + " " + index + " " + value);
+        }
+
+        @Override
+        public void add(String[] row) {
+            seen.add("add " + String.join(",", row));
+        }
+
+        @Override
+        public void delete(String userName) {
+            seen.add("delete " + userName);
+        }
+    }
+
+    /**
+     * Verifies that records come back from a reopened journal in the order they were appended.
+     *
+     * @throws IOException if the temporary journal cannot be written.
+     */
+    @Test
+    public void testReplayInOrder() throws IOException {
+        Path path = Files.createTempFile("journal", ".log");
+        Files.delete(path);
+        try (UserJournal journal = new UserJournal(path)) {
+            journal.appendAdd(new String[]{"alice", "pass", "0"});
+            journal.appendSet("alice", 2, "7");
+            journal.appendDelete("alice");
+        }
+        Recorder recorder = new Recorder();
+        try (UserJournal journal = new UserJournal(path)) {
+            assertEquals(3, journal.replay(recorder));
+        }
+        assertEquals(List.of("add alice,pass,0", "set alice 2 7", "delete alice"), recorder.seen);
+    }
+
+    /**
+     * Verifies that a column set to null is journaled and replayed as null.
+     *
+     * @throws IOException if the temporary journal cannot be written.
+     */
+    @Test
+    public void testNullValueIsReplayed() throws IOException {
+        Path path = Files.createTempFile("journal", ".log");
+        Files.delete(path);
+        try (UserJournal journal = new UserJournal(path)) {
+            journal.appendSet("alice", 5, null);
+        }
+        Recorder recorder = new Recorder();
+        try (UserJournal journal = new UserJournal(path)) {
+            assertEquals(1, journal.replay(recorder));
+        }
+        assertEquals(List.of("set alice 5 null"), recorder.seen);
+    }
+
+    /**
+     * Verifies that a record torn by a crash is dropped and cut off, keeping every record before it.
+     *
+     * @throws IOException if the temporary journal cannot be written.
+     */
+    @Test
+    public void testTornTailIsTruncated() throws IOException {
+        Path path = Files.createTempFile("journal", ".log");
+        Files.delete(path);
+        long intactSize;
+        try (UserJournal journal = new UserJournal(path)) {
+            journal.appendSet("bob", 6, "10");
+            intactSize = journal.size();
+            journal.appendSet("bob", 6, "20");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        Recorder recorder = new Recorder();
+        try (UserJournal journal = new UserJournal(path)) {
+            assertEquals(1, journal.replay(recorder));
+            assertEquals(intactSize, journal.size());
+        }
+        assertEquals(List.of("set bob 6 10"), recorder.seen);
+    }
+
+    /**
+     * Verifies that changes made through a journaled table survive reopening the table,
+     * both before and after the journal is compacted into the snapshot.
+     *
+     * @throws IOException if the temporary files cannot be created.
+     */
+    @Test
+    public void testTableRecoversFromJournal() throws IOException {
+        Path csv = Files.createTempFile("users", ".csv");
+        Files.delete(csv);
+        UserTable table = new UserTable(csv, true);
+        table.addRow(new String[]{"carol", "secret", "0", "N", "100", "None", "0"});
+        table.setField("carol", 6, "42");
+        table.close();
+
+        UserTable reopened = new UserTable(csv, true);
+        assertEquals("42", reopened.getField("carol", 6));
+
+        reopened.compact();
+        reopened.close();
+        UserTable compacted = new UserTable(csv, true);
+        assertEquals("42", compacted.getField("carol", 6));
+        assertEquals("secret", compacted.getField("carol", 1));
+        compacted.close();
+    }
+
+    /**
+     * Verifies that two tables sharing a file see each other's changes, that a write computed from a
+     * stale read is refused, and that a compaction by one table makes the other reload.
+     *
+     * @throws IOException if the temporary files cannot be created.
+     */
+    @Test
+    public void testSharedTablesCatchUp() throws IOException {
+        Path csv = Files.createTempFile("shared", ".csv");
+        Files.delete(csv);
+        UserTable first = new UserTable(csv, true, true);
+        UserTable second = new UserTable(csv, true, true);
+
+        first.addRow(new String[]{"dave", "secret", "0", "N", "100", "None", "0"});
+        second.refresh();
+        PlayerRecord stale = second.getRecord("dave");
+        assertNotNull(stale);
+
+        first.setField("dave", 2, "1");
+        assertFalse(second.setFieldsIfVersion("dave", stale.getVersion(), new int[]{2}, new String[]{"9"}));
+        PlayerRecord fresh = second.getRecord("dave");
+        assertEquals(1, fresh.getNumGamesPlayed());
+        assertTrue(second.setFieldsIfVersion("dave", fresh.getVersion(), new int[]{2, 6}, new String[]{"2", "30"}));
+
+        first.compact();
+        second.setField("dave", 4, "50.0");
+        first.refresh();
+        assertEquals("2", first.getField("dave", 2));
+        assertEquals("30", first.getField("dave", 6));
+        assertEquals("50.0", first.getField("dave", 4));
+        first.close();
+        second.close();
+
+        UserTable reopened = new UserTable(csv, true);
+        assertEquals("50.0", reopened.getField("dave", 4));
+        reopened.close();
+    }
+
+    /**
+     * Verifies that a write to a shared table fails when the shared lock cannot be taken, instead of going ahead
+     * without it, while reads still answer, and that the table can write again once the lock is free.
+     *
+     * @throws IOException if the temporary files cannot be created.
+     */
+    @Test
+    public void testSharedWriteFailsWithoutLock() throws IOException {
+        Path csv = Files.createTempFile("shared", ".csv");
+        Files.delete(csv);
+        UserTable table = new UserTable(csv, true, true);
+        table.addRow(new String[]{"erin", "secret", "0", "N", "100", "None", "0"});
+
+        try (SharedFileLock other = new SharedFileLock(csv)) {
+            // Another lock on the same file in this JVM cannot be waited for, so taking it fails at once
+            other.lock();
+            assertThrows(IllegalStateException.class, () -> table.setField("erin", 2, "5"));
+            assertEquals("0", table.getField("erin", 2));
+        }
+        assertTrue(table.setField("erin", 2, "5"));
+        assertEquals("5", table.getField("erin", 2));
+        table.close();
+    }
+}
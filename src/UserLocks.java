@@ -0,0 +1,127 @@
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Locks that keep read-modify-write sequences on a user's data from interleaving.
+ * Each username maps to one of {@link #STRIPES} locks, so changes to the same player are serialized
+ * while changes to different players usually proceed in parallel. Operations that touch the whole
+ * file, such as deleting a user or compacting the journal, take an exclusive lock that waits for every
+ * per-user section to finish and keeps new ones out until it is done.
+ *
+ * <p>The per-user sections hold the shared side of the file lock, so an exclusive section cannot be
+ * started from inside a per-user one; {@link #exclusive(Supplier)} throws instead of deadlocking.
+ * The other way round is allowed.
+ */
+public final class UserLocks {
+
+    /** Number of per-user locks. A power of two so the stripe is picked with a mask. */
+    static final int STRIPES = 64;
+
+    /** The per-user locks. */
+    private static final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    /** Shared by per-user sections, held exclusively by whole-file operations. */
+    private static final ReentrantReadWriteLock fileLock = new ReentrantReadWriteLock();
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Utility class, not meant to be instantiated.
+     */
+    private UserLocks() {
+    }
+
+    /**
+     * Returns the lock guarding a username.
+     *
+     * @param userName The username.
+     * @return The stripe the username maps to.
+     */
+    static ReentrantLock stripeFor(String userName) {
+        int h = userName.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Runs an action while holding the lock of one user.
+     *
+     * @param userName The user whose data the action reads and changes.
+     * @param action The action to run.
+     * @param <T> The type of the action's result.
+     * @return The action's result.
+     */
+    public static <T> T withUser(String userName, Supplier<T> action) {
+        ReentrantLock stripe = stripeFor(userName);
+        fileLock.readLock().lock();
+        try {
+            stripe.lock();
+            try {
+                return action.get();
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs an action while holding the lock of one user.
+     *
+     * @param userName The user whose data the action reads and changes.
+     * @param action The action to run.
+     */
+    public static void withUser(String userName, Runnable action) {
+        withUser(userName, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs an action with no per-user section running anywhere else.
+     *
+     * @param action The action to run.
+     * @param <T> The type of the action's result.
+     * @return The action's result.
+     * @throws IllegalStateException If the calling thread is inside a per-user section.
+     */
+    public static <T> T exclusive(Supplier<T> action) {
+        if (fileLock.getReadHoldCount() > 0) {
+            throw new IllegalStateException("Cannot take the exclusive user lock inside a per-user section");
+        }
+        fileLock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Runs an action with no per-user section running anywhere else.
+     *
+     * @param action The action to run.
+     * @throws IllegalStateException If the calling thread is inside a per-user section.
+     */
+    public static void exclusive(Runnable action) {
+        exclusive(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Checks whether the calling thread is inside a per-user section.
+     *
+     * @return true if the thread holds the shared side of the file lock.
+     */
+    public static boolean inUserSection() {
+        return fileLock.getReadHoldCount() > 0;
+    }
+}
@@ -0,0 +1,52 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link UserLocks} class, checking that per-user sections do not lose
+ * read-modify-write updates and that the exclusive lock refuses to be taken from inside one.
+ */
+public class UserLocksTest {
+
+    /**
+     * Verifies that increments made from several threads inside per-user sections are all kept.
+     *
+     * @throws InterruptedException if a worker thread is interrupted.
+     */
+    @Test
+    public void testNoLostUpdates() throws InterruptedException {
+        Map<String, Integer> counters = new HashMap<>();
+        counters.put("alice", 0);
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    UserLocks.withUser("alice", () -> {
+                        int current = counters.get("alice");
+                        counters.put("alice", current + 1);
+                    });
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(40000, (int) counters.get("alice"));
+    }
+
+    /**
+     * Verifies that the exclusive lock cannot be taken inside a per-user section, but a per-user
+     * section can be entered inside an exclusive one.
+     */
+    @Test
+    public void testExclusiveNesting() {
+        assertThrows(IllegalStateException.class,
+                () -> UserLocks.withUser("bob", () -> UserLocks.exclusive(() -> { })));
+        assertEquals("ok", UserLocks.exclusive(() -> UserLocks.withUser("bob", () -> "ok")));
+        assertFalse(UserLocks.inUserSection());
+    }
+}
@@ -0,0 +1,259 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Storage of user accounts and stats, as used by the game screens.
+ * Everything the game needs to read or change about a user goes through this interface, so the storage
+ * backend can be swapped without touching game code. The backend is chosen once per process by
+ * {@link StorageConfig#REPOSITORY}: {@code csv} (the default) is served by {@link CsvUserRepository},
+ * {@code sql} by {@link SqlUserRepository} over an embedded JDBC database.
+ *
+ * <p>Values are exchanged as the same strings {@link CsvHandler} has always used, for example
+ * {@code "0"} for a new high score and {@code "None"} for an empty country list.
+ */
+public interface UserRepository {
+
+    /**
+     * Returns the repository configured for this process, creating it on first use.
+     *
+     * @return The shared repository.
+     */
+    static UserRepository get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Checks the format rules every backend applies to new accounts, {@link CsvHandler#credentialChecker(String, String)} included.
+     *
+     * @param userName The username to check.
+     * @param password The password to check.
+     * @return "ok" if both are valid, otherwise the reason they are not.
+     */
+    static String checkFormat(String userName, String password) {
+        if ((userName.length() > 16 || userName.length() < 4) || (password.length() > 16 || password.length() < 4)) {
+            return "password and username must be between 4-16 characters";
+        } else if (!userName.matches("^[a-zA-Z0-9]+$")) {
+            return "password and username must only contain alphanumeric characters";
+        }
+        return "ok";
+    }
+
+    /**
+     * Adds a new user with default stats.
+     *
+     * @param userName The username of the new user.
+     * @param password The password of the new user.
+     * @return "APPROVED" if the user was added, otherwise the reason it was not.
+     */
+    String addUser(String userName, String password);
+
+    /**
+     * Checks whether a username is valid and free, without adding it.
+     *
+     * @param userName The username to check.
+     * @param password The password to check.
+     * @return "ok" if the account could be created, otherwise the reason it could not.
+     */
+    String credentialChecker(String userName, String password);
+
+    /**
+     * Checks if a user exists.
+     *
+     * @param userName The username to check.
+     * @return true if the user exists, otherwise false.
+     */
+    boolean isDuplicateUser(String userName);
+
+    /**
+     * Records that a user just logged in, bringing the account back into the active users first
+     * if it was moved out for being dormant.
+     *
+     * @param userName The username that logged in.
+     */
+    void markActive(String userName);
+
+    /**
+     * Retrieves the password of a user.
+     *
+     * @param userName The username.
+     * @return The password, or null if the user does not exist.
+     */
+    String getPassword(String userName);
+
+    /**
+     * Retrieves the number of games played by a user.
+     *
+     * @param userName The username.
+     * @return The number of games played, or null if the user does not exist.
+     */
+    String getNumGamesPlayed(String userName);
+
+    /**
+     * Retrieves the accuracy rate of a user.
+     *
+     * @param userName The username.
+     * @return The accuracy rate, or null if the user does not exist.
+     */
+    String getAccuracyRate(String userName);
+
+    /**
+     * Retrieves the list of countries column of a user, where older versions kept the saved game.
+     *
+     * @param userName The username.
+     * @return The column value, or null if the user does not exist.
+     */
+    String getListOfCountry(String userName);
+
+    /**
+     * Retrieves the high score of a user.
+     *
+     * @param userName The username.
+     * @return The high score, or null if the user does not exist.
+     */
+    String getHighScore(String userName);
+
+    /**
+     * Changes the password of a user.
+     *
+     * @param userName The username.
+     * @param newPassword The new password.
+     */
+    void changePassword(String userName, String newPassword);
+
+    /**
+     * Changes the number of games played by a user.
+     *
+     * @param userName The username.
+     * @param newNumGamesPlayed The new number of games played.
+     */
+    void changeNumGamesPlayed(String userName, String newNumGamesPlayed);
+
+    /**
+     * Changes the accuracy rate of a user.
+     *
+     * @param userName The username.
+     * @param newAccuracyRate The new accuracy rate.
+     */
+    void changeAccuracyRate(String userName, String newAccuracyRate);
+
+    /**
+     * Changes the list of countries column of a user.
+     *
+     * @param userName The username.
+     * @param newListOfCountry The new column value.
+     */
+    void changeListOfCountry(String userName, String newListOfCountry);
+
+    /**
+     * Changes the high score of a user.
+     *
+     * @param userName The username.
+     * @param newHighScore The new high score.
+     */
+    void changeHighScore(String userName, String newHighScore);
+
+    /**
+     * Retrieves every column of a user at once, with the numbers already parsed.
+     *
+     * @param userName The username.
+     * @return A copy of the user's record, or null if the user does not exist.
+     */
+    PlayerRecord getRecord(String userName);
+
+    /**
+     * Reads a user, lets the mutator change the record, and saves every change as one step under one lock.
+     * Use it for read-modify-write updates of several columns, such as the stats at the end of a game.
+     *
+     * @param userName The username.
+     * @param mutator Changes the record; if it throws, nothing is saved.
+     * @return true if the user exists and was updated, otherwise false.
+     */
+    boolean updateUser(String userName, Consumer<PlayerRecord> mutator);
+
+    /**
+     * Retrieves every username.
+     *
+     * @return The usernames.
+     */
+    ArrayList<String> getAllUsers();
+
+    /**
+     * Retrieves every username ordered by high score, highest first, ties ordered by username.
+     *
+     * @return The usernames in leaderboard order.
+     */
+    ArrayList<String> getHighScoreOrder();
+
+    /**
+     * Reads one page of the leaderboard.
+     *
+     * @param offset How many entries to skip from the top.
+     * @param limit The largest number of entries to return.
+     * @return The entries in leaderboard order, each with its score.
+     */
+    List<Leaderboard.Entry> getHighScorePage(int offset, int limit);
+
+    /**
+     * Returns an immutable copy of the whole leaderboard, for readers that page through it.
+     * Every page read from one snapshot is consistent with the others, whatever scores change meanwhile.
+     *
+     * @return The snapshot.
+     */
+    Leaderboard.Snapshot getLeaderboardSnapshot();
+
+    /**
+     * Finds the users whose name starts with a prefix, for searching the leaderboard.
+     *
+     * @param prefix The start of the username.
+     * @param limit The largest number of entries to return.
+     * @return The matching entries in username order, each with its score.
+     */
+    List<Leaderboard.Entry> searchUsers(String prefix, int limit);
+
+    /**
+     * Returns the number of users.
+     *
+     * @return The user count.
+     */
+    int countUsers();
+
+    /**
+     * Counts the users whose high score is strictly higher than a score, for ranks and percentiles.
+     *
+     * @param score The score.
+     * @return The number of users above it.
+     */
+    int countUsersAbove(int score);
+
+    /**
+     * Deletes a user and the user's saved game.
+     *
+     * @param userName The username to delete.
+     */
+    void deleteUser(String userName);
+
+    /**
+     * Makes every change so far durable, blocking until it is.
+     *
+     * @return true if every change was written, false if some could not be.
+     */
+    boolean flush();
+
+    /**
+     * Lazily creates the configured repository the first time {@link #get()} is called.
+     */
+    final class Holder {
+
+        /** The repository chosen by {@link StorageConfig#REPOSITORY}. */
+        static final UserRepository INSTANCE = StorageConfig.REPOSITORY.equals("sql")
+                ? new SqlUserRepository(StorageConfig.JDBC_URL)
+                : new CsvUserRepository();
+
+        /**
+         * Holder only, never created.
+         */
+        private Holder() {
+        }
+    }
+}
@@ -0,0 +1,38 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link UserRepository} interface: the backend chosen by default,
+ * the shared account format rules and the error raised when a SQL backend cannot be opened.
+ */
+public class UserRepositoryTest {
+
+    /**
+     * Verifies that the CSV backend is used unless another one is configured.
+     */
+    @Test
+    public void testDefaultBackendIsCsv() {
+        assertTrue(UserRepository.get() instanceof CsvUserRepository);
+    }
+
+    /**
+     * Verifies the username and password rules every backend applies.
+     */
+    @Test
+    public void testCheckFormat() {
+        assertEquals("ok", UserRepository.checkFormat("alice1", "secret"));
+        assertEquals("password and username must be between 4-16 characters", UserRepository.checkFormat("bob", "secret"));
+        assertEquals("password and username must only contain alphanumeric characters", UserRepository.checkFormat("bob_1", "secret"));
+    }
+
+    /**
+     * Verifies that a database without a driver is reported as an IllegalStateException naming the URL.
+     */
+    @Test
+    public void testMissingDriverIsReported() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> new SqlUserRepository("jdbc:nosuchdb:./users"));
+        assertTrue(e.getMessage().contains("jdbc:nosuchdb:./users"));
+    }
+}
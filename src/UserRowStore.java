@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Row-level storage behind the static methods of {@link CsvHandler}.
+ * Columns are addressed by their index in the CSV file, where 0 is the username.
+ * {@link UserTable} keeps the rows in memory over the CSV file, {@link BinaryUserStore}
+ * keeps them as fixed-width records in a memory-mapped file.
+ */
+public interface UserRowStore {
+
+    /**
+     * Checks whether a row exists for the given username.
+     *
+     * @param userName The username to look for.
+     * @return true if the user exists, otherwise false.
+     */
+    boolean contains(String userName);
+
+    /**
+     * Retrieves one column of a user's row.
+     *
+     * @param userName The username whose row is read.
+     * @param index The column index, where 0 is the username.
+     * @return The value of the column, or null if the user or column does not exist.
+     */
+    String getField(String userName, int index);
+
+    /**
+     * Retrieves a user's row with its numbers parsed.
+     *
+     * @param userName The username whose row is read.
+     * @return A record the caller may keep and change, or null if the user does not exist.
+     */
+    default PlayerRecord getRecord(String userName) {
+        if (!contains(userName)) {
+            return null;
+        }
+        String[] row = new String[CsvHandler.HEADER.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = getField(userName, i);
+        }
+        return PlayerRecord.parse(row);
+    }
+
+    /**
+     * Changes one column of a user's row.
+     *
+     * @param userName The username whose row is changed.
+     * @param index The column index, where 0 is the username.
+     * @param newValue The new value of the column.
+     * @return true if the row existed and was changed, otherwise false.
+     */
+    boolean setField(String userName, int index, String newValue);
+
+    /**
+     * Changes several columns of a user's row as one step, but only if the row is still at the version the
+     * caller read it at (see {@link PlayerRecord#getVersion()}). A store that does not track versions, which
+     * is only ever used by one process, changes the columns unconditionally.
+     *
+     * @param userName The username whose row is changed.
+     * @param expectedVersion The version of the record the new values were computed from.
+     * @param indices The column indices to change.
+     * @param values The new values, in the same order.
+     * @return true if the columns were changed, false if the user does not exist or the row changed since it was read.
+     */
+    default boolean setFieldsIfVersion(String userName, long expectedVersion, int[] indices, String[] values) {
+        if (!contains(userName)) {
+            return false;
+        }
+        for (int i = 0; i < indices.length; i++) {
+            setField(userName, indices[i], values[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a new user row.
+     *
+     * @param row The full row, where index 0 is the username.
+     * @return true if the row was added, false if the username already exists.
+     */
+    boolean addRow(String[] row);
+
+    /**
+     * Removes a user's row.
+     *
+     * @param userName The username to remove.
+     * @return true if the row existed, otherwise false.
+     */
+    boolean removeRow(String userName);
+
+    /**
+     * Retrieves a list of all usernames.
+     *
+     * @return An ArrayList containing all usernames.
+     */
+    ArrayList<String> getUserNames();
+
+    /**
+     * Builds a map of usernames to their other columns keyed by header name,
+     * the shape {@link CsvHandler#readCsvFile()} returns.
+     *
+     * @return A map containing user data.
+     */
+    Map<String, Map<String, String>> toMap();
+
+    /**
+     * Makes every change so far durable right away.
+     */
+    void flush();
+}
@@ -0,0 +1,706 @@
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.opencsv.CSVWriter;
+
+/**
+ * Headless maintenance tool for the user file, for migrating and auditing installs with many accounts.
+ * Every command streams {@code database.csv} one row at a time, with the changes still waiting in its
+ * journals applied on the fly, so memory use does not grow with the number of users.
+ * Run it while the game is closed:
+ *
+ * <pre>
+ * java UserStoreTool [--file database.csv] export &lt;out.csv&gt;
+ * java UserStoreTool [--file database.csv] import &lt;in.csv&gt;
+ * java UserStoreTool [--file database.csv] check
+ * java UserStoreTool [--file database.csv] compact
+ * java UserStoreTool [--binary database.bin] reindex
+ * java UserStoreTool [--file database.csv] purge [--dry-run]
+ * </pre>
+ *
+ * <p>When {@link ShardedUserStore} has split the users into several files, as recorded in
+ * {@code database.csv.shards}, every command except {@code reindex} works on all of the shards: {@code export}
+ * and {@code check} read them one after the other, {@code compact} and {@code purge} rewrite each one,
+ * and {@code import} adds each new user to the shard it belongs in.
+ *
+ * <p>Progress and throughput are printed to standard error every {@link #PROGRESS_EVERY} rows.
+ * Rows use the columns of {@link CsvHandler#HEADER}.
+ */
+public class UserStoreTool {
+
+    /** How many rows pass between two progress lines. */
+    static final int PROGRESS_EVERY = 100_000;
+
+    /** How many problems {@code check} lists before only counting them. */
+    private static final int MAX_LISTED_PROBLEMS = 20;
+
+    /**
+     * Receives the rows of a streamed user file.
+     */
+    interface RowSink {
+        /**
+         * Called once per user row, in file order.
+         *
+         * @param row The row, where index 0 is the username.
+         * @throws IOException If the row cannot be handled.
+         */
+        void accept(String[] row) throws IOException;
+    }
+
+    /**
+     * Decides whether a row is kept.
+     */
+    interface UserFilter {
+        /**
+         * Tests one row.
+         *
+         * @param row The row.
+         * @return true to keep it.
+         */
+        boolean test(String[] row);
+    }
+
+    /**
+     * Changes recorded in the journals that are not in the snapshot yet, kept per user so they can be
+     * applied while the snapshot streams by. Its size depends on the journals, not on the number of users.
+     */
+    static final class JournalOverlay implements UserJournal.Visitor {
+
+        /**
+         * Pending state of one user.
+         */
+        private static final class Change {
+            /** Whether the user was deleted. */
+            boolean deleted;
+            /** The full row if the user was added, otherwise null. */
+            String[] row;
+            /** Columns changed on top of the snapshot row when the user was not added. */
+            final Map<Integer, String> columns = new HashMap<>();
+            /** Whether the row has been emitted. */
+            boolean emitted;
+        }
+
+        /** Pending changes keyed by username, in the order the users were first changed. */
+        private final Map<String, Change> changes = new LinkedHashMap<>();
+
+        /** Number of journal records replayed. */
+        int records;
+
+        /**
+         * Replays the journals next to a user file, the one left by an interrupted compaction first.
+         * Journals that do not exist are skipped rather than created.
+         *
+         * @param csv The user file.
+         * @return The overlay holding every replayed change.
+         * @throws IOException If a journal cannot be read.
+         */
+        static JournalOverlay load(Path csv) throws IOException {
+            JournalOverlay overlay = new JournalOverlay();
+            for (Path journalPath : journalPaths(csv)) {
+                if (Files.exists(journalPath)) {
+                    try (UserJournal journal = new UserJournal(journalPath)) {
+                        overlay.records += journal.replay(overlay);
+                    }
+                }
+            }
+            return overlay;
+        }
+
+        @Override
+        public void set(String userName, int index, String value) {
+            Change change = changes.computeIfAbsent(userName, name -> new Change());
+            if (change.row != null) {
+                if (index > 0 && index < change.row.length) {
+                    change.row[index] = value;
+                }
+            } else if (!change.deleted) {
+                change.columns.put(index, value);
+            }
+        }
+
+        @Override
+        public void add(String[] row) {
+            Change change = changes.computeIfAbsent(row[0], name -> new Change());
+            change.deleted = false;
+            change.row = row.clone();
+            change.columns.clear();
+        }
+
+        @Override
+        public void delete(String userName) {
+            Change change = changes.computeIfAbsent(userName, name -> new Change());
+            change.deleted = true;
+            change.row = null;
+            change.columns.clear();
+        }
+
+        /**
+         * Applies the pending changes to one snapshot row.
+         *
+         * @param row The row as stored in the snapshot.
+         * @return The current row, or null if the user was deleted.
+         */
+        String[] apply(String[] row) {
+            Change change = changes.get(row[0]);
+            if (change == null) {
+                return row;
+            }
+            change.emitted = true;
+            if (change.deleted) {
+                return null;
+            }
+            if (change.row != null) {
+                return change.row;
+            }
+            for (Map.Entry<Integer, String> column : change.columns.entrySet()) {
+                if (column.getKey() > 0 && column.getKey() < row.length) {
+                    row[column.getKey()] = column.getValue();
+                }
+            }
+            return row;
+        }
+
+        /**
+         * Returns the users added by the journals that were not in the snapshot.
+         *
+         * @return Their rows, in the order they were added.
+         */
+        List<String[]> remainingRows() {
+            List<String[]> remaining = new ArrayList<>();
+            for (Change change : changes.values()) {
+                if (!change.emitted && !change.deleted && change.row != null) {
+                    remaining.add(change.row);
+                }
+            }
+            return remaining;
+        }
+    }
+
+    /**
+     * Prints progress lines while rows stream by, and a summary with the throughput at the end.
+     */
+    static final class Progress {
+
+        /** What is being counted, e.g. "export". */
+        private final String label;
+
+        /** When counting started, from {@link System#nanoTime()}. */
+        private final long start = System.nanoTime();
+
+        /** Rows counted so far. */
+        long rows;
+
+        /**
+         * Starts counting.
+         *
+         * @param label What is being counted.
+         */
+        Progress(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Counts one row, printing a progress line every {@link #PROGRESS_EVERY} rows.
+         */
+        void tick() {
+            rows++;
+            if (rows % PROGRESS_EVERY == 0) {
+                System.err.println(label + ": " + rows + " rows, " + rate() + " rows/s");
+            }
+        }
+
+        /**
+         * Prints the summary line.
+         *
+         * @param detail Extra information appended to the line.
+         */
+        void done(String detail) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%s: %d rows in %.2f s (%d rows/s)%s%n", label, rows, seconds, rate(), detail);
+        }
+
+        /**
+         * Returns the number of rows counted per second so far.
+         *
+         * @return The throughput.
+         */
+        private long rate() {
+            double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+            return (long) (rows / seconds);
+        }
+    }
+
+    /**
+     * Runs the tool and exits with its status.
+     *
+     * @param args The command line, see the class description.
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs one command.
+     *
+     * @param args The command line, see the class description.
+     * @return 0 on success, 1 if the command failed or {@code check} found problems, 2 on a usage error.
+     */
+    static int run(String[] args) {
+        Path csv = CsvHandler.filePath;
+        Path binary = Paths.get(StorageConfig.BINARY_FILE_PATH);
+        List<String> rest = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--file") && i + 1 < args.length) {
+                csv = Paths.get(args[++i]);
+            } else if (args[i].equals("--binary") && i + 1 < args.length) {
+                binary = Paths.get(args[++i]);
+            } else {
+                rest.add(args[i]);
+            }
+        }
+        if (rest.isEmpty()) {
+            return usage();
+        }
+        try {
+            switch (rest.get(0)) {
+                case "export":
+                    if (rest.size() != 2) {
+                        return usage();
+                    }
+                    return export(csv, Paths.get(rest.get(1)));
+                case "import":
+                    if (rest.size() != 2) {
+                        return usage();
+                    }
+                    return importUsers(csv, Paths.get(rest.get(1)));
+                case "check":
+                    return check(csv);
+                case "compact":
+                    return compact(csv);
+                case "reindex":
+                    return reindex(binary);
+                case "purge":
+                    return purge(csv, rest.contains("--dry-run"));
+                default:
+                    return usage();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    /**
+     * Prints the usage text.
+     *
+     * @return The usage error status.
+     */
+    private static int usage() {
+        System.err.println("usage: UserStoreTool [--file database.csv] [--binary database.bin] "
+                + "export <out.csv> | import <in.csv> | check | compact | reindex | purge [--dry-run]");
+        return 2;
+    }
+
+    /**
+     * Writes the current state of every user, journals included, to a new CSV file.
+     *
+     * @param csv The user file.
+     * @param out The file to write.
+     * @return The exit status.
+     * @throws IOException If a file cannot be read or written.
+     */
+    static int export(Path csv, Path out) throws IOException {
+        Progress progress = new Progress("export");
+        List<Path> files = userFiles(csv);
+        AtomicFiles.write(out, writer -> {
+            CSVWriter csvWriter = new CSVWriter(writer);
+            csvWriter.writeNext(CsvHandler.HEADER.clone());
+            for (Path file : files) {
+                streamCurrent(file, JournalOverlay.load(file), row -> {
+                    csvWriter.writeNext(row);
+                    progress.tick();
+                });
+            }
+            csvWriter.close();
+        });
+        progress.done(" to " + out);
+        return 0;
+    }
+
+    /**
+     * Appends the users of another CSV file, skipping usernames that already exist or appear twice,
+     * and folds the journals into the result. With several shards, each shard is rewritten in turn with the
+     * new users that belong in it, so the file to import is read once per shard.
+     *
+     * @param csv The user file.
+     * @param in The file to import. Its first row is skipped if it is the standard header.
+     * @return The exit status.
+     * @throws IOException If a file cannot be read or written.
+     */
+    static int importUsers(Path csv, Path in) throws IOException {
+        Progress progress = new Progress("import");
+        List<Path> files = userFiles(csv);
+        long[] counts = new long[2];
+        Path indexPath = Files.createTempFile("geocraft-import", ".idx");
+        try (UserHashIndex seen = new UserHashIndex(indexPath, 0)) {
+            for (int i = 0; i < files.size(); i++) {
+                // A user always belongs in the same shard, so each shard only has to be checked against itself
+                int shard = i;
+                Path file = files.get(i);
+                JournalOverlay overlay = JournalOverlay.load(file);
+                AtomicFiles.write(file, writer -> {
+                    CSVWriter csvWriter = new CSVWriter(writer);
+                    csvWriter.writeNext(CsvHandler.HEADER.clone());
+                    streamCurrent(file, overlay, row -> {
+                        if (fitsIndex(row[0]) && seen.get(row[0]) < 0) {
+                            seen.put(row[0], 0);
+                        }
+                        csvWriter.writeNext(row);
+                    });
+                    streamRows(in, true, row -> {
+                        boolean malformed = row.length != CsvHandler.HEADER.length || !fitsIndex(row[0]);
+                        if (shard == 0) {
+                            progress.tick();
+                            if (malformed) {
+                                counts[1]++;
+                            }
+                        }
+                        if (malformed || ShardedUserStore.shardOf(row[0], files.size()) != shard) {
+                            return;
+                        }
+                        if (seen.get(row[0]) >= 0) {
+                            counts[0]++;
+                            return;
+                        }
+                        seen.put(row[0], 0);
+                        csvWriter.writeNext(row);
+                    });
+                    csvWriter.close();
+                });
+            }
+        } finally {
+            Files.deleteIfExists(indexPath);
+        }
+        deleteJournals(csv);
+        progress.done(", " + (progress.rows - counts[0] - counts[1]) + " added, "
+                + counts[0] + " duplicates skipped, " + counts[1] + " malformed rows skipped");
+        return 0;
+    }
+
+    /**
+     * Checks the user file and its journals: the header, the number of columns, the format of every
+     * value and duplicate usernames, and with several shards that every user is in the shard it belongs in.
+     * Lists the first problems found and counts the rest.
+     *
+     * @param csv The user file.
+     * @return 0 if no problem was found, otherwise 1.
+     * @throws IOException If a file cannot be read.
+     */
+    static int check(Path csv) throws IOException {
+        Progress progress = new Progress("check");
+        long[] problems = new long[1];
+        long records = 0;
+        List<Path> files = userFiles(csv);
+        Path indexPath = Files.createTempFile("geocraft-check", ".idx");
+        try (UserHashIndex seen = new UserHashIndex(indexPath, 0)) {
+            for (int i = 0; i < files.size(); i++) {
+                int shard = i;
+                Path file = files.get(i);
+                String where = files.size() == 1 ? "" : file.getFileName() + " ";
+                String[] header = readHeader(file);
+                if (!Arrays.equals(header, CsvHandler.HEADER)) {
+                    report(problems, where + "header is " + Arrays.toString(header)
+                            + ", expected " + Arrays.toString(CsvHandler.HEADER));
+                }
+                JournalOverlay overlay = JournalOverlay.load(file);
+                records += overlay.records;
+                streamCurrent(file, overlay, row -> {
+                    progress.tick();
+                    String problem = checkRow(row);
+                    if (problem == null && ShardedUserStore.shardOf(row[0], files.size()) != shard) {
+                        problem = "belongs in shard " + ShardedUserStore.shardOf(row[0], files.size());
+                    }
+                    if (problem != null) {
+                        report(problems, where + "row " + progress.rows + " (" + row[0] + "): " + problem);
+                    } else if (seen.get(row[0]) >= 0) {
+                        report(problems, where + "row " + progress.rows + " (" + row[0] + "): duplicate username");
+                    } else {
+                        seen.put(row[0], (int) Math.min(Integer.MAX_VALUE, progress.rows));
+                    }
+                });
+            }
+        } finally {
+            Files.deleteIfExists(indexPath);
+        }
+        progress.done(", " + records + " journal records, " + problems[0] + " problems");
+        return problems[0] == 0 ? 0 : 1;
+    }
+
+    /**
+     * Folds the journals into a fresh snapshot of the user file and deletes them.
+     *
+     * @param csv The user file.
+     * @return The exit status.
+     * @throws IOException If a file cannot be read or written.
+     */
+    static int compact(Path csv) throws IOException {
+        Progress progress = new Progress("compact");
+        long records = 0;
+        for (Path file : userFiles(csv)) {
+            JournalOverlay overlay = JournalOverlay.load(file);
+            records += overlay.records;
+            rewrite(file, overlay, row -> true, progress);
+        }
+        deleteJournals(csv);
+        progress.done(", " + records + " journal records folded in");
+        return 0;
+    }
+
+    /**
+     * Rebuilds the username index of the binary store from its records.
+     *
+     * @param binary The binary store file.
+     * @return The exit status.
+     * @throws IOException If the store cannot be opened or the index written.
+     */
+    static int reindex(Path binary) throws IOException {
+        if (!Files.exists(binary)) {
+            System.err.println("No binary store at " + binary + "; the CSV store keeps no index on disk");
+            return 1;
+        }
+        Progress progress = new Progress("reindex");
+        try (BinaryUserStore store = new BinaryUserStore(binary)) {
+            store.rebuildIndex();
+            progress.rows = store.getUserNames().size();
+        }
+        progress.done(" in " + binary + ".idx");
+        return 0;
+    }
+
+    /**
+     * Removes accounts that were never used: no games played, a high score of 0 and no saved game.
+     *
+     * @param csv The user file.
+     * @param dryRun Only count the accounts that would be removed.
+     * @return The exit status.
+     * @throws IOException If a file cannot be read or written.
+     */
+    static int purge(Path csv, boolean dryRun) throws IOException {
+        Progress progress = new Progress(dryRun ? "purge (dry run)" : "purge");
+        SaveSlotStore saves = SaveSlotStore.get();
+        long[] purged = new long[1];
+        UserFilter keep = row -> {
+            boolean inactive = row.length == CsvHandler.HEADER.length
+                    && "0".equals(row[2]) && "0".equals(row[6]) && "None".equals(row[5])
+                    && !Files.exists(saves.pathFor(row[0]));
+            if (inactive) {
+                purged[0]++;
+            }
+            return !inactive;
+        };
+        for (Path file : userFiles(csv)) {
+            JournalOverlay overlay = JournalOverlay.load(file);
+            if (dryRun) {
+                streamCurrent(file, overlay, row -> {
+                    progress.tick();
+                    keep.test(row);
+                });
+            } else {
+                rewrite(file, overlay, keep, progress);
+            }
+        }
+        if (!dryRun) {
+            deleteJournals(csv);
+        }
+        progress.done(", " + purged[0] + (dryRun ? " inactive accounts found" : " inactive accounts removed"));
+        return 0;
+    }
+
+    /**
+     * Replaces the user file with its current state, keeping only the rows the filter accepts.
+     *
+     * @param csv The user file.
+     * @param overlay The journal changes to apply.
+     * @param keep Decides which rows are written.
+     * @param progress Counts the rows.
+     * @throws IOException If a file cannot be read or written.
+     */
+    private static void rewrite(Path csv, JournalOverlay overlay, UserFilter keep, Progress progress) throws IOException {
+        AtomicFiles.write(csv, writer -> {
+            CSVWriter csvWriter = new CSVWriter(writer);
+            csvWriter.writeNext(CsvHandler.HEADER.clone());
+            streamCurrent(csv, overlay, row -> {
+                progress.tick();
+                if (keep.test(row)) {
+                    csvWriter.writeNext(row);
+                }
+            });
+            csvWriter.close();
+        });
+    }
+
+    /**
+     * Streams the current state of every user: the snapshot rows with the journal changes applied,
+     * followed by the users only the journals know about.
+     *
+     * @param csv The user file.
+     * @param overlay The journal changes.
+     * @param sink Receives the rows.
+     * @throws IOException If the file cannot be read.
+     */
+    static void streamCurrent(Path csv, JournalOverlay overlay, RowSink sink) throws IOException {
+        if (Files.exists(csv)) {
+            streamRows(csv, true, row -> {
+                String[] current = overlay.apply(row);
+                if (current != null) {
+                    sink.accept(current);
+                }
+            });
+        }
+        for (String[] row : overlay.remainingRows()) {
+            sink.accept(row);
+        }
+    }
+
+    /**
+     * Streams the rows of a CSV file one at a time.
+     *
+     * @param csv The file.
+     * @param skipHeader Whether to skip the first row when it is the standard header.
+     * @param sink Receives the rows. Empty lines are skipped.
+     * @throws IOException If the file cannot be read.
+     */
+    static void streamRows(Path csv, boolean skipHeader, RowSink sink) throws IOException {
+        try (CsvScanner scanner = new CsvScanner(new FileReader(csv.toString()))) {
+            String[] row = scanner.nextRow();
+            if (row != null && skipHeader && Arrays.equals(row, CsvHandler.HEADER)) {
+                row = scanner.nextRow();
+            }
+            while (row != null) {
+                if (!row[0].isEmpty()) {
+                    sink.accept(row);
+                }
+                row = scanner.nextRow();
+            }
+        }
+    }
+
+    /**
+     * Reads the first row of a CSV file.
+     *
+     * @param csv The file.
+     * @return The first row, or an empty array if the file is missing or empty.
+     * @throws IOException If the file cannot be read.
+     */
+    private static String[] readHeader(Path csv) throws IOException {
+        if (!Files.exists(csv)) {
+            return new String[0];
+        }
+        try (CsvScanner scanner = new CsvScanner(new FileReader(csv.toString()))) {
+            String[] header = scanner.nextRow();
+            return header == null ? new String[0] : header;
+        }
+    }
+
+    /**
+     * Checks the values of one row against the format the game writes.
+     *
+     * @param row The row.
+     * @return A description of the first problem, or null if the row is fine.
+     */
+    static String checkRow(String[] row) {
+        if (row.length != CsvHandler.HEADER.length) {
+            return row.length + " columns instead of " + CsvHandler.HEADER.length;
+        }
+        if (!fitsIndex(row[0])) {
+            return "username longer than " + UserHashIndex.MAX_KEY_BYTES + " bytes";
+        }
+        if (!row[2].matches("\\d+")) {
+            return "num_games_played is not a number: " + row[2];
+        }
+        if (!row[6].matches("-?\\d+")) {
+            return "highScore is not a number: " + row[6];
+        }
+        try {
+            Float.parseFloat(row[4].endsWith("%") ? row[4].substring(0, row[4].length() - 1) : row[4]);
+        } catch (NumberFormatException e) {
+            return "accuracy_rate is not a number: " + row[4];
+        }
+        return null;
+    }
+
+    /**
+     * Prints one problem found by {@code check}, or only counts it once enough have been listed.
+     *
+     * @param problems The problem counter.
+     * @param problem The description.
+     */
+    private static void report(long[] problems, String problem) {
+        if (problems[0]++ < MAX_LISTED_PROBLEMS) {
+            System.out.println("  " + problem);
+        }
+    }
+
+    /**
+     * Checks whether a username fits the temporary index used for deduplication.
+     *
+     * @param userName The username.
+     * @return true if it is short enough.
+     */
+    private static boolean fitsIndex(String userName) {
+        return userName.getBytes(StandardCharsets.UTF_8).length <= UserHashIndex.MAX_KEY_BYTES;
+    }
+
+    /**
+     * Deletes the journals next to a user file, or next to each of its shards, once a rewrite has folded them in,
+     * along with its {@link UserBloomFilter} file, which the game rebuilds from the rewritten users on its next start.
+     *
+     * @param csv The user file.
+     * @throws IOException If a journal cannot be deleted.
+     */
+    private static void deleteJournals(Path csv) throws IOException {
+        for (Path file : userFiles(csv)) {
+            for (Path journalPath : journalPaths(file)) {
+                Files.deleteIfExists(journalPath);
+            }
+        }
+        Files.deleteIfExists(UserBloomFilter.pathFor(csv));
+    }
+
+    /**
+     * Returns the files holding the users: the user file itself, or each of its shards in order when
+     * {@link ShardedUserStore} has split the users into several files.
+     *
+     * @param csv The user file.
+     * @return The files, where the one at index i is shard i.
+     * @throws IOException If the recorded shard count cannot be read.
+     */
+    static List<Path> userFiles(Path csv) throws IOException {
+        int count = ShardedUserStore.readCount(csv);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(ShardedUserStore.shardPath(csv, i, count));
+        }
+        return files;
+    }
+
+    /**
+     * Returns the journals of a user file in replay order.
+     *
+     * @param csv The user file.
+     * @return The journal left by an interrupted compaction, then the current journal.
+     */
+    private static List<Path> journalPaths(Path csv) {
+        return List.of(Paths.get(csv + ".journal.old"), Paths.get(csv + ".journal"));
+    }
+}
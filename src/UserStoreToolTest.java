@@ -0,0 +1,142 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link UserStoreTool} class: exporting with journal changes applied, importing
+ * with deduplication, checking a damaged file and purging unused accounts. Every test works on
+ * its own temporary files.
+ */
+public class UserStoreToolTest {
+
+    /** The header row as the game writes it. */
+    private static final String HEADER = "\"user_name\",\"password\",\"num_games_played\",\"saved_game?\",\"accuracy_rate\",\"listOfCountry\",\"highScore\"";
+
+    /**
+     * Creates a user file with the given rows after the header.
+     *
+     * @param rows The data rows, already in CSV form.
+     * @return The path of the new file.
+     * @throws IOException if the file cannot be written.
+     */
+    private static Path userFile(String... rows) throws IOException {
+        Path csv = Files.createTempFile("users", ".csv");
+        List<String> lines = new java.util.ArrayList<>();
+        lines.add(HEADER);
+        lines.addAll(List.of(rows));
+        Files.write(csv, lines);
+        return csv;
+    }
+
+    /**
+     * Verifies that export writes the snapshot with the journal's changes, additions and deletions applied.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testExportAppliesJournal() throws IOException {
+        Path csv = userFile("\"alice\",\"pw\",\"1\",\"N\",\"100\",\"None\",\"10\"",
+                "\"bob\",\"pw\",\"2\",\"N\",\"100\",\"None\",\"20\"");
+        try (UserJournal journal = new UserJournal(Paths.get(csv + ".journal"))) {
+            journal.appendSet("alice", 6, "99");
+            journal.appendDelete("bob");
+            journal.appendAdd(new String[]{"carol", "pw", "0", "N", "100", "None", "5"});
+        }
+        Path out = Files.createTempFile("export", ".csv");
+        assertEquals(0, UserStoreTool.run(new String[]{"--file", csv.toString(), "export", out.toString()}));
+        List<String> lines = Files.readAllLines(out);
+        assertEquals(3, lines.size());
+        assertEquals("\"alice\",\"pw\",\"1\",\"N\",\"100\",\"None\",\"99\"", lines.get(1));
+        assertTrue(lines.get(2).startsWith("\"carol\""));
+    }
+
+    /**
+     * Verifies that import adds only usernames that are new, and folds the journal into the file.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testImportSkipsDuplicates() throws IOException {
+        Path csv = userFile("\"alice\",\"pw\",\"1\",\"N\",\"100\",\"None\",\"10\"");
+        try (UserJournal journal = new UserJournal(Paths.get(csv + ".journal"))) {
+            journal.appendAdd(new String[]{"bob", "pw", "0", "N", "100", "None", "0"});
+        }
+        Path in = userFile("\"alice\",\"other\",\"0\",\"N\",\"100\",\"None\",\"0\"",
+                "\"bob\",\"other\",\"0\",\"N\",\"100\",\"None\",\"0\"",
+                "\"dave\",\"pw\",\"0\",\"N\",\"100\",\"None\",\"0\"",
+                "\"dave\",\"again\",\"0\",\"N\",\"100\",\"None\",\"0\"");
+        assertEquals(0, UserStoreTool.run(new String[]{"--file", csv.toString(), "import", in.toString()}));
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(1).contains("\"pw\""));
+        assertTrue(lines.get(3).startsWith("\"dave\",\"pw\""));
+        assertFalse(Files.exists(Paths.get(csv + ".journal")));
+    }
+
+    /**
+     * Verifies that check reports malformed rows and duplicate usernames, and passes a clean file.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testCheck() throws IOException {
+        Path clean = userFile("\"alice\",\"pw\",\"1\",\"N\",\"50%\",\"None\",\"10\"");
+        assertEquals(0, UserStoreTool.run(new String[]{"--file", clean.toString(), "check"}));
+        Path damaged = userFile("\"alice\",\"pw\",\"1\",\"N\",\"100\",\"None\",\"10\"",
+                "\"alice\",\"pw\",\"1\",\"N\",\"100\",\"None\",\"10\"",
+                "\"bob\",\"pw\",\"x\",\"N\",\"100\",\"None\",\"10\"",
+                "\"carol\",\"pw\"");
+        assertEquals(1, UserStoreTool.run(new String[]{"--file", damaged.toString(), "check"}));
+        assertNull(UserStoreTool.checkRow(new String[]{"dave", "pw", "3", "N", "66.6", "None", "-4"}));
+    }
+
+    /**
+     * Verifies that purge removes only accounts that were never played, and that a dry run changes nothing.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testPurge() throws IOException {
+        Path csv = userFile("\"unusedacct\",\"pw\",\"0\",\"N\",\"100\",\"None\",\"0\"",
+                "\"player\",\"pw\",\"3\",\"N\",\"100\",\"None\",\"15\"");
+        assertEquals(0, UserStoreTool.run(new String[]{"--file", csv.toString(), "purge", "--dry-run"}));
+        assertEquals(3, Files.readAllLines(csv).size());
+        assertEquals(0, UserStoreTool.run(new String[]{"--file", csv.toString(), "purge"}));
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).startsWith("\"player\""));
+    }
+
+    /**
+     * Verifies that on a sharded install export reads every shard, import puts each new user in the shard
+     * it belongs in, and check passes the result.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testShardedInstall() throws IOException {
+        Path csv = userFile("\"alice\",\"pw\",\"1\",\"N\",\"100\",\"None\",\"10\"",
+                "\"bob\",\"pw\",\"2\",\"N\",\"100\",\"None\",\"20\"");
+        new ShardedUserStore(csv, 3, true, false).close();
+        Path in = userFile("\"alice\",\"other\",\"0\",\"N\",\"100\",\"None\",\"0\"",
+                "\"carol\",\"pw\",\"0\",\"N\",\"100\",\"None\",\"0\"",
+                "\"dave\",\"pw\",\"0\",\"N\",\"100\",\"None\",\"0\"");
+        assertEquals(0, UserStoreTool.run(new String[]{"--file", csv.toString(), "import", in.toString()}));
+        assertEquals(0, UserStoreTool.run(new String[]{"--file", csv.toString(), "check"}));
+
+        Path out = Files.createTempFile("export", ".csv");
+        assertEquals(0, UserStoreTool.run(new String[]{"--file", csv.toString(), "export", out.toString()}));
+        assertEquals(5, Files.readAllLines(out).size());
+        ShardedUserStore reopened = new ShardedUserStore(csv, 3, true, false);
+        assertEquals("pw", reopened.getField("alice", 1));
+        assertNotNull(reopened.getRecord("carol"));
+        assertNotNull(reopened.getRecord("dave"));
+        reopened.close();
+    }
+}
@@ -0,0 +1,912 @@
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.opencsv.CSVWriter;
+
+/**
+ * Process-wide, write-back copy of the user CSV file.
+ * The file is parsed once into {@link PlayerRecord}s, every read is answered from memory, and changes are persisted
+ * in the background. All the static methods of {@link CsvHandler} are served by the shared
+ * instance returned from {@link #get()}.
+ *
+ * <p>In journaled mode (the default, see {@link StorageConfig#JOURNAL_ENABLED}) the CSV file is a
+ * snapshot and every change is appended to a {@link UserJournal}. Once the journal grows past
+ * {@link StorageConfig#JOURNAL_COMPACT_BYTES} a background compaction writes a fresh snapshot and
+ * starts an empty journal. Otherwise dirty rows are tracked and the whole file is rewritten.
+ *
+ * <p>Every change asks a {@link GroupCommitter} for a commit, so changes made within
+ * {@link StorageConfig#COMMIT_WINDOW_MS} of each other share one fsync (or one snapshot rewrite).
+ * Snapshots are always written to a temporary file and renamed into place by {@link AtomicFiles},
+ * so a crash never leaves a truncated {@code database.csv} behind.
+ *
+ * <p>Every row carries a version ({@link PlayerRecord#getVersion()}) that rises with each change to it,
+ * so {@link #setFieldsIfVersion(String, long, int[], String[])} can refuse a write computed from a stale read.
+ * With {@link StorageConfig#SHARED_STORE} several processes share the file: each write takes a
+ * {@link SharedFileLock}, first applies the journal records other processes appended, and then appends its own.
+ * A write waits for that lock before it enters the table's monitor, so reads never wait for another process.
+ * Other processes' changes are picked up by each write and every {@link StorageConfig#SHARED_POLL_MS}, and a compaction by another process is noticed through the new
+ * generation id of the journal and answered by reloading the snapshot.
+ */
+public class UserTable implements UserRowStore {
+
+    /** The table shared by the whole process, created on first use. */
+    private static UserTable instance;
+
+    /** The CSV file this table was loaded from and is flushed to. */
+    private final Path path;
+
+    /** Journal holding the changes made since the snapshot, or null when journaling is off. */
+    private UserJournal journal;
+
+    /** Location of the journal, next to the CSV file. */
+    private final Path journalPath;
+
+    /** Location a journal is moved to while a compaction writes the snapshot that covers it. */
+    private final Path oldJournalPath;
+
+    /** Set while a compaction is queued or running so only one runs at a time. */
+    private boolean compactionPending;
+
+    /** The header row snapshots are written under: the columns of {@link CsvSchema#USERS}, then any unknown ones of the file. */
+    private String[] header;
+
+    /** Every user keyed by username, in file order, with numbers already parsed. Keys are packed, see {@link PackedUserMap}. */
+    private final PackedUserMap<PlayerRecord> rows = new PackedUserMap<>();
+
+    /** Usernames whose row changed since the last flush. Only used when journaling is off. */
+    private final Set<String> dirtyRows = new HashSet<>();
+
+    /** Set when rows were removed, since a removed row cannot be tracked in {@link #dirtyRows}. */
+    private boolean rowsRemoved;
+
+    /** Background thread that runs group commits and compactions. */
+    private ScheduledExecutorService flusher;
+
+    /** Groups the commits requested by changes, or null until {@link #startFlusher(long)} is called. */
+    private GroupCommitter committer;
+
+    /** Lock shared with the other processes using the file, or null when the file is not shared. */
+    private SharedFileLock sharedLock;
+
+    /**
+     * Held by the thread that holds {@link #sharedLock}, which cannot be taken twice, and counts nested sections.
+     * Always taken before the table's monitor, so waiting for another process never blocks readers here.
+     */
+    private final ReentrantLock writerLock = new ReentrantLock();
+
+    /** Last version given to a row; every change to a row, made here or replayed, takes the next one. */
+    private long clock;
+
+    /** Whether this table holds users served by {@link CsvHandler}, so changes it notices are passed on to the shared indexes. */
+    private boolean servesCsvHandler;
+
+    /** Users changed by other processes whose new state has not been passed on to the leaderboard and stats yet. */
+    private final Set<String> remoteChanges = new LinkedHashSet<>();
+
+    /** Applies journal records to {@link #rows}, when opening the journal and when catching up with other processes. */
+    private final UserJournal.Visitor replayer = new UserJournal.Visitor() {
+        @Override
+        public void set(String userName, int index, String value) {
+            PlayerRecord row = rows.get(userName);
+            if (row != null) {
+                row = writable(userName, row, index);
+                row.setColumn(index, value);
+                row.setVersion(++clock);
+            }
+        }
+
+        @Override
+        public void add(String[] row) {
+            PlayerRecord record = PlayerRecord.parse(row);
+            record.setVersion(++clock);
+            rows.put(row[0], record);
+        }
+
+        @Override
+        public void delete(String userName) {
+            rows.remove(userName);
+        }
+    };
+
+    /**
+     * Returns the table shared by the whole process, loading it from {@link CsvHandler#filePath}
+     * and starting the background committer the first time it is called.
+     *
+     * @return The shared user table.
+     */
+    public static synchronized UserTable get() {
+        if (instance == null) {
+            instance = new UserTable(CsvHandler.filePath, StorageConfig.JOURNAL_ENABLED || StorageConfig.SHARED_STORE,
+                    StorageConfig.SHARED_STORE);
+            instance.servesCsvHandler = true;
+            instance.startFlusher(StorageConfig.COMMIT_WINDOW_MS);
+        }
+        return instance;
+    }
+
+    /**
+     * Closes the shared table, if it is open, so the next {@link #get()} loads {@link CsvHandler#filePath} again.
+     * Used by {@link CsvHandler#useFile(Path)}.
+     */
+    static synchronized void reset() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Creates a table for the given CSV file and loads every row into memory.
+     * If the file does not exist yet it is created with the standard header.
+     * In journaled mode the journal is replayed on top of the file.
+     *
+     * @param path The CSV file holding the users.
+     * @param journaled Whether changes go to a journal instead of whole-file rewrites.
+     */
+    UserTable(Path path, boolean journaled) {
+        this(path, journaled, false);
+    }
+
+    /**
+     * Creates a table for the given CSV file, possibly shared with other processes, and loads every row into memory.
+     * A shared table is always journaled, and is loaded under the shared lock so no other process is halfway
+     * through a change.
+     *
+     * @param path The CSV file holding the users.
+     * @param journaled Whether changes go to a journal instead of whole-file rewrites.
+     * @param shared Whether other processes use the same file at the same time.
+     */
+    UserTable(Path path, boolean journaled, boolean shared) {
+        this.path = path;
+        this.journalPath = Paths.get(path + ".journal");
+        this.oldJournalPath = Paths.get(path + ".journal.old");
+        if (shared) {
+            try {
+                sharedLock = new SharedFileLock(path);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        lockShared();
+        try {
+            synchronized (this) {
+                load();
+                if (journaled || shared) {
+                    openJournal();
+                }
+            }
+        } finally {
+            unlockShared();
+        }
+    }
+
+    /**
+     * Reads the whole CSV file into {@link #rows}. Called once when the table is created.
+     */
+    private void load() {
+        try {
+            if (!Files.exists(path) || Files.size(path) == 0) {
+                Files.deleteIfExists(path);
+                CsvHandler.newFile(path);
+            }
+            try (CsvScanner scanner = new CsvScanner(new FileReader(path.toString()))) {
+                // Column positions are resolved once; rows missing newer columns are widened when next changed
+                CsvSchema.Layout layout = CsvSchema.USERS.layout(scanner.nextRow());
+                header = layout.header();
+                String[] line;
+                while ((line = scanner.nextRow()) != null) {
+                    PlayerRecord record = PlayerRecord.parse(layout.toSchema(line));
+                    record.setVersion(++clock);
+                    rows.put(line[0], record);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replays the journal left by an interrupted compaction, if any, then the current journal,
+     * and keeps the current journal open for appending.
+     */
+    private void openJournal() {
+        try {
+            if (Files.exists(oldJournalPath)) {
+                try (UserJournal old = new UserJournal(oldJournalPath)) {
+                    old.replay(replayer);
+                }
+            }
+            journal = new UserJournal(journalPath);
+            journal.replay(replayer);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Marks this table as holding users served by {@link CsvHandler}, like the shards of a {@link ShardedUserStore},
+     * so its compactions refresh the {@link UserBloomFilter} and changes from other processes reach the
+     * {@link Leaderboard} and {@link StatsColumns}.
+     */
+    void serveCsvHandler() {
+        servesCsvHandler = true;
+    }
+
+    /**
+     * Starts a daemon thread that runs group commits and journal compactions,
+     * and registers a shutdown hook so nothing is lost when the game exits. The hook first waits for the
+     * {@link PersistenceQueue} to hand over the changes still waiting in it.
+     *
+     * @param windowMillis How long a commit waits for other changes to join it.
+     */
+    void startFlusher(long windowMillis) {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "geocraft-user-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer = new GroupCommitter(this::flush, flusher, windowMillis);
+        if (sharedLock != null) {
+            flusher.scheduleWithFixedDelay(this::refresh, StorageConfig.SHARED_POLL_MS, StorageConfig.SHARED_POLL_MS, TimeUnit.MILLISECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            PersistenceQueue.drainIfOpen();
+            flush();
+        }, "geocraft-user-flush-on-exit"));
+    }
+
+    /**
+     * Returns the header row of the file.
+     *
+     * @return A copy of the header row.
+     */
+    public synchronized String[] getHeader() {
+        return header == null ? new String[0] : header.clone();
+    }
+
+    /**
+     * Checks whether a row exists for the given username.
+     *
+     * @param userName The username to look for.
+     * @return true if the user is in the table, otherwise false.
+     */
+    public synchronized boolean contains(String userName) {
+        return rows.containsKey(userName);
+    }
+
+    /**
+     * Retrieves one column of a user's row.
+     *
+     * @param userName The username whose row is read.
+     * @param index The column index, where 0 is the username.
+     * @return The value of the column, or null if the user or column does not exist.
+     */
+    public synchronized String getField(String userName, int index) {
+        PlayerRecord row = rows.get(userName);
+        return row == null ? null : upgraded(row).getColumn(index);
+    }
+
+    /**
+     * Retrieves a user's row with its numbers already parsed.
+     *
+     * @param userName The username whose row is read.
+     * @return A copy of the record, or null if the user does not exist.
+     */
+    @Override
+    public synchronized PlayerRecord getRecord(String userName) {
+        PlayerRecord row = rows.get(userName);
+        return row == null ? null : upgraded(row).copy();
+    }
+
+    /**
+     * Retrieves a list of all usernames in file order.
+     *
+     * @return An ArrayList containing all usernames.
+     */
+    public synchronized ArrayList<String> getUserNames() {
+        return rows.keys();
+    }
+
+    /**
+     * Builds the same nested map {@link CsvHandler#readCsvFile()} always returned:
+     * usernames mapped to their other columns keyed by header name.
+     *
+     * @return A map containing user data.
+     */
+    public synchronized Map<String, Map<String, String>> toMap() {
+        Map<String, Map<String, String>> userValuesMap = new HashMap<>();
+        for (PlayerRecord row : rows.values()) {
+            row = upgraded(row);
+            Map<String, String> userValues = new HashMap<>();
+            for (int i = 1; i < row.width() && i < header.length; i++) {
+                userValues.put(header[i], row.getColumn(i));
+            }
+            userValuesMap.put(row.getUserName(), userValues);
+        }
+        return userValuesMap;
+    }
+
+    /**
+     * Changes one column of a user's row in memory and records the change.
+     *
+     * @param userName The username whose row is changed.
+     * @param index The column index, where 0 is the username.
+     * @param newValue The new value of the column.
+     * @return true if the row existed and was changed, otherwise false.
+     */
+    public boolean setField(String userName, int index, String newValue) {
+        lockShared();
+        try {
+            synchronized (this) {
+                PlayerRecord row = rows.get(userName);
+                if (row == null || !(row = writable(userName, row, index)).setColumn(index, newValue)) {
+                    return false;
+                }
+                row.setVersion(++clock);
+                recordSet(userName, index, newValue);
+                commit();
+                return true;
+            }
+        } finally {
+            unlockShared();
+        }
+    }
+
+    /**
+     * Changes several columns of a user's row as one step if the row is still at the version the caller read.
+     * In a shared table the check is made after catching up with other processes, so a change they made
+     * since the read is seen as a conflict and the caller can read the row again and retry.
+     *
+     * @param userName The username whose row is changed.
+     * @param expectedVersion The version of the record the new values were computed from.
+     * @param indices The column indices to change.
+     * @param values The new values, in the same order.
+     * @return true if the columns were changed, false if the user does not exist or the row changed since it was read.
+     */
+    @Override
+    public boolean setFieldsIfVersion(String userName, long expectedVersion, int[] indices, String[] values) {
+        lockShared();
+        try {
+            synchronized (this) {
+                PlayerRecord row = rows.get(userName);
+                if (row == null || row.getVersion() != expectedVersion) {
+                    return false;
+                }
+                for (int i = 0; i < indices.length; i++) {
+                    row = writable(userName, row, indices[i]);
+                    if (row.setColumn(indices[i], values[i])) {
+                        recordSet(userName, indices[i], values[i]);
+                    }
+                }
+                row.setVersion(++clock);
+                commit();
+                return true;
+            }
+        } finally {
+            unlockShared();
+        }
+    }
+
+    /**
+     * Returns a row with every column of {@link CsvSchema#USERS}, for reading. A row from a file written before
+     * some columns existed is widened in a copy with their defaults; the stored row is left as it is.
+     *
+     * @param row The stored row.
+     * @return The row itself if it has every column, otherwise a widened copy.
+     */
+    private static PlayerRecord upgraded(PlayerRecord row) {
+        if (row.width() >= CsvSchema.USERS.width()) {
+            return row;
+        }
+        PlayerRecord upgraded = PlayerRecord.parse(CsvSchema.USERS.upgrade(row.toRow()));
+        upgraded.setVersion(row.getVersion());
+        return upgraded;
+    }
+
+    /**
+     * Prepares a stored row for a change to one column. A row written before that column existed is
+     * upgraded to the current columns and replaces the stored one, so old rows are migrated one at a time
+     * as they are changed instead of all at once.
+     *
+     * @param userName The username whose row is changed.
+     * @param row The stored row.
+     * @param index The column about to be changed.
+     * @return The row to change, which is the stored one afterwards.
+     */
+    private PlayerRecord writable(String userName, PlayerRecord row, int index) {
+        if (index < row.width() || index >= CsvSchema.USERS.width()) {
+            return row;
+        }
+        PlayerRecord upgraded = upgraded(row);
+        rows.put(userName, upgraded);
+        return upgraded;
+    }
+
+    /**
+     * Records a change to one column: in the journal, or as a dirty row when journaling is off.
+     *
+     * @param userName The username whose row changed.
+     * @param index The column index.
+     * @param newValue The new value of the column.
+     */
+    private void recordSet(String userName, int index, String newValue) {
+        if (journal == null) {
+            dirtyRows.add(userName);
+        } else {
+            try {
+                journal.appendSet(userName, index, newValue);
+                maybeCompact();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Adds a new row to the end of the table and records it.
+     *
+     * @param row The full row, where index 0 is the username.
+     * @return true if the row was added, false if the username already exists.
+     */
+    public boolean addRow(String[] row) {
+        lockShared();
+        try {
+            synchronized (this) {
+                if (rows.containsKey(row[0])) {
+                    return false;
+                }
+                PlayerRecord record = PlayerRecord.parse(row);
+                record.setVersion(++clock);
+                rows.put(row[0], record);
+                if (journal == null) {
+                    dirtyRows.add(row[0]);
+                } else {
+                    try {
+                        journal.appendAdd(row);
+                        maybeCompact();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                commit();
+                return true;
+            }
+        } finally {
+            unlockShared();
+        }
+    }
+
+    /**
+     * Removes a user's row from the table and records the deletion.
+     *
+     * @param userName The username to remove.
+     * @return true if the row existed, otherwise false.
+     */
+    public boolean removeRow(String userName) {
+        lockShared();
+        try {
+            synchronized (this) {
+                if (rows.remove(userName) == null) {
+                    return false;
+                }
+                if (journal == null) {
+                    dirtyRows.remove(userName);
+                    rowsRemoved = true;
+                } else {
+                    try {
+                        journal.appendDelete(userName);
+                        maybeCompact();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+                commit();
+                return true;
+            }
+        } finally {
+            unlockShared();
+        }
+    }
+
+    /**
+     * Applies the changes other processes made to a shared table since it last wrote or refreshed.
+     * Skipped while another process holds the shared lock, so readers in this process never wait for it;
+     * the next write or refresh catches up instead. Does nothing for a table that is not shared.
+     */
+    void refresh() {
+        if (sharedLock == null || !writerLock.tryLock()) {
+            return;
+        }
+        try {
+            if (writerLock.getHoldCount() > 1 || !sharedLock.tryLock()) {
+                return;
+            }
+            try {
+                synchronized (this) {
+                    catchUp();
+                }
+            } finally {
+                sharedLock.unlock();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    /**
+     * Takes the shared lock and catches up with other processes, unless the table is not shared
+     * or this thread already holds it. The lock is waited for before entering the table's monitor, so
+     * readers in this process are not held up while another process writes; callers must therefore not
+     * hold the monitor unless they are already inside a section holding the lock.
+     *
+     * @throws IllegalStateException If the shared lock cannot be taken; the write must not go ahead without it.
+     */
+    private void lockShared() {
+        if (sharedLock == null) {
+            return;
+        }
+        writerLock.lock();
+        if (writerLock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            sharedLock.lock();
+        } catch (IOException | OverlappingFileLockException e) {
+            writerLock.unlock();
+            throw new IllegalStateException("Cannot take the shared lock of " + path, e);
+        }
+        try {
+            synchronized (this) {
+                catchUp();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Releases the shared lock once the outermost section holding it ends.
+     */
+    private void unlockShared() {
+        if (sharedLock == null) {
+            return;
+        }
+        if (writerLock.getHoldCount() == 1) {
+            sharedLock.unlock();
+        }
+        writerLock.unlock();
+    }
+
+    /**
+     * Applies the journal records other processes appended since this table last read the journal. If another
+     * process compacted the journal into a new snapshot, every row is reloaded instead. The users that changed
+     * are passed on to the shared leaderboard and stats in the background.
+     *
+     * @throws IOException If the journal cannot be read.
+     */
+    private void catchUp() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        boolean idle = remoteChanges.isEmpty();
+        boolean shared = servesCsvHandler;
+        if (UserJournal.readGeneration(journalPath) != journal.getGeneration()) {
+            Map<String, PlayerRecord> before = new HashMap<>();
+            rows.forEach(before::put);
+            journal.close();
+            rows.clear();
+            load();
+            openJournal();
+            if (shared) {
+                for (Map.Entry<String, PlayerRecord> row : before.entrySet()) {
+                    PlayerRecord now = rows.get(row.getKey());
+                    if (now == null || !Arrays.equals(now.toRow(), row.getValue().toRow())) {
+                        remoteChanges.add(row.getKey());
+                    }
+                }
+                for (String userName : rows.keys()) {
+                    if (!before.containsKey(userName)) {
+                        remoteChanges.add(userName);
+                    }
+                }
+            }
+        } else {
+            journal.catchUp(new UserJournal.Visitor() {
+                @Override
+                public void set(String userName, int index, String value) {
+                    replayer.set(userName, index, value);
+                    if (shared) {
+                        remoteChanges.add(userName);
+                    }
+                }
+
+                @Override
+                public void add(String[] row) {
+                    replayer.add(row);
+                    if (shared) {
+                        remoteChanges.add(row[0]);
+                    }
+                }
+
+                @Override
+                public void delete(String userName) {
+                    replayer.delete(userName);
+                    if (shared) {
+                        remoteChanges.add(userName);
+                    }
+                }
+            });
+        }
+        if (idle && !remoteChanges.isEmpty() && flusher != null) {
+            flusher.execute(this::announceRemoteChanges);
+        }
+    }
+
+    /**
+     * Passes the current state of every user another process changed on to the shared {@link Leaderboard}
+     * and {@link StatsColumns}. Runs on the flusher thread without holding the table's monitor, and under
+     * each user's {@link UserLocks} lock so it cannot overtake a change this process is making to the same user.
+     */
+    private void announceRemoteChanges() {
+        List<String> userNames;
+        synchronized (this) {
+            userNames = new ArrayList<>(remoteChanges);
+            remoteChanges.clear();
+        }
+        Leaderboard leaderboard = Leaderboard.ifBuilt();
+        for (String userName : userNames) {
+            UserLocks.withUser(userName, () -> {
+                PlayerRecord row = getRecord(userName);
+                if (row == null) {
+                    if (leaderboard != null) {
+                        leaderboard.remove(userName);
+                    }
+                    StatsColumns.removed(userName);
+                } else {
+                    if (leaderboard != null) {
+                        leaderboard.update(userName, row.getColumn(PlayerRecord.HIGH_SCORE));
+                    }
+                    StatsColumns.changed(row);
+                }
+            });
+        }
+    }
+
+    /**
+     * Asks for every change made so far to be made durable by the next group commit.
+     * Changes made within the commit window share that commit. Does not block.
+     *
+     * @return A future completed once the changes are on disk.
+     */
+    public CompletableFuture<Void> commit() {
+        if (committer == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return committer.request();
+    }
+
+    /**
+     * Checks whether there are changes that have not been written to the snapshot yet.
+     * In journaled mode every change is already in the journal, so this is always false.
+     *
+     * @return true if a snapshot rewrite would write anything.
+     */
+    public synchronized boolean isDirty() {
+        return rowsRemoved || !dirtyRows.isEmpty();
+    }
+
+    /**
+     * Makes every change so far durable: forces the journal to disk in journaled mode,
+     * otherwise rewrites the CSV file if any row changed since the last flush.
+     * Safe to call from any thread; it is the physical commit run by the group committer and on shutdown.
+     */
+    public void flush() {
+        UserJournal current;
+        synchronized (this) {
+            current = journal;
+            if (current == null) {
+                if (!isDirty()) {
+                    return;
+                }
+                try {
+                    writeSnapshot(header, toRows());
+                    dirtyRows.clear();
+                    rowsRemoved = false;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                return;
+            }
+        }
+        try {
+            current.sync();
+        } catch (ClosedChannelException e) {
+            // A compaction rotated this journal away, and it syncs a journal before closing it
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Queues a compaction on the flusher thread once the journal has grown past the configured size.
+     *
+     * @throws IOException If the journal size cannot be read.
+     */
+    private void maybeCompact() throws IOException {
+        if (compactionPending || journal.size() < StorageConfig.JOURNAL_COMPACT_BYTES) {
+            return;
+        }
+        compactionPending = true;
+        if (flusher != null) {
+            flusher.execute(this::compact);
+        } else {
+            compact();
+        }
+    }
+
+    /**
+     * Folds the journal into a new snapshot of the CSV file.
+     * The current journal is moved aside and a fresh one started while holding the table lock,
+     * then the snapshot is written from a copy of the rows without blocking readers or writers.
+     * The old journal is only deleted once the snapshot is on disk, so a crash at any point
+     * can still be recovered by replaying both journals on top of whichever snapshot survived.
+     * The rotation holds the exclusive {@link UserLocks} lock, so no per-user update is halfway done
+     * when the snapshot is cut.
+     */
+    public void compact() {
+        if (sharedLock != null) {
+            compactShared();
+            if (servesCsvHandler) {
+                UserBloomFilter.rebuildIfOpen();
+            }
+            return;
+        }
+        List<String[]> copy = new ArrayList<>();
+        // Compactions run inline when there is no flusher, possibly inside a per-user section that cannot be upgraded
+        String[] headerCopy = UserLocks.inUserSection() ? rotateJournal(copy) : UserLocks.exclusive(() -> rotateJournal(copy));
+        if (headerCopy == null) {
+            return;
+        }
+        try {
+            writeSnapshot(headerCopy, copy);
+            Files.delete(oldJournalPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        synchronized (this) {
+            compactionPending = false;
+        }
+        if (servesCsvHandler) {
+            UserBloomFilter.rebuildIfOpen();
+        }
+    }
+
+    /**
+     * Compacts a shared table in one step under the shared lock: writes the snapshot and starts a fresh journal,
+     * whose new generation id tells the other processes to reload. No other process can read the files halfway.
+     */
+    private void compactShared() {
+        lockShared();
+        try {
+            synchronized (this) {
+                try {
+                    if (journal != null) {
+                        writeSnapshot(header.clone(), toRows());
+                        journal.close();
+                        Files.delete(journalPath);
+                        journal = new UserJournal(journalPath);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    compactionPending = false;
+                }
+            }
+        } finally {
+            unlockShared();
+        }
+    }
+
+    /**
+     * First step of a compaction: copies the rows and moves the current journal aside for a fresh one.
+     *
+     * @param copy Receives a copy of every row.
+     * @return A copy of the header, or null if the compaction already finished or failed in this step.
+     */
+    private synchronized String[] rotateJournal(List<String[]> copy) {
+        if (journal == null) {
+            flush();
+            return null;
+        }
+        String[] headerCopy = header.clone();
+        copy.addAll(toRows());
+        try {
+            if (Files.exists(oldJournalPath)) {
+                // A previous compaction never finished, so write this snapshot before letting go of either journal
+                writeSnapshot(headerCopy, copy);
+                Files.delete(oldJournalPath);
+                journal.sync();
+                journal.close();
+                Files.delete(journalPath);
+                journal = new UserJournal(journalPath);
+                compactionPending = false;
+                return null;
+            }
+            journal.sync();
+            journal.close();
+            Files.move(journalPath, oldJournalPath, StandardCopyOption.REPLACE_EXISTING);
+            journal = new UserJournal(journalPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+            compactionPending = false;
+            return null;
+        }
+        return headerCopy;
+    }
+
+    /**
+     * Flushes pending changes, stops the background flusher and closes the journal.
+     * The table must not be used afterwards.
+     */
+    public synchronized void close() {
+        flush();
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+            if (sharedLock != null) {
+                sharedLock.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Turns every record back into text, in file order, for writing a snapshot.
+     *
+     * @return The rows.
+     */
+    private List<String[]> toRows() {
+        List<String[]> text = new ArrayList<>(rows.size());
+        for (PlayerRecord row : rows.values()) {
+            text.add(row.toRow());
+        }
+        return text;
+    }
+
+    /**
+     * Writes a full snapshot of the given rows to a temporary file and atomically renames it over the CSV file.
+     *
+     * @param header The header row.
+     * @param snapshot The user rows to write.
+     * @throws IOException If the file cannot be written. The previous snapshot is left untouched.
+     */
+    private void writeSnapshot(String[] header, Collection<String[]> snapshot) throws IOException {
+        AtomicFiles.write(path, writer -> {
+            CSVWriter csvWriter = new CSVWriter(writer);
+            csvWriter.writeNext(header);
+            for (String[] row : snapshot) {
+                csvWriter.writeNext(row);
+            }
+            csvWriter.close();
+        });
+    }
+}
@@ -0,0 +1,164 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the {@link UserTable} class: loading the CSV file, writing changes back to it,
+ * replaying the journal when the table is reopened and compacting the journal into the file.
+ * Every test works on its own temporary files.
+ */
+public class UserTableTest {
+
+    /** The header row as the game writes it. */
+    private static final String HEADER = "\"user_name\",\"password\",\"num_games_played\",\"saved_game?\",\"accuracy_rate\",\"listOfCountry\",\"highScore\"";
+
+    /**
+     * Creates a user file with the given lines after the header.
+     *
+     * @param rows The data rows, already in CSV form.
+     * @return The path of the new file.
+     * @throws IOException if the file cannot be written.
+     */
+    private static Path userFile(String... rows) throws IOException {
+        Path csv = Files.createTempFile("users", ".csv");
+        List<String> lines = new java.util.ArrayList<>();
+        lines.add(HEADER);
+        lines.addAll(List.of(rows));
+        Files.write(csv, lines);
+        return csv;
+    }
+
+    /**
+     * Verifies that every row and column of the file is loaded, in file order, and that a missing file
+     * is created with the header.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testLoadFromCsv() throws IOException {
+        Path csv = userFile("\"alice\",\"pw1\",\"3\",\"N\",\"75.5\",\"None\",\"120\"",
+                "\"bob\",\"pw2\",\"0\",\"N\",\"100\",\"None\",\"0\"");
+        UserTable table = new UserTable(csv, false);
+        assertEquals(List.of("alice", "bob"), table.getUserNames());
+        assertTrue(table.contains("bob"));
+        assertFalse(table.contains("carol"));
+        assertEquals("pw1", table.getField("alice", 1));
+        assertEquals("75.5", table.getField("alice", 4));
+        assertEquals("120", table.getField("alice", 6));
+        assertNull(table.getField("carol", 1));
+        assertEquals(3, table.getRecord("alice").getNumGamesPlayed());
+        assertEquals("0", table.toMap().get("bob").get("highScore"));
+        assertFalse(table.isDirty());
+        table.close();
+
+        Path missing = Files.createTempFile("users", ".csv");
+        Files.delete(missing);
+        UserTable empty = new UserTable(missing, false);
+        assertTrue(empty.getUserNames().isEmpty());
+        assertEquals(HEADER, Files.readAllLines(missing).get(0));
+        empty.close();
+    }
+
+    /**
+     * Verifies that without a journal changes stay in memory until a flush rewrites the file.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testWriteBackFlush() throws IOException {
+        Path csv = userFile("\"alice\",\"pw1\",\"3\",\"N\",\"75.5\",\"None\",\"120\"",
+                "\"bob\",\"pw2\",\"0\",\"N\",\"100\",\"None\",\"0\"");
+        List<String> before = Files.readAllLines(csv);
+        UserTable table = new UserTable(csv, false);
+        assertTrue(table.setField("alice", 6, "150"));
+        assertTrue(table.removeRow("bob"));
+        assertTrue(table.addRow(new String[]{"carol", "pw3", "0", "N", "100", "None", "0"}));
+        assertEquals("150", table.getField("alice", 6));
+        assertTrue(table.isDirty());
+        assertEquals(before, Files.readAllLines(csv));
+
+        table.flush();
+        assertFalse(table.isDirty());
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(3, lines.size());
+        assertEquals("\"alice\",\"pw1\",\"3\",\"N\",\"75.5\",\"None\",\"150\"", lines.get(1));
+        assertTrue(lines.get(2).startsWith("\"carol\""));
+        assertFalse(Files.exists(Paths.get(csv + ".journal")));
+        table.close();
+
+        UserTable reopened = new UserTable(csv, false);
+        assertEquals(List.of("alice", "carol"), reopened.getUserNames());
+        assertEquals("150", reopened.getField("alice", 6));
+        reopened.close();
+    }
+
+    /**
+     * Verifies that a journaled table leaves the file alone and rebuilds every change from the journal
+     * when it is reopened, including a journal left behind by a compaction that never finished.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testJournalReplayAfterReopen() throws IOException {
+        Path csv = userFile("\"alice\",\"pw1\",\"3\",\"N\",\"75.5\",\"None\",\"120\"",
+                "\"bob\",\"pw2\",\"0\",\"N\",\"100\",\"None\",\"0\"");
+        List<String> before = Files.readAllLines(csv);
+        UserTable table = new UserTable(csv, true);
+        table.setField("alice", 6, "150");
+        table.removeRow("bob");
+        table.addRow(new String[]{"carol", "pw3", "0", "N", "100", "None", "0"});
+        table.close();
+        assertEquals(before, Files.readAllLines(csv));
+
+        UserTable reopened = new UserTable(csv, true);
+        assertEquals(List.of("alice", "carol"), reopened.getUserNames());
+        assertEquals("150", reopened.getField("alice", 6));
+        reopened.close();
+
+        try (UserJournal old = new UserJournal(Paths.get(csv + ".journal.old"))) {
+            old.appendSet("alice", 2, "9");
+        }
+        UserTable recovered = new UserTable(csv, true);
+        assertEquals("9", recovered.getField("alice", 2));
+        assertEquals("150", recovered.getField("alice", 6));
+        recovered.close();
+    }
+
+    /**
+     * Verifies that a compaction writes the journaled changes into the file and starts an empty journal,
+     * and that the table keeps journaling afterwards.
+     *
+     * @throws IOException if the temporary files cannot be written.
+     */
+    @Test
+    public void testCompaction() throws IOException {
+        Path csv = userFile("\"alice\",\"pw1\",\"3\",\"N\",\"75.5\",\"None\",\"120\"",
+                "\"bob\",\"pw2\",\"0\",\"N\",\"100\",\"None\",\"0\"");
+        Path journal = Paths.get(csv + ".journal");
+        UserTable table = new UserTable(csv, true);
+        table.setField("alice", 6, "150");
+        table.removeRow("bob");
+        long journaled = Files.size(journal);
+
+        table.compact();
+        assertFalse(Files.exists(Paths.get(csv + ".journal.old")));
+        assertTrue(Files.size(journal) < journaled);
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(2, lines.size());
+        assertEquals("\"alice\",\"pw1\",\"3\",\"N\",\"75.5\",\"None\",\"150\"", lines.get(1));
+
+        table.setField("alice", 2, "4");
+        table.close();
+        UserTable reopened = new UserTable(csv, true);
+        assertEquals("4", reopened.getField("alice", 2));
+        assertEquals("150", reopened.getField("alice", 6));
+        assertFalse(reopened.contains("bob"));
+        reopened.close();
+    }
+}